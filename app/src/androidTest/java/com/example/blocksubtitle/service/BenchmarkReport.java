@@ -0,0 +1,45 @@
+package com.example.blocksubtitle.service;
+
+import android.app.Activity;
+import android.app.Instrumentation;
+import android.os.Bundle;
+import android.util.Log;
+
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.example.blocksubtitle.util.LatencyHistogram;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+
+/**
+ * 收集设备上基准测试的结果，结束时写入 logcat 并随 am instrument 的输出返回
+ */
+class BenchmarkReport {
+
+    private static final String TAG = "BenchmarkReport";
+
+    private final StringWriter text = new StringWriter();
+    private final PrintWriter writer = new PrintWriter(text);
+
+    BenchmarkReport(String title) {
+        writer.println(title);
+    }
+
+    void line(String line) {
+        writer.println("  " + line);
+    }
+
+    void histogram(LatencyHistogram histogram, String name, long divisor, String unit) {
+        writer.print("  ");
+        histogram.dump(writer, name, divisor, unit);
+    }
+
+    void send() {
+        writer.flush();
+        Log.i(TAG, text.toString());
+        Bundle results = new Bundle();
+        results.putString(Instrumentation.REPORT_KEY_STREAMRESULT, "\n" + text);
+        InstrumentationRegistry.getInstrumentation().sendStatus(Activity.RESULT_OK, results);
+    }
+}
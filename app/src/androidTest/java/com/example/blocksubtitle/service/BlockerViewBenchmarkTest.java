@@ -0,0 +1,95 @@
+package com.example.blocksubtitle.service;
+
+import android.app.Instrumentation;
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.view.LayoutInflater;
+import android.view.View;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.example.blocksubtitle.test.R;
+import com.example.blocksubtitle.util.LatencyHistogram;
+import com.example.blocksubtitle.view.BlockerView;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/**
+ * 对比新旧两种遮挡视图的创建和首次绘制耗时：
+ * 旧方式用 LayoutInflater 加载 FrameLayout 和形状背景，新方式直接创建 {@link BlockerView}。
+ * 首次绘制包括测量、布局和绘制到离屏位图。添加窗口的跨进程调用两者相同，不在这里统计。
+ * 第一次创建单独列出，对应冷启动时资源还没有加载的情况，之后的结果对应再次添加窗口。
+ * 旧的布局和背景只保留在测试 APK 的资源中
+ */
+@RunWith(AndroidJUnit4.class)
+public class BlockerViewBenchmarkTest {
+
+    private static final int ITERATIONS = 200;
+    private static final int WARMUP = 20;
+
+    // 典型字幕遮挡窗的尺寸
+    private static final int WIDTH = 900;
+    private static final int HEIGHT = 160;
+
+    @Test
+    public void inflateVersusBlockerView() {
+        final Instrumentation instrumentation = InstrumentationRegistry.getInstrumentation();
+        final LatencyHistogram legacyCreate = new LatencyHistogram();
+        final LatencyHistogram legacyDraw = new LatencyHistogram();
+        final LatencyHistogram create = new LatencyHistogram();
+        final LatencyHistogram draw = new LatencyHistogram();
+        final long[] first = new long[2];
+        instrumentation.runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                Context context = instrumentation.getTargetContext();
+                // 旧的布局在测试 APK 中，用测试 APK 的 Context 加载
+                LayoutInflater inflater = LayoutInflater.from(instrumentation.getContext());
+                Bitmap bitmap = Bitmap.createBitmap(WIDTH, HEIGHT, Bitmap.Config.ARGB_8888);
+                Canvas canvas = new Canvas(bitmap);
+                for (int i = -WARMUP; i < ITERATIONS; i++) {
+                    long start = System.nanoTime();
+                    View legacy = inflater.inflate(R.layout.legacy_floating_view, null);
+                    long created = System.nanoTime();
+                    drawOnce(legacy, canvas);
+                    long drawn = System.nanoTime();
+
+                    View view = new BlockerView(context);
+                    long created2 = System.nanoTime();
+                    drawOnce(view, canvas);
+                    long drawn2 = System.nanoTime();
+
+                    if (i == -WARMUP) {
+                        first[0] = drawn - start;
+                        first[1] = drawn2 - drawn;
+                    } else if (i >= 0) {
+                        legacyCreate.record(created - start);
+                        legacyDraw.record(drawn - created);
+                        create.record(created2 - drawn);
+                        draw.record(drawn2 - created2);
+                    }
+                }
+                bitmap.recycle();
+            }
+        });
+
+        BenchmarkReport report = new BenchmarkReport("Blocker view (" + ITERATIONS + " iterations, "
+                + WIDTH + "x" + HEIGHT + "):");
+        report.line("first: inflate=" + first[0] / 1000 + "us blockerView=" + first[1] / 1000 + "us");
+        report.histogram(legacyCreate, "inflateCreate", 1000, "us");
+        report.histogram(legacyDraw, "inflateDraw", 1000, "us");
+        report.histogram(create, "blockerViewCreate", 1000, "us");
+        report.histogram(draw, "blockerViewDraw", 1000, "us");
+        report.send();
+    }
+
+    private static void drawOnce(View view, Canvas canvas) {
+        view.measure(View.MeasureSpec.makeMeasureSpec(WIDTH, View.MeasureSpec.EXACTLY),
+                View.MeasureSpec.makeMeasureSpec(HEIGHT, View.MeasureSpec.EXACTLY));
+        view.layout(0, 0, WIDTH, HEIGHT);
+        view.draw(canvas);
+    }
+}
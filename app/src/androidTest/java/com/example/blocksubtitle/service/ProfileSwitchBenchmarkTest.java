@@ -0,0 +1,145 @@
+package com.example.blocksubtitle.service;
+
+import static org.junit.Assert.assertEquals;
+
+import android.app.Instrumentation;
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.ParcelFileDescriptor;
+import android.view.WindowManager;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.example.blocksubtitle.util.ChoreographerFrameSource;
+import com.example.blocksubtitle.util.DisplayConfig;
+import com.example.blocksubtitle.util.LatencyHistogram;
+import com.example.blocksubtitle.util.WindowStateHelper;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 切换配置档的耗时：查找保存的布局，再整体应用到真实的遮挡窗，每个窗口一次 updateViewLayout。
+ * 在两个错开的配置档之间来回切换，使用单独的存储，不影响应用保存的布局。
+ * 只有查找的部分也在 :benchmark 模块的 WindowStateHelperBenchmark 中测量
+ */
+@RunWith(AndroidJUnit4.class)
+public class ProfileSwitchBenchmarkTest {
+
+    private static final String PREFS_NAME = "ProfileSwitchBenchmark";
+
+    private static final int ITERATIONS = 200;
+    private static final int WARMUP = 20;
+
+    // 两个配置档之间错开的距离
+    private static final int SHIFT = 40;
+
+    // 与服务中的边缘热区大小相同
+    private static final int HANDLE_SIZE_DP = 30;
+
+    private Instrumentation instrumentation;
+    private Context context;
+    private BlockerWindowManager blockers;
+
+    @Before
+    public void setUp() throws IOException {
+        instrumentation = InstrumentationRegistry.getInstrumentation();
+        context = instrumentation.getTargetContext();
+        // 添加悬浮窗需要的权限
+        ParcelFileDescriptor output = instrumentation.getUiAutomation().executeShellCommand(
+                "appops set " + context.getPackageName() + " SYSTEM_ALERT_WINDOW allow");
+        // 读到结尾即命令执行完毕
+        FileInputStream in = new ParcelFileDescriptor.AutoCloseInputStream(output);
+        try {
+            while (in.read() >= 0) {
+                // 丢弃输出
+            }
+        } finally {
+            in.close();
+        }
+    }
+
+    @After
+    public void tearDown() {
+        instrumentation.runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                if (blockers != null) {
+                    blockers.removeAll();
+                }
+            }
+        });
+        context.deleteSharedPreferences(PREFS_NAME);
+    }
+
+    private static List<WindowStateHelper.WindowState> states(int shift) {
+        List<WindowStateHelper.WindowState> states = new ArrayList<>(3);
+        states.add(new WindowStateHelper.WindowState(900, 160, 90, 1600 + shift));
+        states.add(new WindowStateHelper.WindowState(400, 120, 340, 300 + shift));
+        states.add(new WindowStateHelper.WindowState(200, 200, 40, 900 + shift));
+        return states;
+    }
+
+    @Test
+    public void switchProfiles() {
+        final LatencyHistogram lookup = new LatencyHistogram();
+        final LatencyHistogram apply = new LatencyHistogram();
+        instrumentation.runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                WindowManager windowManager = (WindowManager) context.getSystemService(Context.WINDOW_SERVICE);
+                DisplayConfig config = DisplayConfig.current(context, windowManager);
+                SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+                prefs.edit().clear().commit();
+                WindowStateHelper helper = new WindowStateHelper(prefs);
+                helper.commitWindowStates("video", config, states(0));
+                helper.commitWindowStates("shifted", config, states(SHIFT));
+
+                float density = context.getResources().getDisplayMetrics().density;
+                blockers = new BlockerWindowManager(context, windowManager, new ChoreographerFrameSource(),
+                        (int) (HANDLE_SIZE_DP * density), new OverlayMetrics(), new BlockerWindowManager.Callback() {
+                            @Override
+                            public void onLastWindowClosed() {
+                            }
+
+                            @Override
+                            public void onWindowsChanged() {
+                            }
+
+                            @Override
+                            public void onUserInteraction() {
+                            }
+                        });
+                blockers.setDisplayConfig(config);
+                blockers.applyStates(helper.loadWindowStates("video", config));
+
+                for (int i = -WARMUP; i < ITERATIONS; i++) {
+                    long start = System.nanoTime();
+                    List<WindowStateHelper.WindowState> states =
+                            helper.loadWindowStates((i & 1) == 0 ? "shifted" : "video", config);
+                    long found = System.nanoTime();
+                    blockers.applyStates(states);
+                    long applied = System.nanoTime();
+                    if (i >= 0) {
+                        lookup.record(found - start);
+                        apply.record(applied - found);
+                    }
+                }
+                assertEquals(3, blockers.getWindowCount());
+            }
+        });
+
+        BenchmarkReport report = new BenchmarkReport("Profile switch (" + ITERATIONS + " iterations, 3 windows):");
+        report.histogram(lookup, "lookup", 1, "ns");
+        report.histogram(apply, "applyLayout", 1000, "us");
+        report.send();
+    }
+}
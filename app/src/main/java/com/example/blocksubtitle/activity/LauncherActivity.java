@@ -1,13 +1,23 @@
 package com.example.blocksubtitle.activity;
 
 import android.app.Activity;
+import android.app.AlertDialog;
+import android.content.DialogInterface;
 import android.content.Intent;
+import android.media.projection.MediaProjectionManager;
 import android.net.Uri;
 import android.os.Bundle;
 import android.provider.Settings;
-import android.util.Log;
 
+import com.example.blocksubtitle.R;
 import com.example.blocksubtitle.service.FloatingWindowService;
+import com.example.blocksubtitle.util.ForegroundAppDetector;
+import com.example.blocksubtitle.util.RingLog;
+import com.example.blocksubtitle.util.WindowStateHelper;
+import com.example.blocksubtitle.view.BlockerView;
+
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * 透明启动Activity，用于请求悬浮窗权限并启动服务。
@@ -16,14 +26,53 @@ public class LauncherActivity extends Activity {
 
     private static final String TAG = "LauncherActivity";
     private static final int REQUEST_CODE_OVERLAY_PERMISSION = 1001;
+    private static final int REQUEST_CODE_PICK_SUBTITLE = 1002;
+    private static final int REQUEST_CODE_SCREEN_CAPTURE = 1003;
+    private static final int REQUEST_CODE_BLUR = 1004;
+    private static final int REQUEST_CODE_PIXELATE = 1005;
+
+    // 从通知栏打开，选择字幕文件后交给服务
+    public static final String ACTION_PICK_SUBTITLE = "com.example.blocksubtitle.action.PICK_SUBTITLE";
+
+    // 从通知栏打开，请求屏幕录制授权后交给服务自动定位
+    public static final String ACTION_AUTO_POSITION = "com.example.blocksubtitle.action.AUTO_POSITION";
+
+    // 请求屏幕录制授权后交给服务开始模糊或马赛克模式
+    public static final String ACTION_BLUR = "com.example.blocksubtitle.action.BLUR";
+    public static final String ACTION_PIXELATE = "com.example.blocksubtitle.action.PIXELATE";
+
+    // 点击通知打开，显示管理菜单
+    public static final String ACTION_MANAGE = "com.example.blocksubtitle.action.MANAGE";
+
+    // 启动时间，交给服务统计冷启动耗时
+    private long launchTimeNanos;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
+        launchTimeNanos = System.nanoTime();
         super.onCreate(savedInstanceState);
+        String action = getIntent().getAction();
+        boolean plainLaunch = action == null || Intent.ACTION_MAIN.equals(action);
+        if (plainLaunch && checkOverlayPermission()) {
+            // 已有权限：不设置界面，在服务启动的同时预读保存的状态
+            WindowStateHelper.prefetch(this);
+            startFloatingWindowService();
+            return;
+        }
         // 设置一个完全透明的ContentView，避免黑屏或白屏
         setContentView(new android.view.View(this));
 
-        if (checkOverlayPermission()) {
+        if (ACTION_MANAGE.equals(getIntent().getAction())) {
+            showManageMenu();
+        } else if (ACTION_PICK_SUBTITLE.equals(getIntent().getAction())) {
+            pickSubtitle();
+        } else if (ACTION_AUTO_POSITION.equals(getIntent().getAction())) {
+            requestScreenCapture(REQUEST_CODE_SCREEN_CAPTURE);
+        } else if (ACTION_BLUR.equals(getIntent().getAction())) {
+            requestScreenCapture(REQUEST_CODE_BLUR);
+        } else if (ACTION_PIXELATE.equals(getIntent().getAction())) {
+            requestScreenCapture(REQUEST_CODE_PIXELATE);
+        } else if (checkOverlayPermission()) {
             startFloatingWindowService();
         } else {
             requestOverlayPermission();
@@ -46,15 +95,153 @@ public class LauncherActivity extends Activity {
         startActivityForResult(intent, REQUEST_CODE_OVERLAY_PERMISSION);
     }
 
+    /**
+     * 显示管理菜单，提供通知栏放不下的操作
+     */
+    private void showManageMenu() {
+        final List<String> actions = new ArrayList<>();
+        List<CharSequence> labels = new ArrayList<>();
+        actions.add(FloatingWindowService.ACTION_TOGGLE_STANDBY);
+        labels.add(getString(FloatingWindowService.isStandby() ? R.string.action_resume : R.string.action_standby));
+        actions.add(FloatingWindowService.ACTION_ADD_WINDOW);
+        labels.add(getString(R.string.action_add_window));
+        actions.add(ACTION_PICK_SUBTITLE);
+        labels.add(getString(R.string.action_pick_subtitle));
+        actions.add(FloatingWindowService.ACTION_SUBTITLE_RESYNC);
+        labels.add(getString(R.string.action_subtitle_resync));
+        actions.add(FloatingWindowService.ACTION_STOP_SUBTITLE);
+        labels.add(getString(R.string.action_stop_subtitle));
+        actions.add(ACTION_AUTO_POSITION);
+        labels.add(getString(R.string.action_auto_position));
+        if (FloatingWindowService.getRenderMode() == BlockerView.MODE_SOLID) {
+            actions.add(ACTION_BLUR);
+            labels.add(getString(R.string.action_blur));
+            actions.add(ACTION_PIXELATE);
+            labels.add(getString(R.string.action_pixelate));
+        } else {
+            actions.add(FloatingWindowService.ACTION_STOP_BLUR);
+            labels.add(getString(R.string.action_solid));
+        }
+        if (!ForegroundAppDetector.hasPermission(this)) {
+            actions.add(Settings.ACTION_USAGE_ACCESS_SETTINGS);
+            labels.add(getString(R.string.action_enable_profiles));
+        }
+
+        new AlertDialog.Builder(this)
+                .setItems(labels.toArray(new CharSequence[0]), new DialogInterface.OnClickListener() {
+                    @Override
+                    public void onClick(DialogInterface dialog, int which) {
+                        onManageAction(actions.get(which));
+                    }
+                })
+                .setOnCancelListener(new DialogInterface.OnCancelListener() {
+                    @Override
+                    public void onCancel(DialogInterface dialog) {
+                        finish();
+                    }
+                })
+                .show();
+    }
+
+    private void onManageAction(String action) {
+        switch (action) {
+            case ACTION_PICK_SUBTITLE:
+                pickSubtitle();
+                break;
+            case ACTION_AUTO_POSITION:
+                requestScreenCapture(REQUEST_CODE_SCREEN_CAPTURE);
+                break;
+            case ACTION_BLUR:
+                requestScreenCapture(REQUEST_CODE_BLUR);
+                break;
+            case ACTION_PIXELATE:
+                requestScreenCapture(REQUEST_CODE_PIXELATE);
+                break;
+            case Settings.ACTION_USAGE_ACCESS_SETTINGS:
+                startActivity(new Intent(Settings.ACTION_USAGE_ACCESS_SETTINGS));
+                finish();
+                break;
+            default:
+                // 其余操作直接交给服务
+                startService(new Intent(this, FloatingWindowService.class).setAction(action));
+                finish();
+                break;
+        }
+    }
+
+    /**
+     * 打开系统文件选择器选择 .srt / .ass 字幕文件
+     */
+    private void pickSubtitle() {
+        Intent intent = new Intent(Intent.ACTION_OPEN_DOCUMENT)
+                .addCategory(Intent.CATEGORY_OPENABLE)
+                .setType("*/*");
+        startActivityForResult(intent, REQUEST_CODE_PICK_SUBTITLE);
+    }
+
+    /**
+     * 请求屏幕录制授权，requestCode 决定授权后的用途
+     */
+    private void requestScreenCapture(int requestCode) {
+        MediaProjectionManager projectionManager =
+                (MediaProjectionManager) getSystemService(MEDIA_PROJECTION_SERVICE);
+        startActivityForResult(projectionManager.createScreenCaptureIntent(), requestCode);
+    }
+
     @Override
     protected void onActivityResult(int requestCode, int resultCode, Intent data) {
         super.onActivityResult(requestCode, resultCode, data);
+        if (requestCode == REQUEST_CODE_SCREEN_CAPTURE) {
+            if (resultCode == RESULT_OK && data != null) {
+                Intent serviceIntent = new Intent(this, FloatingWindowService.class)
+                        .setAction(FloatingWindowService.ACTION_START_AUTO_POSITION)
+                        .putExtra(FloatingWindowService.EXTRA_RESULT_CODE, resultCode)
+                        .putExtra(FloatingWindowService.EXTRA_RESULT_DATA, data);
+                startService(serviceIntent);
+            } else {
+                RingLog.w(TAG, "Screen capture denied by user.");
+            }
+            finish();
+            return;
+        }
+        if (requestCode == REQUEST_CODE_BLUR || requestCode == REQUEST_CODE_PIXELATE) {
+            if (resultCode == RESULT_OK && data != null) {
+                Intent serviceIntent = new Intent(this, FloatingWindowService.class)
+                        .setAction(FloatingWindowService.ACTION_START_BLUR)
+                        .putExtra(FloatingWindowService.EXTRA_RESULT_CODE, resultCode)
+                        .putExtra(FloatingWindowService.EXTRA_RESULT_DATA, data)
+                        .putExtra(FloatingWindowService.EXTRA_RENDER_MODE, requestCode == REQUEST_CODE_BLUR
+                                ? BlockerView.MODE_BLUR : BlockerView.MODE_PIXELATE);
+                startService(serviceIntent);
+            } else {
+                RingLog.w(TAG, "Screen capture denied by user.");
+            }
+            finish();
+            return;
+        }
+        if (requestCode == REQUEST_CODE_PICK_SUBTITLE) {
+            if (resultCode == RESULT_OK && data != null && data.getData() != null) {
+                Uri uri = data.getData();
+                try {
+                    getContentResolver().takePersistableUriPermission(uri, Intent.FLAG_GRANT_READ_URI_PERMISSION);
+                } catch (SecurityException e) {
+                    RingLog.w(TAG, "Cannot persist permission for {}", uri);
+                }
+                Intent serviceIntent = new Intent(this, FloatingWindowService.class)
+                        .setAction(FloatingWindowService.ACTION_LOAD_SUBTITLE)
+                        .setData(uri)
+                        .addFlags(Intent.FLAG_GRANT_READ_URI_PERMISSION);
+                startService(serviceIntent);
+            }
+            finish();
+            return;
+        }
         if (requestCode == REQUEST_CODE_OVERLAY_PERMISSION) {
             if (checkOverlayPermission()) {
-                Log.d(TAG, "Overlay permission granted by user.");
+                RingLog.d(TAG, "Overlay permission granted by user.");
                 startFloatingWindowService();
             } else {
-                Log.w(TAG, "Overlay permission denied by user.");
+                RingLog.w(TAG, "Overlay permission denied by user.");
                 // 权限被拒绝，应用无法工作，直接退出
                 finish();
             }
@@ -65,13 +252,16 @@ public class LauncherActivity extends Activity {
      * 启动前台服务来显示悬浮窗
      */
     private void startFloatingWindowService() {
-        Intent serviceIntent = new Intent(this, FloatingWindowService.class);
+        Intent serviceIntent = new Intent(this, FloatingWindowService.class)
+                .putExtra(FloatingWindowService.EXTRA_LAUNCH_TIME_NANOS, launchTimeNanos)
+                .putExtra(FloatingWindowService.EXTRA_LAUNCH_ENTRY, "launcher");
         if (android.os.Build.VERSION.SDK_INT >= android.os.Build.VERSION_CODES.O) {
             startForegroundService(serviceIntent);
         } else {
             startService(serviceIntent);
         }
-        // 启动服务后，将Activity移至后台而不是关闭
-        moveTaskToBack(true);
+        // 服务已经在前台启动，直接关闭且不播放退出动画，不再把任务移到后台
+        finish();
+        overridePendingTransition(0, 0);
     }
 }
\ No newline at end of file
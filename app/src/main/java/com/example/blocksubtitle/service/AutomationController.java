@@ -0,0 +1,212 @@
+package com.example.blocksubtitle.service;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Message;
+import android.os.Messenger;
+import android.os.Process;
+import android.os.RemoteException;
+import android.view.WindowManager;
+
+import com.example.blocksubtitle.util.CommandBatch;
+import com.example.blocksubtitle.util.RingLog;
+
+/**
+ * 自动化命令接口，供测试台和展示机脚本批量摆放遮挡窗。
+ * 命令可以通过 Intent（{@link FloatingWindowService#ACTION_BATCH}）或绑定服务后的 Messenger 发送，
+ * 格式见 {@link CommandBatch}。每批命令整体执行，每个窗口最多布局一次。
+ *
+ * 本应用、adb shell 和 root 发来的 Messenger 消息总是接受；其他来源（包括无法识别调用方的 Intent）
+ * 需要先用 dumpsys 开启：
+ * adb shell dumpsys activity service com.example.blocksubtitle/.service.FloatingWindowService automation on
+ */
+public class AutomationController {
+
+    private static final String TAG = "AutomationController";
+    private static final String PREFS_NAME = "AutomationPrefs";
+    private static final String KEY_ENABLED = "enabled";
+
+    // adb shell 的 uid（android.os.Process.SHELL_UID 不是公开 API）
+    private static final int SHELL_UID = 2000;
+    private static final int ROOT_UID = 0;
+
+    // Messenger 消息类型
+    public static final int MSG_APPLY_BATCH = 1;   // data: KEY_OPS
+    public static final int MSG_QUERY_STATE = 2;
+    public static final int MSG_RESULT = 101;      // arg1: 1 成功 0 失败，data: KEY_ERROR
+    public static final int MSG_STATE = 102;       // data: KEY_PROFILE, KEY_HIDDEN, KEY_STANDBY, KEY_BOUNDS
+
+    public static final String KEY_OPS = "ops";
+    public static final String KEY_ERROR = "error";
+    public static final String KEY_PROFILE = "profile";
+    public static final String KEY_HIDDEN = "hidden";
+    public static final String KEY_STANDBY = "standby";
+    public static final String KEY_BOUNDS = "bounds"; // int[]，每个窗口依次为 x、y、宽、高，按层级从低到高
+
+    /**
+     * 需要服务配合的操作
+     */
+    interface Host {
+        String getProfile();
+
+        void selectProfile(String profile);
+
+        boolean isStandby();
+    }
+
+    private final Context context;
+    private final BlockerWindowManager blockers;
+    private final Host host;
+
+    private final CommandBatch.Target target = new CommandBatch.Target() {
+        @Override
+        public int getWindowCount() {
+            return blockers.getWindowCount();
+        }
+
+        @Override
+        public void beginBatch() {
+            blockers.beginBatch();
+        }
+
+        @Override
+        public void endBatch() {
+            blockers.endBatch();
+        }
+
+        @Override
+        public void addWindow(int x, int y, int width, int height) {
+            blockers.addWindow(x, y, width, height);
+        }
+
+        @Override
+        public void removeWindow(int index) {
+            blockers.removeWindow(blockers.getWindow(index));
+        }
+
+        @Override
+        public void setWindowBounds(int index, int x, int y, int width, int height) {
+            blockers.setWindowBounds(blockers.getWindow(index), x, y, width, height);
+        }
+
+        @Override
+        public void setHidden(boolean hidden) {
+            blockers.setHidden(BlockerWindowManager.HIDE_AUTOMATION, hidden);
+        }
+
+        @Override
+        public void selectProfile(String profile) {
+            host.selectProfile(profile);
+        }
+    };
+
+    // 是否接受其他来源的命令，第一次用到时才读取
+    private SharedPreferences prefs;
+
+    private final Messenger messenger = new Messenger(new Handler(Looper.getMainLooper()) {
+        @Override
+        public void handleMessage(Message msg) {
+            handleCommand(msg);
+        }
+    });
+
+    AutomationController(Context context, BlockerWindowManager blockers, Host host) {
+        this.context = context;
+        this.blockers = blockers;
+        this.host = host;
+    }
+
+    Messenger getMessenger() {
+        return messenger;
+    }
+
+    boolean isEnabled() {
+        return prefs().getBoolean(KEY_ENABLED, false);
+    }
+
+    void setEnabled(boolean enabled) {
+        prefs().edit().putBoolean(KEY_ENABLED, enabled).apply();
+    }
+
+    /**
+     * 执行一批命令
+     *
+     * @return 出错时返回原因，整批命令都不会执行；成功时返回 null
+     */
+    String applyBatch(String text) {
+        CommandBatch batch;
+        try {
+            batch = CommandBatch.parse(text != null ? text : "", blockers.getWindowCount());
+        } catch (IllegalArgumentException e) {
+            RingLog.w(TAG, "Rejected batch: {}", e.getMessage());
+            return e.getMessage();
+        }
+        int skipped = batch.apply(target);
+        RingLog.d(TAG, "Applied {} commands, skipped {}", batch.size(), skipped);
+        return null;
+    }
+
+    /**
+     * 当前状态
+     */
+    Bundle getState() {
+        int count = blockers.getWindowCount();
+        int[] bounds = new int[count * 4];
+        for (int i = 0; i < count; i++) {
+            WindowManager.LayoutParams params = blockers.getWindow(i).params;
+            bounds[i * 4] = params.x;
+            bounds[i * 4 + 1] = params.y;
+            bounds[i * 4 + 2] = params.width;
+            bounds[i * 4 + 3] = params.height;
+        }
+        Bundle state = new Bundle();
+        state.putString(KEY_PROFILE, host.getProfile());
+        state.putBoolean(KEY_HIDDEN, blockers.isHidden());
+        state.putBoolean(KEY_STANDBY, host.isStandby());
+        state.putIntArray(KEY_BOUNDS, bounds);
+        return state;
+    }
+
+    private void handleCommand(Message msg) {
+        Message reply;
+        int uid = msg.sendingUid;
+        if (uid != Process.myUid() && uid != SHELL_UID && uid != ROOT_UID && !isEnabled()) {
+            RingLog.w(TAG, "Rejected command from uid {}", uid);
+            reply = result("Automation is disabled");
+        } else if (msg.what == MSG_APPLY_BATCH) {
+            reply = result(applyBatch(msg.getData().getString(KEY_OPS)));
+        } else if (msg.what == MSG_QUERY_STATE) {
+            reply = Message.obtain(null, MSG_STATE);
+            reply.setData(getState());
+        } else {
+            reply = result("Unknown message " + msg.what);
+        }
+        if (msg.replyTo != null) {
+            try {
+                msg.replyTo.send(reply);
+            } catch (RemoteException e) {
+                RingLog.w(TAG, "Client gone before reply", e);
+            }
+        }
+    }
+
+    private static Message result(String error) {
+        Message reply = Message.obtain(null, MSG_RESULT, error == null ? 1 : 0, 0);
+        if (error != null) {
+            Bundle data = new Bundle();
+            data.putString(KEY_ERROR, error);
+            reply.setData(data);
+        }
+        return reply;
+    }
+
+    private SharedPreferences prefs() {
+        if (prefs == null) {
+            prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        }
+        return prefs;
+    }
+}
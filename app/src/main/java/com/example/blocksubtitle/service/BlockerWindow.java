@@ -0,0 +1,257 @@
+package com.example.blocksubtitle.service;
+
+import android.content.Context;
+import android.os.Build;
+import android.os.Trace;
+import android.view.MotionEvent;
+import android.view.View;
+import android.view.ViewConfiguration;
+import android.view.WindowManager;
+
+import com.example.blocksubtitle.util.FlingStepper;
+import com.example.blocksubtitle.util.FrameCoalescer;
+import com.example.blocksubtitle.util.LayoutConstraints;
+import com.example.blocksubtitle.util.RingLog;
+import com.example.blocksubtitle.util.TouchGesture;
+import com.example.blocksubtitle.util.TouchTrace;
+import com.example.blocksubtitle.util.WindowGeometry;
+import com.example.blocksubtitle.view.BlockerView;
+
+/**
+ * 单个遮挡窗：视图、布局参数以及独立的手势状态。
+ * 由 {@link BlockerWindowManager} 创建，移除后回收到对象池中复用。
+ */
+class BlockerWindow implements View.OnTouchListener {
+
+    private static final String TAG = "BlockerWindow";
+
+    /**
+     * 遮挡窗的宿主，负责真正的窗口操作
+     */
+    interface Host {
+        void applyLayout(BlockerWindow window);
+
+        /**
+         * 手指按下，一次手势开始
+         */
+        void onTouchDown(BlockerWindow window);
+
+        void onDoubleTap(BlockerWindow window);
+
+        /**
+         * 单指移动结束，速度单位为像素/秒
+         */
+        void onFling(BlockerWindow window, float velocityX, float velocityY);
+    }
+
+    // 窗口编号，用于区分录制中的触摸事件
+    final int id;
+
+    final BlockerView view;
+    final WindowManager.LayoutParams params;
+    final WindowGeometry geometry = new WindowGeometry();
+
+    // 按帧合并布局更新，每帧最多调用一次 updateViewLayout
+    final FrameCoalescer layoutCoalescer;
+
+    // 抛掷惯性和磁吸，按帧推进
+    final FlingStepper fling;
+
+    private final FrameCoalescer.FrameSource frameSource;
+
+    private final FrameCoalescer.FrameCallback flingFrame = new FrameCoalescer.FrameCallback() {
+        @Override
+        public void doFrame(long frameTimeNanos) {
+            boolean more = fling.step(frameTimeNanos);
+            // 减速末段可能连续几帧停在同一个像素上，不重复布局
+            int x = params.x;
+            int y = params.y;
+            place(fling.getX(), fling.getY(), params.width, params.height);
+            if (params.x != x || params.y != y) {
+                host.applyLayout(BlockerWindow.this);
+            }
+            if (more) {
+                frameSource.postFrameCallback(this);
+            }
+        }
+    };
+
+    private final Host host;
+
+    // 双击、拖动和双指缩放在同一个流水线中处理
+    private final TouchGesture gesture;
+
+    // 是否已经添加到 WindowManager
+    boolean attached;
+
+    // 等待布局的最早输入事件时间（纳秒），没有时为 0
+    long pendingEventNanos;
+
+    // 批量操作中推迟的布局
+    boolean layoutDeferred;
+
+    // 当前手势触发的布局次数
+    int gestureRelayouts;
+
+    private final OverlayMetrics metrics;
+
+    // 正在录制时不为 null
+    TouchTrace trace;
+
+    BlockerWindow(int id, Context context, BlockerView view, WindowManager.LayoutParams params,
+                  FrameCoalescer.FrameSource frameSource, Host host, int handleSize,
+                  OverlayMetrics metrics, FlingStepper fling, LayoutConstraints constraints) {
+        this.id = id;
+        this.view = view;
+        this.frameSource = frameSource;
+        this.fling = fling;
+        this.metrics = metrics;
+        this.params = params;
+        this.host = host;
+        geometry.setHandleSize(handleSize);
+        geometry.setConstraints(constraints);
+        layoutCoalescer = new FrameCoalescer(frameSource, new Runnable() {
+            @Override
+            public void run() {
+                BlockerWindow.this.host.applyLayout(BlockerWindow.this);
+            }
+        });
+        // 字幕条通常又宽又扁，双指缩放时宽高分别跟随两个方向的指距
+        geometry.setIndependentScale(true, handleSize);
+        ViewConfiguration configuration = ViewConfiguration.get(context);
+        gesture = new TouchGesture(geometry, configuration.getScaledTouchSlop(),
+                configuration.getScaledDoubleTapSlop(), ViewConfiguration.getDoubleTapTimeout());
+        // 每个视图直接绑定自己的监听器，触摸分发不需要遍历窗口列表
+        view.setOnTouchListener(this);
+    }
+
+    /**
+     * 设置窗口边界，不会立即触发布局
+     */
+    void setBounds(int x, int y, int width, int height) {
+        params.x = x;
+        params.y = y;
+        params.width = width;
+        params.height = height;
+    }
+
+    /**
+     * 按布局约束调整后设置窗口边界，不会立即触发布局
+     */
+    void place(int x, int y, int width, int height) {
+        geometry.set(x, y, width, height);
+        geometry.constrain();
+        setBounds(geometry.x, geometry.y, geometry.width, geometry.height);
+    }
+
+    /**
+     * 按帧推进已经开始的抛掷
+     */
+    void startFling() {
+        frameSource.removeFrameCallback(flingFrame);
+        if (fling.isRunning()) {
+            frameSource.postFrameCallback(flingFrame);
+        }
+    }
+
+    /**
+     * 取消尚未应用的布局和进行中的抛掷，边界停在当前位置
+     */
+    void cancelPending() {
+        layoutCoalescer.cancel();
+        fling.stop();
+        frameSource.removeFrameCallback(flingFrame);
+    }
+
+    /**
+     * 清除手势状态，避免回收复用后的第一次点击与上一次使用时的点击组成双击
+     */
+    void resetGesture() {
+        gesture.reset();
+        gestureRelayouts = 0;
+    }
+
+    @Override
+    public boolean onTouch(View v, MotionEvent event) {
+        Trace.beginSection("BlockerWindow#onTouch");
+        try {
+            return handleTouch(event);
+        } finally {
+            Trace.endSection();
+        }
+    }
+
+    private boolean handleTouch(MotionEvent event) {
+        int action = event.getActionMasked();
+        if (action == MotionEvent.ACTION_DOWN) {
+            // 按住正在滑动的窗口时就地停下
+            cancelPending();
+            geometry.set(params.x, params.y, params.width, params.height);
+            gestureRelayouts = 0;
+            host.onTouchDown(this);
+        }
+
+        // 抬起的手指不再参与计算，只取剩下的前两个手指
+        int liftedIndex = action == MotionEvent.ACTION_POINTER_UP ? event.getActionIndex() : -1;
+        int pointerCount = event.getPointerCount() - (liftedIndex >= 0 ? 1 : 0);
+        int first = liftedIndex == 0 ? 1 : 0;
+        int second = first + 1 == liftedIndex ? first + 2 : first + 1;
+
+        // 悬浮窗没有变换，窗口内坐标加上同一偏移即为屏幕坐标（getRawX(int) 需要 API 29）
+        float offsetX = event.getRawX() - event.getX();
+        float offsetY = event.getRawY() - event.getY();
+        float x0 = event.getX(first) + offsetX;
+        float y0 = event.getY(first) + offsetY;
+        float x1 = 0;
+        float y1 = 0;
+        if (pointerCount >= 2) {
+            x1 = event.getX(second) + offsetX;
+            y1 = event.getY(second) + offsetY;
+        }
+
+        // 位置总是相对锚点计算，同一批次中的历史采样点都会被最新采样覆盖，因此只需要使用最新的坐标；
+        // 历史采样只交给速度估计，高采样率触摸屏每帧合并的几个采样都参与计算抬起速度
+        if (pointerCount == 1 && (action == MotionEvent.ACTION_MOVE || action == MotionEvent.ACTION_UP)) {
+            int history = event.getHistorySize();
+            for (int h = 0; h < history; h++) {
+                gesture.addHistoricalSample(event.getHistoricalEventTime(h),
+                        event.getHistoricalX(first, h) + offsetX, event.getHistoricalY(first, h) + offsetY);
+            }
+        }
+        int result = gesture.onTouchEvent(action, event.getEventTime(), pointerCount,
+                event.getX(), event.getY(), x0, y0, x1, y1);
+
+        if ((result & TouchGesture.RESULT_DOUBLE_TAP) != 0) {
+            RingLog.d(TAG, "Double tap detected");
+            host.onDoubleTap(this);
+        }
+        if ((result & TouchGesture.RESULT_CHANGED) != 0) {
+            setBounds(geometry.x, geometry.y, geometry.width, geometry.height);
+            if (pendingEventNanos == 0) {
+                pendingEventNanos = eventTimeNanos(event);
+            }
+            // 合并到下一帧统一应用，避免高采样率触摸屏每帧多次跨进程布局
+            layoutCoalescer.requestUpdate();
+        }
+        if ((result & TouchGesture.RESULT_ENDED) != 0) {
+            // 立即应用尚未提交的更改，为下一次触摸做准备
+            layoutCoalescer.flush();
+            metrics.recordGesture(gestureRelayouts);
+        }
+        if (trace != null) {
+            trace.add(id, action, event.getEventTime(), pointerCount, event.getX(), event.getY(),
+                    x0, y0, x1, y1, params.x, params.y, params.width, params.height, gestureRelayouts);
+        }
+        if ((result & TouchGesture.RESULT_FLING) != 0) {
+            host.onFling(this, gesture.getVelocityX(), gesture.getVelocityY());
+        }
+        return true;
+    }
+
+    private static long eventTimeNanos(MotionEvent event) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.UPSIDE_DOWN_CAKE) {
+            return event.getEventTimeNanos();
+        }
+        return event.getEventTime() * 1_000_000L;
+    }
+}
@@ -0,0 +1,511 @@
+package com.example.blocksubtitle.service;
+
+import android.content.Context;
+import android.graphics.PixelFormat;
+import android.os.Build;
+import android.os.SystemClock;
+import android.os.Trace;
+import android.view.Gravity;
+import android.view.View;
+import android.view.ViewConfiguration;
+import android.view.WindowManager;
+
+import com.example.blocksubtitle.util.DisplayConfig;
+import com.example.blocksubtitle.util.FlingStepper;
+import com.example.blocksubtitle.util.FrameCoalescer;
+import com.example.blocksubtitle.util.LayoutConstraints;
+import com.example.blocksubtitle.util.RingLog;
+import com.example.blocksubtitle.util.SnapTargets;
+import com.example.blocksubtitle.util.TouchTrace;
+import com.example.blocksubtitle.util.WindowStateHelper;
+import com.example.blocksubtitle.view.BlockerView;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 管理多个遮挡窗的添加、移除和层级顺序。
+ * 移除的窗口连同视图和 LayoutParams 一起回收到对象池，再次添加时不会重新创建视图。
+ */
+class BlockerWindowManager implements BlockerWindow.Host {
+
+    private static final String TAG = "BlockerWindowManager";
+
+    // 对象池最多保留的窗口数
+    private static final int MAX_POOL_SIZE = 4;
+
+    // 产生惯性的最低速度和磁吸距离
+    private static final int MIN_FLING_VELOCITY_DP = 400;
+    private static final int SNAP_DISTANCE_DP = 16;
+
+    // 窗口可以部分拖出屏幕，但每个方向至少保留这么多在系统栏以内，保证还能拖回来
+    private static final int KEEP_VISIBLE_DP = 48;
+
+    // 隐藏原因，可以同时存在多个，全部解除后才重新显示
+    static final int HIDE_SUBTITLE_GAP = 1;
+    static final int HIDE_AUTO_POSITION = 1 << 1;
+    static final int HIDE_STANDBY = 1 << 2;
+    static final int HIDE_AUTOMATION = 1 << 3;
+    static final int HIDE_IDLE = 1 << 4;
+
+    /**
+     * 窗口数量变化的回调
+     */
+    interface Callback {
+        /**
+         * 用户关闭了仅剩的一个窗口，窗口本身保留给服务保存状态
+         */
+        void onLastWindowClosed();
+
+        /**
+         * 窗口的数量、层级或边界发生了变化
+         */
+        void onWindowsChanged();
+
+        /**
+         * 用户触摸了某个窗口
+         */
+        void onUserInteraction();
+    }
+
+    private final Context context;
+    private final WindowManager windowManager;
+    private final FrameCoalescer.FrameSource frameSource;
+    private final Callback callback;
+    private final int handleSize;
+    private final OverlayMetrics metrics;
+
+    // 按层级从低到高排列的窗口
+    private final ArrayList<BlockerWindow> windows = new ArrayList<>();
+
+    // 回收的窗口
+    private final ArrayDeque<BlockerWindow> pool = new ArrayDeque<>();
+
+    // 当前的隐藏原因
+    private int hiddenReasons;
+
+    // 当前显示配置，用于屏幕边缘和系统栏的磁吸目标
+    private DisplayConfig displayConfig;
+
+    // 布局约束，屏幕范围在显示配置变化时更新，所有窗口共用
+    private final LayoutConstraints constraints = new LayoutConstraints();
+
+    // 磁吸目标，每次抛掷开始时重建，所有窗口共用
+    private final SnapTargets snapTargets = new SnapTargets();
+
+    // 渲染模式，见 BlockerView.MODE_SOLID 等
+    private int renderMode = BlockerView.MODE_SOLID;
+
+    // 批量操作中，布局推迟到批量结束时统一执行
+    private boolean batching;
+
+    // 下一个新建窗口的编号
+    private int nextWindowId;
+
+    // 正在录制的触摸事件，没有录制时为 null
+    private TouchTrace trace;
+
+    BlockerWindowManager(Context context, WindowManager windowManager,
+                         FrameCoalescer.FrameSource frameSource, int handleSize,
+                         OverlayMetrics metrics, Callback callback) {
+        this.context = context;
+        this.metrics = metrics;
+        this.windowManager = windowManager;
+        this.frameSource = frameSource;
+        this.handleSize = handleSize;
+        this.callback = callback;
+        constraints.setKeepVisible((int) (KEEP_VISIBLE_DP * context.getResources().getDisplayMetrics().density));
+    }
+
+    void setDisplayConfig(DisplayConfig displayConfig) {
+        this.displayConfig = displayConfig;
+        constraints.setBounds(0, 0, displayConfig.width, displayConfig.height);
+        constraints.setInsets(displayConfig.insetLeft, displayConfig.insetTop,
+                displayConfig.insetRight, displayConfig.insetBottom);
+    }
+
+    /**
+     * 按当前约束重新调整所有窗口，只布局边界发生变化的窗口。
+     * 显示配置变化但没有对应的保存状态时调用，避免窗口留在屏幕外
+     */
+    void constrainAll() {
+        for (int i = 0; i < windows.size(); i++) {
+            BlockerWindow window = windows.get(i);
+            WindowManager.LayoutParams params = window.params;
+            if (!constraints.isSatisfied(params.x, params.y, params.width, params.height)) {
+                window.cancelPending();
+                window.place(params.x, params.y, params.width, params.height);
+                applyLayout(window);
+            }
+        }
+    }
+
+    /**
+     * 开始录制所有窗口的触摸事件，之后新建的窗口也会录制
+     */
+    void startTrace() {
+        ViewConfiguration configuration = ViewConfiguration.get(context);
+        trace = new TouchTrace(handleSize, configuration.getScaledTouchSlop(),
+                configuration.getScaledDoubleTapSlop(), ViewConfiguration.getDoubleTapTimeout(),
+                metrics.getFrameIntervalNanos());
+        setTrace(trace);
+    }
+
+    /**
+     * 停止录制
+     *
+     * @return 录制结果，没有在录制时返回 null
+     */
+    TouchTrace stopTrace() {
+        TouchTrace result = trace;
+        trace = null;
+        setTrace(null);
+        return result;
+    }
+
+    /**
+     * 设置所有窗口的渲染模式，之后新建的窗口也使用该模式
+     */
+    void setRenderMode(int mode) {
+        renderMode = mode;
+        for (int i = 0; i < windows.size(); i++) {
+            windows.get(i).view.setRenderMode(mode);
+        }
+    }
+
+    /**
+     * 更新第 index 个窗口（按层级从低到高）在模糊或马赛克模式下的画面
+     */
+    void setFrame(int index, int[] pixels, int width, int height) {
+        if (index < windows.size()) {
+            windows.get(index).view.setFrame(pixels, width, height);
+        }
+    }
+
+    private void setTrace(TouchTrace trace) {
+        // 回收的窗口再次添加时会设置
+        for (int i = 0; i < windows.size(); i++) {
+            windows.get(i).trace = trace;
+        }
+    }
+
+    /**
+     * 开始批量操作：之后的布局只做标记，每个窗口在 {@link #endBatch()} 时最多布局一次
+     */
+    void beginBatch() {
+        batching = true;
+    }
+
+    /**
+     * 结束批量操作，统一应用推迟的布局
+     */
+    void endBatch() {
+        batching = false;
+        for (int i = 0; i < windows.size(); i++) {
+            BlockerWindow window = windows.get(i);
+            if (window.layoutDeferred) {
+                window.layoutDeferred = false;
+                applyLayout(window);
+            }
+        }
+    }
+
+    int getWindowCount() {
+        return windows.size();
+    }
+
+    BlockerWindow getWindow(int index) {
+        return windows.get(index);
+    }
+
+    /**
+     * 添加一个遮挡窗，放在最上层
+     *
+     * @return 添加成功的窗口，失败时返回 null
+     */
+    BlockerWindow addWindow(int x, int y, int width, int height) {
+        BlockerWindow window = pool.poll();
+        if (window == null) {
+            window = createWindow();
+        }
+        window.place(x, y, width, height);
+        window.trace = trace;
+        window.view.setRenderMode(renderMode);
+        long start = SystemClock.elapsedRealtimeNanos();
+        if (!attach(window)) {
+            recycle(window);
+            return null;
+        }
+        windows.add(window);
+        RingLog.d(TAG, "Added window in {}us, count={}",
+                (SystemClock.elapsedRealtimeNanos() - start) / 1000, windows.size());
+        callback.onWindowsChanged();
+        return window;
+    }
+
+    /**
+     * 移除一个遮挡窗并回收
+     */
+    void removeWindow(BlockerWindow window) {
+        if (!windows.remove(window)) {
+            return;
+        }
+        detach(window);
+        recycle(window);
+        RingLog.d(TAG, "Removed window, count={}", windows.size());
+        callback.onWindowsChanged();
+    }
+
+    /**
+     * 调整窗口的层级，index 越大越靠上
+     */
+    void moveWindow(BlockerWindow window, int index) {
+        int from = windows.indexOf(window);
+        if (from < 0) {
+            return;
+        }
+        index = Math.max(0, Math.min(index, windows.size() - 1));
+        if (from == index) {
+            return;
+        }
+        windows.remove(from);
+        windows.add(index, window);
+        // WindowManager 按添加顺序决定层级，从变化位置开始依次重新添加
+        int first = Math.min(from, index);
+        for (int i = first; i < windows.size(); i++) {
+            detach(windows.get(i));
+        }
+        for (int i = first; i < windows.size(); i++) {
+            attach(windows.get(i));
+        }
+        callback.onWindowsChanged();
+    }
+
+    /**
+     * 设置单个窗口的边界并立即布局
+     */
+    void setWindowBounds(BlockerWindow window, int x, int y, int width, int height) {
+        window.cancelPending();
+        window.place(x, y, width, height);
+        applyLayout(window);
+    }
+
+    /**
+     * 设置或解除某个隐藏原因。隐藏的窗口仍然保留在 WindowManager 中，但不绘制也不接收触摸
+     */
+    void setHidden(int reason, boolean hidden) {
+        int old = hiddenReasons;
+        hiddenReasons = hidden ? old | reason : old & ~reason;
+        if ((old == 0) == (hiddenReasons == 0)) {
+            return;
+        }
+        for (int i = 0; i < windows.size(); i++) {
+            BlockerWindow window = windows.get(i);
+            window.cancelPending();
+            applyVisibility(window);
+            applyLayout(window);
+        }
+    }
+
+    boolean isHidden() {
+        return hiddenReasons != 0;
+    }
+
+    /**
+     * 整体应用一组窗口状态：数量不足时添加，多余的移除，其余每个窗口只做一次布局
+     */
+    void applyStates(List<WindowStateHelper.WindowState> states) {
+        while (windows.size() > states.size() && windows.size() > 1) {
+            BlockerWindow window = windows.remove(windows.size() - 1);
+            detach(window);
+            recycle(window);
+        }
+        for (int i = 0; i < states.size(); i++) {
+            WindowStateHelper.WindowState state = states.get(i);
+            if (i < windows.size()) {
+                BlockerWindow window = windows.get(i);
+                window.cancelPending();
+                window.place(state.x, state.y, state.width, state.height);
+                applyLayout(window);
+            } else {
+                addWindow(state.x, state.y, state.width, state.height);
+            }
+        }
+    }
+
+    /**
+     * 移除所有窗口，不触发回调
+     */
+    void removeAll() {
+        for (int i = windows.size() - 1; i >= 0; i--) {
+            BlockerWindow window = windows.get(i);
+            window.cancelPending();
+            detach(window);
+        }
+        windows.clear();
+        pool.clear();
+    }
+
+    /**
+     * 获取所有窗口当前的状态，用于持久化
+     */
+    List<WindowStateHelper.WindowState> getWindowStates() {
+        List<WindowStateHelper.WindowState> states = new ArrayList<>(windows.size());
+        for (int i = 0; i < windows.size(); i++) {
+            WindowManager.LayoutParams params = windows.get(i).params;
+            states.add(new WindowStateHelper.WindowState(params.width, params.height, params.x, params.y));
+        }
+        return states;
+    }
+
+    @Override
+    public void applyLayout(BlockerWindow window) {
+        if (batching) {
+            window.layoutDeferred = true;
+            return;
+        }
+        if (window.attached) {
+            Trace.beginSection("BlockerWindow#relayout");
+            windowManager.updateViewLayout(window.view, window.params);
+            Trace.endSection();
+
+            // 由触摸触发的布局才统计输入延迟和掉帧
+            long eventNanos = window.pendingEventNanos;
+            long frameNanos = eventNanos > 0 ? window.layoutCoalescer.getLastFrameTimeNanos() : 0;
+            metrics.recordRelayout(eventNanos, frameNanos, System.nanoTime());
+            window.pendingEventNanos = 0;
+            window.gestureRelayouts++;
+            callback.onWindowsChanged();
+        }
+    }
+
+    @Override
+    public void onTouchDown(BlockerWindow window) {
+        callback.onUserInteraction();
+    }
+
+    @Override
+    public void onDoubleTap(final BlockerWindow window) {
+        if (windows.size() == 1) {
+            callback.onLastWindowClosed();
+            return;
+        }
+        // 双击关闭该遮挡窗，等当前触摸事件分发结束后再移除
+        window.view.post(new Runnable() {
+            @Override
+            public void run() {
+                removeWindow(window);
+            }
+        });
+    }
+
+    @Override
+    public void onFling(BlockerWindow window, float velocityX, float velocityY) {
+        buildSnapTargets(window);
+        WindowManager.LayoutParams params = window.params;
+        if (window.fling.start(params.x, params.y, params.width, params.height,
+                velocityX, velocityY, snapTargets)) {
+            window.startFling();
+        }
+    }
+
+    /**
+     * 收集屏幕边缘、系统栏边界和其他窗口的边缘
+     */
+    private void buildSnapTargets(BlockerWindow exclude) {
+        snapTargets.clear();
+        if (displayConfig != null) {
+            snapTargets.addRect(0, 0, displayConfig.width, displayConfig.height);
+            snapTargets.addRect(displayConfig.insetLeft, displayConfig.insetTop,
+                    displayConfig.width - displayConfig.insetRight,
+                    displayConfig.height - displayConfig.insetBottom);
+        }
+        for (int i = 0; i < windows.size(); i++) {
+            BlockerWindow window = windows.get(i);
+            if (window != exclude) {
+                WindowManager.LayoutParams params = window.params;
+                snapTargets.addRect(params.x, params.y, params.x + params.width, params.y + params.height);
+            }
+        }
+        snapTargets.sort();
+    }
+
+    private BlockerWindow createWindow() {
+        long start = SystemClock.elapsedRealtimeNanos();
+        BlockerView view = new BlockerView(context);
+        // 纯色填充和模糊、马赛克的画面都覆盖整个视图且不透明，合成器无需与下层混合
+        view.setOpaqueSurface(true);
+        RingLog.d(TAG, "Created blocker view in {}us", (SystemClock.elapsedRealtimeNanos() - start) / 1000);
+
+        WindowManager.LayoutParams params = new WindowManager.LayoutParams(
+                WindowManager.LayoutParams.WRAP_CONTENT,
+                WindowManager.LayoutParams.WRAP_CONTENT,
+                Build.VERSION.SDK_INT >= Build.VERSION_CODES.O ?
+                        WindowManager.LayoutParams.TYPE_APPLICATION_OVERLAY :
+                        WindowManager.LayoutParams.TYPE_PHONE,
+                WindowManager.LayoutParams.FLAG_NOT_FOCUSABLE,
+                // 窗口表面的格式与视图一致
+                view.isOpaqueSurface() ? PixelFormat.OPAQUE : PixelFormat.TRANSLUCENT
+        );
+        params.gravity = Gravity.TOP | Gravity.START; // 使用绝对坐标
+
+        float density = context.getResources().getDisplayMetrics().density;
+        FlingStepper fling = new FlingStepper(MIN_FLING_VELOCITY_DP * density, (int) (SNAP_DISTANCE_DP * density));
+        // 停止点与拖动使用同一份约束
+        fling.setConstraints(constraints);
+        return new BlockerWindow(nextWindowId++, context, view, params, frameSource, this, handleSize, metrics, fling,
+                constraints);
+    }
+
+    private void applyVisibility(BlockerWindow window) {
+        if (hiddenReasons != 0) {
+            window.view.setVisibility(View.GONE);
+            window.params.flags |= WindowManager.LayoutParams.FLAG_NOT_TOUCHABLE;
+        } else {
+            window.view.setVisibility(View.VISIBLE);
+            window.params.flags &= ~WindowManager.LayoutParams.FLAG_NOT_TOUCHABLE;
+        }
+    }
+
+    private boolean attach(BlockerWindow window) {
+        applyVisibility(window);
+        try {
+            windowManager.addView(window.view, window.params);
+            window.attached = true;
+            return true;
+        } catch (Exception e) {
+            RingLog.e(TAG, "Failed to add view to window manager", e);
+            // 尝试使用不同的窗口类型
+            window.params.type = WindowManager.LayoutParams.TYPE_PHONE;
+            try {
+                windowManager.addView(window.view, window.params);
+                window.attached = true;
+                RingLog.d(TAG, "Added view to window manager with TYPE_PHONE successfully");
+                return true;
+            } catch (Exception e2) {
+                RingLog.e(TAG, "Failed to add view to window manager even with TYPE_PHONE", e2);
+                return false;
+            }
+        }
+    }
+
+    private void detach(BlockerWindow window) {
+        if (window.attached) {
+            windowManager.removeViewImmediate(window.view);
+            window.attached = false;
+        }
+    }
+
+    private void recycle(BlockerWindow window) {
+        window.cancelPending();
+        window.pendingEventNanos = 0;
+        window.layoutDeferred = false;
+        window.resetGesture();
+        // 丢弃旧位置的画面
+        window.view.setRenderMode(BlockerView.MODE_SOLID);
+        if (pool.size() < MAX_POOL_SIZE) {
+            pool.push(window);
+        }
+    }
+}
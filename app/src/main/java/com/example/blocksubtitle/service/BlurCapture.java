@@ -0,0 +1,456 @@
+package com.example.blocksubtitle.service;
+
+import android.graphics.PixelFormat;
+import android.hardware.display.DisplayManager;
+import android.hardware.display.VirtualDisplay;
+import android.media.Image;
+import android.media.ImageReader;
+import android.media.projection.MediaProjection;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Looper;
+import android.os.Process;
+import android.os.SystemClock;
+import android.view.WindowManager;
+
+import com.example.blocksubtitle.util.BoxBlur;
+import com.example.blocksubtitle.util.RingLog;
+import com.example.blocksubtitle.view.BlockerView;
+
+import java.nio.ByteBuffer;
+
+/**
+ * 模糊和马赛克模式的画面来源：通过 MediaProjection 以低分辨率录制屏幕，
+ * 在后台线程为每个遮挡窗生成一帧低分辨率图像（缩小 → 盒式模糊），由视图放大绘制。
+ *
+ * 录制的画面包含遮挡窗本身，拿不到窗口正下方的像素，所以只读取窗口上下相邻的画面，
+ * 用上下边缘插值填满窗口所在的行后再模糊。结果保留画面的颜色和明暗，但不会包含字幕。
+ *
+ * 帧率随画面自适应：画面变化时按最短间隔处理，静止时逐步拉长间隔，处理耗时长时也相应拉长。
+ * 两次处理之间摘掉虚拟显示器的输出面，系统不再为录制合成画面。缓冲区只在尺寸变化时重新分配。
+ */
+class BlurCapture {
+
+    private static final String TAG = "BlurCapture";
+
+    // 录制分辨率为屏幕的 1/DOWNSCALE
+    private static final int DOWNSCALE = 4;
+
+    // 模糊前再缩小的倍数、模糊半径和遍数，修改时同步 BoxBlurBenchmark 中的参数
+    private static final int BLUR_FACTOR = 2;
+    private static final int BLUR_RADIUS = 2;
+    private static final int BLUR_PASSES = 2;
+
+    // 马赛克每一块的边长（录制像素），屏幕上为 DOWNSCALE * PIXEL_FACTOR 像素
+    private static final int PIXEL_FACTOR = 4;
+
+    // 窗口上下各读取的行数为窗口高度的一半，至少为该值
+    private static final int MIN_MARGIN = 2;
+
+    // 两次处理之间的最短和最长间隔
+    private static final long MIN_INTERVAL_MS = 66;
+    private static final long MAX_INTERVAL_MS = 1000;
+
+    // 平均每个像素的绿色通道变化小于该值时视为画面静止
+    private static final int STILL_THRESHOLD = 2;
+
+    // 处理耗时最多占后台线程时间的 1/LOAD_FACTOR
+    private static final int LOAD_FACTOR = 4;
+
+    /**
+     * 输出帧和停止通知，在主线程调用
+     */
+    interface Listener {
+        /**
+         * 第 index 个窗口（按层级从低到高）的新一帧，pixels 在返回后会被复用
+         */
+        void onBlurFrame(int index, int[] pixels, int width, int height);
+
+        /**
+         * 录制被系统或用户终止
+         */
+        void onBlurStopped();
+    }
+
+    /**
+     * 一个窗口的输出帧。后台线程写入后置 pending，主线程交给视图后清除，清除前不会再次写入
+     */
+    private static class Frame {
+        int[] pixels = new int[0];
+        int width;
+        int height;
+        volatile boolean pending;
+    }
+
+    private final Listener listener;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    private MediaProjection projection;
+    private HandlerThread captureThread;
+    private Handler captureHandler;
+
+    // 渲染模式，BlockerView.MODE_BLUR 或 MODE_PIXELATE
+    private volatile int mode;
+
+    // 窗口边界（屏幕像素，每个窗口依次为 x、y、宽、高），主线程写入，后台线程读取
+    private final Object regionLock = new Object();
+    private int[] regions = new int[16];
+    private int regionCount;
+
+    // 输出帧，只由后台线程扩容，主线程读取引用
+    private volatile Frame[] frames = new Frame[0];
+
+    // 以下字段只在后台线程访问
+    private Handler threadHandler;
+    private VirtualDisplay virtualDisplay;
+    private ImageReader imageReader;
+    private int screenWidth;
+    private int screenHeight;
+    private final BoxBlur kernel = new BoxBlur();
+    private int[] work = new int[16];
+    private int[] region = new int[0];
+    private int[] small = new int[0];
+    private long intervalMs = MIN_INTERVAL_MS;
+    private boolean paused;
+
+    private final Runnable deliverRunnable = new Runnable() {
+        @Override
+        public void run() {
+            if (projection == null) {
+                return;
+            }
+            Frame[] current = frames;
+            for (int i = 0; i < current.length; i++) {
+                Frame frame = current[i];
+                if (frame.pending) {
+                    listener.onBlurFrame(i, frame.pixels, frame.width, frame.height);
+                    frame.pending = false;
+                }
+            }
+        }
+    };
+
+    // 间隔结束后重新接上输出面，等待下一帧
+    private final Runnable resumeRunnable = new Runnable() {
+        @Override
+        public void run() {
+            if (virtualDisplay != null && imageReader != null && !paused) {
+                virtualDisplay.setSurface(imageReader.getSurface());
+            }
+        }
+    };
+
+    private final MediaProjection.Callback projectionCallback = new MediaProjection.Callback() {
+        @Override
+        public void onStop() {
+            mainHandler.post(new Runnable() {
+                @Override
+                public void run() {
+                    if (BlurCapture.this.projection != null) {
+                        stop();
+                        listener.onBlurStopped();
+                    }
+                }
+            });
+        }
+    };
+
+    private final ImageReader.OnImageAvailableListener imageListener = new ImageReader.OnImageAvailableListener() {
+        @Override
+        public void onImageAvailable(ImageReader reader) {
+            Image image = reader.acquireLatestImage();
+            if (image == null) {
+                return;
+            }
+            if (paused) {
+                image.close(); // 暂停前已经在途的帧
+                return;
+            }
+            long start = SystemClock.uptimeMillis();
+            boolean changed;
+            try {
+                changed = process(image);
+            } finally {
+                image.close();
+            }
+            long elapsed = SystemClock.uptimeMillis() - start;
+            intervalMs = changed ? MIN_INTERVAL_MS : Math.min(intervalMs * 2, MAX_INTERVAL_MS);
+            intervalMs = Math.max(intervalMs, elapsed * LOAD_FACTOR);
+            if (virtualDisplay != null) {
+                virtualDisplay.setSurface(null);
+            }
+            threadHandler.postDelayed(resumeRunnable, intervalMs);
+        }
+    };
+
+    BlurCapture(Listener listener) {
+        this.listener = listener;
+    }
+
+    boolean isRunning() {
+        return projection != null;
+    }
+
+    void setMode(int mode) {
+        this.mode = mode;
+    }
+
+    /**
+     * 暂停或恢复录制。暂停时摘掉虚拟显示器的输出面并取消等待中的下一帧，授权保留，恢复时无需重新请求
+     */
+    void setPaused(final boolean paused) {
+        if (projection == null) {
+            return;
+        }
+        captureHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                BlurCapture.this.paused = paused;
+                threadHandler.removeCallbacks(resumeRunnable);
+                if (virtualDisplay == null) {
+                    return;
+                }
+                if (paused) {
+                    virtualDisplay.setSurface(null);
+                } else {
+                    intervalMs = MIN_INTERVAL_MS;
+                    virtualDisplay.setSurface(imageReader.getSurface());
+                }
+            }
+        });
+    }
+
+    /**
+     * 开始录制，projection 由调用方通过用户授权获得，停止时一并结束
+     */
+    void start(MediaProjection projection, int screenWidth, int screenHeight, int densityDpi, int mode) {
+        stop();
+        this.projection = projection;
+        this.mode = mode;
+        frames = new Frame[0];
+
+        captureThread = new HandlerThread(TAG, Process.THREAD_PRIORITY_BACKGROUND);
+        captureThread.start();
+        final Handler handler = new Handler(captureThread.getLooper());
+        captureHandler = handler;
+        projection.registerCallback(projectionCallback, handler);
+
+        final MediaProjection current = projection;
+        final int width = screenWidth;
+        final int height = screenHeight;
+        final int dpi = densityDpi;
+        handler.post(new Runnable() {
+            @Override
+            public void run() {
+                threadHandler = handler;
+                intervalMs = MIN_INTERVAL_MS;
+                paused = false;
+                createReader(width, height);
+                virtualDisplay = current.createVirtualDisplay(TAG, imageReader.getWidth(), imageReader.getHeight(),
+                        Math.max(1, dpi / DOWNSCALE), DisplayManager.VIRTUAL_DISPLAY_FLAG_AUTO_MIRROR,
+                        imageReader.getSurface(), null, handler);
+            }
+        });
+    }
+
+    /**
+     * 屏幕尺寸变化，例如旋转或折叠屏展开，按新尺寸继续录制
+     */
+    void resize(final int screenWidth, final int screenHeight, final int densityDpi) {
+        if (projection == null) {
+            return;
+        }
+        captureHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                if (virtualDisplay == null) {
+                    return;
+                }
+                ImageReader old = imageReader;
+                createReader(screenWidth, screenHeight);
+                virtualDisplay.resize(imageReader.getWidth(), imageReader.getHeight(),
+                        Math.max(1, densityDpi / DOWNSCALE));
+                threadHandler.removeCallbacks(resumeRunnable);
+                virtualDisplay.setSurface(paused ? null : imageReader.getSurface());
+                old.close();
+            }
+        });
+    }
+
+    void stop() {
+        if (projection == null) {
+            return;
+        }
+        MediaProjection current = projection;
+        projection = null;
+        mainHandler.removeCallbacks(deliverRunnable);
+        current.unregisterCallback(projectionCallback);
+        current.stop();
+        // 虚拟显示器和 ImageReader 都只在后台线程访问，在那里释放，避免与正在处理的帧冲突
+        final Handler handler = captureHandler;
+        handler.post(new Runnable() {
+            @Override
+            public void run() {
+                handler.removeCallbacks(resumeRunnable);
+                if (virtualDisplay != null) {
+                    virtualDisplay.release();
+                    virtualDisplay = null;
+                }
+                if (imageReader != null) {
+                    imageReader.close();
+                    imageReader = null;
+                }
+            }
+        });
+        captureThread.quitSafely();
+        captureThread = null;
+        captureHandler = null;
+    }
+
+    /**
+     * 更新要处理的窗口边界，窗口隐藏时不处理任何窗口
+     */
+    void setRegions(BlockerWindowManager blockers) {
+        synchronized (regionLock) {
+            int count = blockers.isHidden() ? 0 : blockers.getWindowCount();
+            if (regions.length < count * 4) {
+                regions = new int[count * 8];
+            }
+            for (int i = 0; i < count; i++) {
+                WindowManager.LayoutParams params = blockers.getWindow(i).params;
+                regions[i * 4] = params.x;
+                regions[i * 4 + 1] = params.y;
+                regions[i * 4 + 2] = params.width;
+                regions[i * 4 + 3] = params.height;
+            }
+            regionCount = count;
+        }
+    }
+
+    private void createReader(int width, int height) {
+        screenWidth = width;
+        screenHeight = height;
+        imageReader = ImageReader.newInstance(Math.max(1, width / DOWNSCALE), Math.max(1, height / DOWNSCALE),
+                PixelFormat.RGBA_8888, 2);
+        imageReader.setOnImageAvailableListener(imageListener, threadHandler);
+        RingLog.d(TAG, "Capturing at {}x{}", imageReader.getWidth(), imageReader.getHeight());
+    }
+
+    /**
+     * 为每个窗口生成一帧
+     *
+     * @return 是否有窗口的画面发生了明显变化
+     */
+    private boolean process(Image image) {
+        int count;
+        synchronized (regionLock) {
+            count = regionCount;
+            if (work.length < count * 4) {
+                work = new int[regions.length];
+            }
+            System.arraycopy(regions, 0, work, 0, count * 4);
+        }
+        if (frames.length < count) {
+            Frame[] grown = new Frame[count];
+            System.arraycopy(frames, 0, grown, 0, frames.length);
+            for (int i = frames.length; i < count; i++) {
+                grown[i] = new Frame();
+            }
+            frames = grown;
+        }
+
+        Image.Plane plane = image.getPlanes()[0];
+        ByteBuffer buffer = plane.getBuffer();
+        boolean changed = false;
+        boolean delivered = false;
+        for (int i = 0; i < count; i++) {
+            Frame frame = frames[i];
+            if (frame.pending) {
+                continue; // 主线程还没取走上一帧
+            }
+            changed |= processRegion(buffer, plane.getRowStride(), plane.getPixelStride(),
+                    image.getWidth(), image.getHeight(), i, frame);
+            frame.pending = true;
+            delivered = true;
+        }
+        if (delivered) {
+            mainHandler.post(deliverRunnable);
+        }
+        return changed;
+    }
+
+    /**
+     * 读取窗口上下相邻的画面，填满窗口所在的行，缩小并模糊后把窗口所在的行写入输出帧
+     *
+     * @return 输出与上一帧相比是否发生了明显变化
+     */
+    private boolean processRegion(ByteBuffer buffer, int rowStride, int pixelStride,
+                                  int sampleWidth, int sampleHeight, int index, Frame frame) {
+        int base = index * 4;
+        int left = clamp(work[base] * sampleWidth / screenWidth, 0, sampleWidth - 1);
+        int right = clamp(ceilDiv((work[base] + work[base + 2]) * sampleWidth, screenWidth), left + 1, sampleWidth);
+        int bandTop = clamp(work[base + 1] * sampleHeight / screenHeight, 0, sampleHeight - 1);
+        int bandBottom = clamp(ceilDiv((work[base + 1] + work[base + 3]) * sampleHeight, screenHeight),
+                bandTop + 1, sampleHeight);
+        int margin = Math.max(MIN_MARGIN, (bandBottom - bandTop) / 2);
+        int top = Math.max(0, bandTop - margin);
+        int bottom = Math.min(sampleHeight, bandBottom + margin);
+
+        int width = right - left;
+        int height = bottom - top;
+        if (region.length < width * height) {
+            region = new int[width * height];
+        }
+        for (int y = 0; y < height; y++) {
+            int in = (top + y) * rowStride + left * pixelStride;
+            int out = y * width;
+            for (int x = 0; x < width; x++) {
+                int r = buffer.get(in) & 0xFF;
+                int g = buffer.get(in + 1) & 0xFF;
+                int b = buffer.get(in + 2) & 0xFF;
+                region[out + x] = 0xFF000000 | r << 16 | g << 8 | b;
+                in += pixelStride;
+            }
+        }
+        BoxBlur.fillRows(region, width, height, bandTop - top, bandBottom - top);
+
+        int factor = mode == BlockerView.MODE_PIXELATE ? PIXEL_FACTOR : BLUR_FACTOR;
+        int smallWidth = BoxBlur.scaledSize(width, factor);
+        int smallHeight = BoxBlur.scaledSize(height, factor);
+        if (small.length < smallWidth * smallHeight) {
+            small = new int[smallWidth * smallHeight];
+        }
+        BoxBlur.downscale(region, width, height, factor, small);
+        if (mode != BlockerView.MODE_PIXELATE) {
+            kernel.blur(small, smallWidth, smallHeight, BLUR_RADIUS, BLUR_PASSES);
+        }
+
+        // 只输出窗口所在的行
+        int outTop = Math.min((bandTop - top) / factor, smallHeight - 1);
+        int outBottom = clamp(ceilDiv(bandBottom - top, factor), outTop + 1, smallHeight);
+        int outHeight = outBottom - outTop;
+        int size = smallWidth * outHeight;
+        boolean resized = frame.width != smallWidth || frame.height != outHeight;
+        if (frame.pixels.length < size) {
+            frame.pixels = new int[size];
+        }
+        long difference = 0;
+        int[] pixels = frame.pixels;
+        for (int i = 0, in = outTop * smallWidth; i < size; i++, in++) {
+            int p = small[in];
+            difference += Math.abs(((p >> 8) & 0xFF) - ((pixels[i] >> 8) & 0xFF));
+            pixels[i] = p;
+        }
+        frame.width = smallWidth;
+        frame.height = outHeight;
+        return resized || difference >= (long) STILL_THRESHOLD * size;
+    }
+
+    private static int clamp(int value, int min, int max) {
+        return Math.max(min, Math.min(max, value));
+    }
+
+    private static int ceilDiv(int a, int b) {
+        return (a + b - 1) / b;
+    }
+}
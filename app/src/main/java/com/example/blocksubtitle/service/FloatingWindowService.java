@@ -3,68 +3,526 @@ package com.example.blocksubtitle.service;
 import android.app.Notification;
 import android.app.NotificationChannel;
 import android.app.NotificationManager;
+import android.app.PendingIntent;
 import android.app.Service;
 import android.content.Intent;
+import android.content.res.Configuration;
+import android.hardware.display.DisplayManager;
 import android.content.pm.ServiceInfo;
-import android.graphics.PixelFormat;
+import android.media.projection.MediaProjection;
+import android.media.projection.MediaProjectionManager;
 import android.os.Build;
+import android.os.Handler;
 import android.os.IBinder;
-import android.util.Log;
-import android.view.GestureDetector;
-import android.view.Gravity;
-import android.view.LayoutInflater;
-import android.view.MotionEvent;
-import android.view.View;
+import android.os.Looper;
+import android.os.Process;
+import android.os.SystemClock;
+import android.os.Trace;
+import android.view.Choreographer;
+import android.view.Display;
 import android.view.WindowManager;
 
 import androidx.core.app.NotificationCompat;
 
 import com.example.blocksubtitle.R;
+import com.example.blocksubtitle.activity.LauncherActivity;
+import com.example.blocksubtitle.util.ChoreographerFrameSource;
+import com.example.blocksubtitle.util.DisplayConfig;
+import com.example.blocksubtitle.util.ForegroundAppDetector;
+import com.example.blocksubtitle.util.RingLog;
+import com.example.blocksubtitle.util.StateCheckpointer;
+import com.example.blocksubtitle.util.TouchTrace;
 import com.example.blocksubtitle.util.WindowStateHelper;
+import com.example.blocksubtitle.view.BlockerView;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.List;
 
 /**
  * 前台服务，用于管理悬浮窗的生命周期。
  */
-public class FloatingWindowService extends Service {
+public class FloatingWindowService extends Service
+        implements BlockerWindowManager.Callback, ForegroundAppDetector.Listener, SubtitleSync.Listener,
+        ScreenSampler.Listener, BlurCapture.Listener, IdleMonitor.Listener {
 
     private static final String TAG = "FloatingWindowService";
     private static final String CHANNEL_ID = "FloatingWindowChannel";
     private static final int NOTIFICATION_ID = 1;
     private static final String CHANNEL_NAME = "悬浮窗服务";
 
+    // 通知栏操作
+    public static final String ACTION_ADD_WINDOW = "com.example.blocksubtitle.action.ADD_WINDOW";
+    public static final String ACTION_LOAD_SUBTITLE = "com.example.blocksubtitle.action.LOAD_SUBTITLE";
+    public static final String ACTION_SUBTITLE_EARLIER = "com.example.blocksubtitle.action.SUBTITLE_EARLIER";
+    public static final String ACTION_SUBTITLE_LATER = "com.example.blocksubtitle.action.SUBTITLE_LATER";
+    public static final String ACTION_STOP_SUBTITLE = "com.example.blocksubtitle.action.STOP_SUBTITLE";
+    public static final String ACTION_TOGGLE_SUBTITLE_PAUSE = "com.example.blocksubtitle.action.TOGGLE_SUBTITLE_PAUSE";
+    // 把字幕区间对齐到当前时刻，EXTRA_CUE_INDEX 指定文件中的字幕序号（从 0 开始），缺省时取离当前位置最近的区间
+    public static final String ACTION_SUBTITLE_RESYNC = "com.example.blocksubtitle.action.SUBTITLE_RESYNC";
+    public static final String EXTRA_CUE_INDEX = "cue_index";
+    public static final String ACTION_START_AUTO_POSITION = "com.example.blocksubtitle.action.START_AUTO_POSITION";
+    public static final String ACTION_TOGGLE_STANDBY = "com.example.blocksubtitle.action.TOGGLE_STANDBY";
+    public static final String ACTION_START_BLUR = "com.example.blocksubtitle.action.START_BLUR";
+    public static final String ACTION_STOP_BLUR = "com.example.blocksubtitle.action.STOP_BLUR";
+
+    // 自动化命令，命令文本放在 EXTRA_OPS 中，格式见 CommandBatch
+    public static final String ACTION_BATCH = "com.example.blocksubtitle.action.BATCH";
+    public static final String EXTRA_OPS = "ops";
+
+    // 屏幕录制授权的结果
+    public static final String EXTRA_RESULT_CODE = "result_code";
+    public static final String EXTRA_RESULT_DATA = "result_data";
+
+    // 模糊或马赛克模式，取值为 BlockerView.MODE_BLUR 或 MODE_PIXELATE
+    public static final String EXTRA_RENDER_MODE = "render_mode";
+
+    // 启动器被打开或磁贴被点击的时间（System.nanoTime），以及启动入口的名称，用于统计冷启动和待机切换耗时
+    public static final String EXTRA_LAUNCH_TIME_NANOS = "launch_time_nanos";
+    public static final String EXTRA_LAUNCH_ENTRY = "launch_entry";
+
+    // 定义边缘热区的大小，例如 30dp
+    private static final int HANDLE_SIZE_DP = 30;
+
+    // 新增窗口相对上一个窗口的偏移
+    private static final int NEW_WINDOW_OFFSET_DP = 24;
+
+    // 触摸录制文件保存的目录（位于应用私有目录下）
+    private static final String TRACE_DIR = "traces";
+
+    // 每次调整字幕偏移的步长
+    private static final long SUBTITLE_OFFSET_STEP_MS = 500;
+
     private WindowManager windowManager;
-    private View floatingView;
-    private WindowManager.LayoutParams params;
-    
-    // 手势检测器
-    private GestureDetector gestureDetector;
+
+    // 当前显示配置，只在配置变化时更新
+    private DisplayConfig displayConfig;
+
+    // 所有遮挡窗
+    private BlockerWindowManager blockers;
     
     // 状态保存助手
     private WindowStateHelper windowStateHelper;
 
+    // 调整过程中定期保存状态
+    private StateCheckpointer checkpointer;
+
+    // 前台应用检测，用于按应用切换配置档
+    private ForegroundAppDetector foregroundAppDetector;
+
+    // 当前使用的配置档
+    private String currentProfile = WindowStateHelper.GLOBAL_PROFILE;
+
+    // 按字幕文件控制显示
+    private SubtitleSync subtitleSync;
+
+    // 自动定位字幕条带
+    private ScreenSampler screenSampler;
+
+    // 模糊和马赛克模式的画面来源
+    private BlurCapture blurCapture;
+
+    // 自动化命令接口
+    private AutomationController automation;
+
+    // 没有播放媒体或屏幕关闭时休眠
+    private IdleMonitor idleMonitor;
+
+    // 性能统计，可通过 dumpsys 查看
+    private final OverlayMetrics metrics = new OverlayMetrics();
+
+    // 折叠屏展开、分辨率切换等不一定触发 onConfigurationChanged，同时监听显示器变化
+    private final DisplayManager.DisplayListener displayListener = new DisplayManager.DisplayListener() {
+        @Override
+        public void onDisplayAdded(int displayId) {
+        }
+
+        @Override
+        public void onDisplayRemoved(int displayId) {
+        }
+
+        @Override
+        public void onDisplayChanged(int displayId) {
+            if (displayId == Display.DEFAULT_DISPLAY) {
+                onDisplayConfigChanged();
+            }
+        }
+    };
+
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    // 窗口全部添加完成的时间
+    private long windowsAttachedNanos;
+
+    // 冷启动的起点和入口，起点为 0 表示本次创建不统计
+    private long startNanos;
+    private String startEntry;
+
+    // 通知、前台服务和前台应用检测等初始化是否已经完成
+    private boolean startupFinished;
+
+    // 进程中是否已经创建过服务，只有第一次创建可以从进程启动开始计时
+    private static boolean createdInProcess;
+
+    // 窗口添加后的第一帧：帧回调在绘制之前执行，再 post 一次即在绘制之后
+    private final Choreographer.FrameCallback firstFrameCallback = new Choreographer.FrameCallback() {
+        @Override
+        public void doFrame(long frameTimeNanos) {
+            mainHandler.post(firstFrameRunnable);
+        }
+    };
+
+    private final Runnable firstFrameRunnable = new Runnable() {
+        @Override
+        public void run() {
+            if (startNanos > 0) {
+                long attach = windowsAttachedNanos - startNanos;
+                long firstFrame = System.nanoTime() - startNanos;
+                metrics.coldStart.record(attach);
+                metrics.firstFrame.record(firstFrame);
+                StartupHistory.record(FloatingWindowService.this, attach, firstFrame, startEntry);
+                startNanos = 0;
+            }
+            finishStartup();
+        }
+    };
+
+    // 待机切换从收到操作开始计时，到切换后的第一帧绘制完成为止；0 表示没有在计时
+    private long standbyToggleStartNanos;
+    // 当前操作的开始时间：磁贴带有点击时刻，通知操作从服务收到 Intent 开始
+    private long actionStartNanos;
+
+    private final Choreographer.FrameCallback standbyFrameCallback = new Choreographer.FrameCallback() {
+        @Override
+        public void doFrame(long frameTimeNanos) {
+            mainHandler.post(standbyFrameRunnable);
+        }
+    };
+
+    private final Runnable standbyFrameRunnable = new Runnable() {
+        @Override
+        public void run() {
+            long elapsed = System.nanoTime() - standbyToggleStartNanos;
+            metrics.standbyToggle.record(elapsed);
+            RingLog.d(TAG, "Standby toggled in {}us", elapsed / 1000);
+            standbyToggleStartNanos = 0;
+        }
+    };
+
+    // 供快速设置磁贴查询的运行状态
+    private static volatile boolean running;
+    private static volatile boolean standby;
+    private static volatile int renderMode = BlockerView.MODE_SOLID;
+
     @Override
     public void onCreate() {
         super.onCreate();
-        Log.d(TAG, "Service created");
+        RingLog.d(TAG, "Service created");
+        running = true;
+        // 启动器或磁贴已经预读过时直接命中，否则从这里开始在后台加载
         windowStateHelper = new WindowStateHelper(this);
-        
+
+        // 直接启动服务（例如通过 adb）时没有启动时间，第一次创建从进程启动开始计时
+        if (!createdInProcess && Build.VERSION.SDK_INT >= Build.VERSION_CODES.N) {
+            startNanos = System.nanoTime()
+                    - (SystemClock.uptimeMillis() - Process.getStartUptimeMillis()) * 1_000_000L;
+            startEntry = "process";
+        }
+        createdInProcess = true;
+
+        // 先添加窗口，通知和其余初始化等第一帧绘制之后再进行，仍在前台服务要求的时限之内
+        windowManager = (WindowManager) getSystemService(WINDOW_SERVICE);
+        displayConfig = DisplayConfig.current(this, windowManager);
+        Trace.beginSection("FloatingWindowService#createFloatingViews");
+        createFloatingViews();
+        Trace.endSection();
+        windowsAttachedNanos = System.nanoTime();
+        Choreographer.getInstance().postFrameCallback(firstFrameCallback);
+
+        foregroundAppDetector = new ForegroundAppDetector(this, this);
+        subtitleSync = new SubtitleSync(this, this);
+        screenSampler = new ScreenSampler(this);
+        blurCapture = new BlurCapture(this);
+        idleMonitor = new IdleMonitor(this, this);
+    }
+
+    /**
+     * 窗口出现后的初始化：创建通知渠道、进入前台、监听显示器、开始检测前台应用和刷新磁贴。
+     * 需要通知的操作可能在第一帧之前到达，这些操作会先调用本方法
+     */
+    private void finishStartup() {
+        if (startupFinished) {
+            return;
+        }
+        startupFinished = true;
+        long start = System.nanoTime();
+        Trace.beginSection("FloatingWindowService#finishStartup");
         createNotificationChannel();
-        startForeground(NOTIFICATION_ID, createNotification(), 
+        startForeground(NOTIFICATION_ID, createNotification(),
                 ServiceInfo.FOREGROUND_SERVICE_TYPE_SPECIAL_USE);
 
-        windowManager = (WindowManager) getSystemService(WINDOW_SERVICE);
-        createFloatingView();
+        DisplayManager displayManager = (DisplayManager) getSystemService(DISPLAY_SERVICE);
+        displayManager.registerDisplayListener(displayListener, mainHandler);
+        // 窗口添加之后显示配置可能已经变化
+        onDisplayConfigChanged();
+        foregroundAppDetector.start();
+        idleMonitor.start();
+        StandbyTileService.requestUpdate(this);
+        Trace.endSection();
+        metrics.deferredStartup.record(System.nanoTime() - start);
+    }
+
+    @Override
+    public void onConfigurationChanged(Configuration newConfig) {
+        super.onConfigurationChanged(newConfig);
+        onDisplayConfigChanged();
+    }
+
+    /**
+     * 显示配置可能已改变：先把当前布局保存到旧配置下，再整体应用新配置下的布局，只触发一次重新布局
+     */
+    private void onDisplayConfigChanged() {
+        if (blockers == null) {
+            return;
+        }
+        DisplayConfig config = DisplayConfig.current(this, windowManager);
+        if (config.key.equals(displayConfig.key)) {
+            displayConfig = config; // 系统栏边距可能变化
+            blockers.setDisplayConfig(config);
+            blockers.constrainAll();
+            return;
+        }
+        long start = SystemClock.elapsedRealtimeNanos();
+        checkpointer.flush();
+        displayConfig = config;
+        blockers.setDisplayConfig(config);
+        blurCapture.resize(config.width, config.height, config.densityDpi);
+        List<WindowStateHelper.WindowState> states =
+                windowStateHelper.loadWindowStates(currentProfile, config);
+        if (states != null) {
+            blockers.applyStates(states);
+        } else {
+            // 沿用旧配置下的布局，超出新屏幕的窗口拉回来
+            blockers.constrainAll();
+        }
+        RingLog.d(TAG, "Display changed to {} in {}us", config.key,
+                (SystemClock.elapsedRealtimeNanos() - start) / 1000);
     }
 
     @Override
     public int onStartCommand(Intent intent, int flags, int startId) {
-        Log.d(TAG, "Service started");
+        long receivedNanos = System.nanoTime();
+        RingLog.d(TAG, "Service started");
+        if (intent != null) {
+            // 本次启动创建了服务且还没有到第一帧时，改为从点击启动器或磁贴开始计时
+            long launchNanos = intent.getLongExtra(EXTRA_LAUNCH_TIME_NANOS, 0);
+            if (launchNanos > 0 && launchNanos < windowsAttachedNanos && !startupFinished) {
+                startNanos = launchNanos;
+                startEntry = intent.getStringExtra(EXTRA_LAUNCH_ENTRY);
+            }
+            if (intent.getAction() != null) {
+                actionStartNanos = launchNanos > 0 && launchNanos < receivedNanos ? launchNanos : receivedNanos;
+                // 通知、磁贴和菜单的操作都说明用户正在使用，先从休眠中唤醒
+                idleMonitor.onUserActivity();
+                handleAction(intent);
+            }
+        }
+        // 用户可能刚刚授予了使用情况访问权限，每次启动都尝试开始检测；第一次检测在第一帧之后开始
+        if (startupFinished && !idleMonitor.isSleeping()) {
+            foregroundAppDetector.start();
+        }
         return START_NOT_STICKY; // 不自动重启服务
     }
 
+    /**
+     * 处理通知栏等发来的操作
+     */
+    private void handleAction(Intent intent) {
+        switch (intent.getAction()) {
+            case ACTION_ADD_WINDOW:
+                addWindow();
+                break;
+            case ACTION_LOAD_SUBTITLE:
+                if (intent.getData() != null) {
+                    subtitleSync.load(intent.getData());
+                }
+                break;
+            case ACTION_SUBTITLE_EARLIER:
+                subtitleSync.adjustOffset(SUBTITLE_OFFSET_STEP_MS);
+                updateNotification();
+                break;
+            case ACTION_SUBTITLE_LATER:
+                subtitleSync.adjustOffset(-SUBTITLE_OFFSET_STEP_MS);
+                updateNotification();
+                break;
+            case ACTION_STOP_SUBTITLE:
+                subtitleSync.stop();
+                updateNotification();
+                break;
+            case ACTION_TOGGLE_SUBTITLE_PAUSE:
+                if (subtitleSync.isPaused()) {
+                    subtitleSync.resume();
+                } else {
+                    subtitleSync.pause();
+                }
+                updateNotification();
+                break;
+            case ACTION_SUBTITLE_RESYNC:
+                if (intent.hasExtra(EXTRA_CUE_INDEX)) {
+                    subtitleSync.resyncToCue(intent.getIntExtra(EXTRA_CUE_INDEX, 0));
+                } else {
+                    subtitleSync.resyncToNearestCue();
+                }
+                break;
+            case ACTION_TOGGLE_STANDBY:
+                setStandby(!standby, actionStartNanos);
+                break;
+            case ACTION_BATCH:
+                // Intent 无法识别调用方，只在开启自动化后接受
+                if (automation != null && automation.isEnabled()) {
+                    automation.applyBatch(intent.getStringExtra(EXTRA_OPS));
+                } else {
+                    RingLog.w(TAG, "Automation is disabled, ignoring batch");
+                }
+                break;
+            case ACTION_START_BLUR:
+                startBlur(intent.getIntExtra(EXTRA_RESULT_CODE, 0),
+                        (Intent) intent.getParcelableExtra(EXTRA_RESULT_DATA),
+                        intent.getIntExtra(EXTRA_RENDER_MODE, BlockerView.MODE_BLUR));
+                break;
+            case ACTION_STOP_BLUR:
+                stopBlur();
+                break;
+            case ACTION_START_AUTO_POSITION:
+                startAutoPosition(intent.getIntExtra(EXTRA_RESULT_CODE, 0),
+                        (Intent) intent.getParcelableExtra(EXTRA_RESULT_DATA));
+                break;
+        }
+    }
+
+    public static boolean isRunning() {
+        return running;
+    }
+
+    public static boolean isStandby() {
+        return standby;
+    }
+
+    public static int getRenderMode() {
+        return renderMode;
+    }
+
+    /**
+     * 进入或退出待机：窗口保留在 WindowManager 中，只是隐藏且不接收触摸，
+     * 恢复显示只需一次布局，不需要重新启动服务和创建窗口
+     *
+     * @param startNanos 用户操作的时刻，与冷启动一样计时到下一帧绘制完成
+     */
+    private void setStandby(boolean enabled, long startNanos) {
+        if (blockers == null || standby == enabled) {
+            return;
+        }
+        standby = enabled;
+        blockers.setHidden(BlockerWindowManager.HIDE_STANDBY, enabled);
+        // 上一次切换还没有画出来时，从更早的那次操作开始计时
+        if (standbyToggleStartNanos == 0) {
+            standbyToggleStartNanos = startNanos;
+            Choreographer.getInstance().postFrameCallback(standbyFrameCallback);
+        }
+        updateNotification();
+        StandbyTileService.requestUpdate(this);
+    }
+
+    /**
+     * 用屏幕录制授权开始自动定位。采样期间隐藏遮挡窗，避免挡住要检测的字幕
+     */
+    private void startAutoPosition(int resultCode, Intent data) {
+        if (blockers == null || blockers.getWindowCount() == 0 || data == null) {
+            return;
+        }
+        // 同一时间只使用一个屏幕录制
+        stopBlur();
+        setProjectionForeground(true);
+        MediaProjectionManager projectionManager =
+                (MediaProjectionManager) getSystemService(MEDIA_PROJECTION_SERVICE);
+        MediaProjection projection = projectionManager.getMediaProjection(resultCode, data);
+        if (projection == null) {
+            RingLog.w(TAG, "Screen capture not granted");
+            setProjectionForeground(false);
+            return;
+        }
+        blockers.setHidden(BlockerWindowManager.HIDE_AUTO_POSITION, true);
+        screenSampler.start(projection, displayConfig.width, displayConfig.height, displayConfig.densityDpi);
+    }
+
+    /**
+     * 自动定位结束，恢复普通的前台服务类型并重新显示遮挡窗
+     */
+    private void finishAutoPosition() {
+        setProjectionForeground(false);
+        blockers.setHidden(BlockerWindowManager.HIDE_AUTO_POSITION, false);
+    }
+
+    /**
+     * 用屏幕录制授权开始模糊或马赛克模式
+     */
+    private void startBlur(int resultCode, Intent data, int mode) {
+        if (blockers == null || data == null) {
+            return;
+        }
+        if (screenSampler.isRunning()) {
+            screenSampler.stop();
+            finishAutoPosition();
+        }
+        setProjectionForeground(true);
+        MediaProjectionManager projectionManager =
+                (MediaProjectionManager) getSystemService(MEDIA_PROJECTION_SERVICE);
+        MediaProjection projection = projectionManager.getMediaProjection(resultCode, data);
+        if (projection == null) {
+            RingLog.w(TAG, "Screen capture not granted");
+            setProjectionForeground(false);
+            return;
+        }
+        blurCapture.start(projection, displayConfig.width, displayConfig.height, displayConfig.densityDpi, mode);
+        blurCapture.setRegions(blockers);
+        blockers.setRenderMode(mode);
+        renderMode = mode;
+    }
+
+    /**
+     * 回到纯色填充并结束录制
+     */
+    private void stopBlur() {
+        if (renderMode == BlockerView.MODE_SOLID) {
+            return;
+        }
+        blurCapture.stop();
+        blockers.setRenderMode(BlockerView.MODE_SOLID);
+        renderMode = BlockerView.MODE_SOLID;
+        setProjectionForeground(false);
+    }
+
+    /**
+     * 切换前台服务类型。Android 10 起使用 MediaProjection 前必须以对应类型运行前台服务
+     */
+    private void setProjectionForeground(boolean projection) {
+        finishStartup();
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+            startForeground(NOTIFICATION_ID, createNotification(),
+                    ServiceInfo.FOREGROUND_SERVICE_TYPE_SPECIAL_USE
+                            | (projection ? ServiceInfo.FOREGROUND_SERVICE_TYPE_MEDIA_PROJECTION : 0));
+        }
+    }
+
     @Override
     public IBinder onBind(Intent intent) {
-        return null; // 不提供绑定
+        // 只提供自动化命令的 Messenger
+        return automation != null ? automation.getMessenger().getBinder() : null;
     }
 
     /**
@@ -90,306 +548,448 @@ public class FloatingWindowService extends Service {
     private Notification createNotification() {
         NotificationCompat.Builder builder = new NotificationCompat.Builder(this, CHANNEL_ID)
                 .setContentTitle(getString(R.string.notification_title))
-                .setContentText(getString(R.string.notification_text));
-        
+                .setContentIntent(createActivityPendingIntent(LauncherActivity.ACTION_MANAGE))
+                .setOnlyAlertOnce(true);
+
+        if (standby) {
+            // 待机中只需要恢复显示的入口
+            builder.setContentText(getString(R.string.notification_text_standby))
+                    .addAction(android.R.drawable.ic_menu_view, getString(R.string.action_resume),
+                            createServicePendingIntent(ACTION_TOGGLE_STANDBY));
+            return buildNotification(builder);
+        }
+
+        if (subtitleSync != null && subtitleSync.isRunning()) {
+            // 字幕同步中，提供暂停和偏移调整，待机和重新对齐放在点击通知打开的菜单中
+            boolean paused = subtitleSync.isPaused();
+            builder.setContentText(getString(paused ? R.string.notification_text_subtitle_paused
+                            : R.string.notification_text_subtitle, subtitleSync.getOffsetMs() / 1000f))
+                    .addAction(paused ? android.R.drawable.ic_media_play : android.R.drawable.ic_media_pause,
+                            getString(paused ? R.string.action_subtitle_resume : R.string.action_subtitle_pause),
+                            createServicePendingIntent(ACTION_TOGGLE_SUBTITLE_PAUSE))
+                    .addAction(android.R.drawable.ic_media_rew, getString(R.string.action_subtitle_later),
+                            createServicePendingIntent(ACTION_SUBTITLE_LATER))
+                    .addAction(android.R.drawable.ic_media_ff, getString(R.string.action_subtitle_earlier),
+                            createServicePendingIntent(ACTION_SUBTITLE_EARLIER));
+            return buildNotification(builder);
+        }
+
+        builder.addAction(android.R.drawable.ic_media_pause, getString(R.string.action_standby),
+                createServicePendingIntent(ACTION_TOGGLE_STANDBY));
+
+        // 通知最多显示三个操作，其余操作通过点击通知打开的菜单提供
+        builder.setContentText(getString(R.string.notification_text))
+                .addAction(android.R.drawable.ic_input_add, getString(R.string.action_add_window),
+                        createServicePendingIntent(ACTION_ADD_WINDOW))
+                .addAction(android.R.drawable.ic_menu_agenda, getString(R.string.action_pick_subtitle),
+                        createActivityPendingIntent(LauncherActivity.ACTION_PICK_SUBTITLE));
+        return buildNotification(builder);
+    }
+
+    private Notification buildNotification(NotificationCompat.Builder builder) {
         // 尝试设置一个默认的图标
         try {
             // 使用系统默认的通知图标
             builder.setSmallIcon(android.R.drawable.ic_dialog_info);
         } catch (Exception e) {
-            Log.w(TAG, "Failed to set notification icon", e);
+            RingLog.w(TAG, "Failed to set notification icon", e);
         }
         
         return builder.build();
     }
 
     /**
-     * 创建并添加悬浮窗视图
+     * 用当前状态刷新通知
      */
-    private void createFloatingView() {
-        Log.d(TAG, "Creating floating view");
+    private void updateNotification() {
+        if (!startupFinished) {
+            return; // 进入前台时会使用最新的状态
+        }
+        NotificationManager manager = (NotificationManager) getSystemService(NOTIFICATION_SERVICE);
+        if (manager != null) {
+            manager.notify(NOTIFICATION_ID, createNotification());
+        }
+    }
+
+    /**
+     * 创建打开 LauncherActivity 执行某个操作的 PendingIntent
+     */
+    private PendingIntent createActivityPendingIntent(String action) {
+        Intent intent = new Intent(this, LauncherActivity.class)
+                .setAction(action)
+                .addFlags(Intent.FLAG_ACTIVITY_NEW_TASK);
+        return PendingIntent.getActivity(this, action.hashCode(), intent, PendingIntent.FLAG_IMMUTABLE);
+    }
+
+    /**
+     * 创建发送给本服务的 PendingIntent
+     */
+    private PendingIntent createServicePendingIntent(String action) {
+        Intent intent = new Intent(this, FloatingWindowService.class).setAction(action);
+        return PendingIntent.getService(this, action.hashCode(), intent,
+                PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE);
+    }
+
+    /**
+     * 按保存的状态创建所有悬浮窗
+     */
+    private void createFloatingViews() {
+        RingLog.d(TAG, "Creating floating views");
         
         // 检查windowManager是否为空
         if (windowManager == null) {
-            Log.e(TAG, "WindowManager is null");
-            return;
-        }
-        
-        // 检查LayoutInflater是否能正确加载布局
-        try {
-            floatingView = LayoutInflater.from(this).inflate(R.layout.floating_view, null);
-            Log.d(TAG, "Inflated floating view");
-        } catch (Exception e) {
-            Log.e(TAG, "Failed to inflate floating view", e);
+            RingLog.e(TAG, "WindowManager is null");
             return;
         }
 
+        // 将 dp 转换为 px (只需做一次)
+        float density = getResources().getDisplayMetrics().density;
+        metrics.setRefreshRate(windowManager.getDefaultDisplay().getRefreshRate());
+        blockers = new BlockerWindowManager(this, windowManager, new ChoreographerFrameSource(),
+                (int) (HANDLE_SIZE_DP * density), metrics, this);
+        blockers.setDisplayConfig(displayConfig);
+
         // 从 SharedPreferences 加载保存的状态
-        WindowStateHelper.WindowState state = windowStateHelper.loadWindowState();
-        Log.d(TAG, "Loaded window state: width=" + state.width + ", height=" + state.height + 
-                ", x=" + state.x + ", y=" + state.y);
-        
-        // 设置 WindowManager.LayoutParams
-        params = new WindowManager.LayoutParams(
-                state.width, // 使用保存的宽度
-                state.height, // 使用保存的高度
-                Build.VERSION.SDK_INT >= Build.VERSION_CODES.O ?
-                        WindowManager.LayoutParams.TYPE_APPLICATION_OVERLAY :
-                        WindowManager.LayoutParams.TYPE_PHONE,
-                WindowManager.LayoutParams.FLAG_NOT_FOCUSABLE,
-                PixelFormat.TRANSLUCENT
-        );
-        params.gravity = Gravity.TOP | Gravity.START; // 使用绝对坐标
-        params.x = state.x; // 使用保存的X坐标
-        params.y = state.y; // 使用保存的Y坐标
-        
-        Log.d(TAG, "Created layout params with type: " + params.type);
+        List<WindowStateHelper.WindowState> states = windowStateHelper.loadWindowStates(currentProfile,
+                displayConfig);
+        for (WindowStateHelper.WindowState state : states) {
+            RingLog.d(TAG, "Loaded window state: width={}, height={}, x={}, y={}",
+                    state.width, state.height, state.x, state.y);
+            blockers.addWindow(state.x, state.y, state.width, state.height);
+        }
 
-        // 添加视图到窗口
-        try {
-            windowManager.addView(floatingView, params);
-            Log.d(TAG, "Added view to window manager successfully");
-        } catch (Exception e) {
-            Log.e(TAG, "Failed to add view to window manager. Error: " + e.getMessage(), e);
-            // 尝试使用不同的窗口类型
-            params.type = WindowManager.LayoutParams.TYPE_PHONE;
-            try {
-                windowManager.addView(floatingView, params);
-                Log.d(TAG, "Added view to window manager with TYPE_PHONE successfully");
-            } catch (Exception e2) {
-                Log.e(TAG, "Failed to add view to window manager even with TYPE_PHONE. Error: " + e2.getMessage(), e2);
+        automation = new AutomationController(this, blockers, new AutomationController.Host() {
+            @Override
+            public String getProfile() {
+                return currentProfile;
+            }
+
+            @Override
+            public void selectProfile(String profile) {
+                switchProfile(profile);
+            }
+
+            @Override
+            public boolean isStandby() {
+                return standby;
+            }
+        });
+
+        checkpointer = new StateCheckpointer(windowStateHelper, new StateCheckpointer.Source() {
+            @Override
+            public String getProfile() {
+                return currentProfile;
             }
+
+            @Override
+            public DisplayConfig getDisplayConfig() {
+                return displayConfig;
+            }
+
+            @Override
+            public List<WindowStateHelper.WindowState> snapshot() {
+                return blockers.getWindowStates();
+            }
+        });
+    }
+
+    /**
+     * 在最上层新增一个遮挡窗，位置相对最上层窗口错开一些
+     */
+    private void addWindow() {
+        if (blockers == null) {
+            return;
+        }
+        int count = blockers.getWindowCount();
+        if (count == 0) {
+            blockers.addWindow(0, 0, 300, 300);
+            return;
+        }
+        WindowManager.LayoutParams top = blockers.getWindow(count - 1).params;
+        int offset = (int) (NEW_WINDOW_OFFSET_DP * getResources().getDisplayMetrics().density);
+        blockers.addWindow(top.x + offset, top.y + offset, top.width, top.height);
+    }
+
+    @Override
+    public void onLastWindowClosed() {
+        RingLog.d(TAG, "Last window closed, stopping service");
+        stopSelf(); // 最后一个窗口被双击关闭时停止服务
+    }
+
+    @Override
+    public void onWindowsChanged() {
+        if (checkpointer != null) {
+            checkpointer.markDirty();
+        }
+        if (blurCapture != null && blurCapture.isRunning()) {
+            blurCapture.setRegions(blockers);
         }
+    }
+
+    @Override
+    public void onUserInteraction() {
+        idleMonitor.onUserActivity();
+    }
 
-        // 设置触摸监听器以实现移动、缩放和关闭
-        if (floatingView != null) {
-            setupTouchListener();
+    /**
+     * 休眠时隐藏遮挡窗（同时取消所有帧回调和惯性动画），保存状态，停止前台应用检测，暂停模糊模式的录制；
+     * 唤醒时全部恢复，只需一次布局
+     */
+    @Override
+    public void onSleepChanged(boolean sleeping) {
+        RingLog.d(TAG, sleeping ? "Going to sleep" : "Waking up");
+        if (blockers == null) {
+            return;
+        }
+        blockers.setHidden(BlockerWindowManager.HIDE_IDLE, sleeping);
+        blurCapture.setPaused(sleeping);
+        subtitleSync.setSleeping(sleeping);
+        if (sleeping) {
+            checkpointer.flush();
+            foregroundAppDetector.stop();
+            // 没有画面可以采样，放弃这次自动定位，结束录制
+            if (screenSampler.isRunning()) {
+                screenSampler.stop();
+                finishAutoPosition();
+            }
         } else {
-            Log.e(TAG, "Floating view is null, cannot set touch listener");
+            foregroundAppDetector.start();
+        }
+    }
+
+    @Override
+    public void onForegroundAppChanged(String packageName, long eventTimeMillis) {
+        // 忽略自身和系统界面（例如下拉通知栏）
+        if (blockers == null || packageName.equals(getPackageName())
+                || packageName.equals("com.android.systemui")
+                || packageName.equals(currentProfile)) {
+            return;
         }
+        if (eventTimeMillis > 0) {
+            metrics.profileDetect.record((System.currentTimeMillis() - eventTimeMillis) * 1_000_000L);
+        }
+        switchProfile(packageName);
     }
 
     /**
-     * 定义一个枚举来表示当前的触摸状态
+     * 切换配置档：保存当前布局后整体应用新配置档的布局
      */
-    private enum TouchState {
-        NONE,       // 无操作
-        MOVING,     // 移动窗口
-        RESIZING_LEFT, RESIZING_TOP, RESIZING_RIGHT, RESIZING_BOTTOM,
-        RESIZING_TOP_LEFT, RESIZING_TOP_RIGHT, RESIZING_BOTTOM_LEFT, RESIZING_BOTTOM_RIGHT
+    private void switchProfile(String profile) {
+        if (profile.equals(currentProfile)) {
+            return;
+        }
+        long start = SystemClock.elapsedRealtimeNanos();
+
+        // 先把当前布局保存到旧的配置档
+        checkpointer.flush();
+        currentProfile = profile;
+
+        // 新应用有记录时整体应用；没有记录时沿用当前布局，之后的调整记到新应用名下
+        List<WindowStateHelper.WindowState> states = windowStateHelper.loadWindowStates(profile,
+                displayConfig);
+        if (states != null) {
+            blockers.applyStates(states);
+        }
+        long elapsed = SystemClock.elapsedRealtimeNanos() - start;
+        metrics.profileSwitch.record(elapsed);
+        RingLog.d(TAG, "Switched profile to {} in {}us", profile, elapsed / 1000);
+    }
+
+    @Override
+    public void onSubtitleActiveChanged(boolean active) {
+        if (blockers != null) {
+            blockers.setHidden(BlockerWindowManager.HIDE_SUBTITLE_GAP, !active);
+        }
+    }
+
+    @Override
+    public void onSubtitleLoaded(boolean success) {
+        if (!success) {
+            RingLog.w(TAG, "No subtitle intervals loaded");
+        }
+        updateNotification();
+    }
+
+    @Override
+    public void onBandDetected(int left, int top, int right, int bottom) {
+        RingLog.d(TAG, "Subtitle band detected: {},{} - {},{}", left, top, right, bottom);
+        finishAutoPosition();
+        // 吸附最上层的遮挡窗
+        BlockerWindow window = blockers.getWindow(blockers.getWindowCount() - 1);
+        blockers.setWindowBounds(window, left, top, right - left, bottom - top);
+    }
+
+    @Override
+    public void onSamplingFailed() {
+        finishAutoPosition();
+    }
+
+    @Override
+    public void onBlurFrame(int index, int[] pixels, int width, int height) {
+        blockers.setFrame(index, pixels, width, height);
+    }
+
+    @Override
+    public void onBlurStopped() {
+        RingLog.w(TAG, "Screen capture stopped, back to solid fill");
+        stopBlur();
     }
 
     /**
-     * 为悬浮窗设置触摸监听器
+     * adb shell dumpsys activity service com.example.blocksubtitle/.service.FloatingWindowService
+     * [trace start|stop] [log clear|buffer LEVEL|logcat LEVEL] [automation on|off]
+     * [startup clear]
      */
-    private void setupTouchListener() {
-        // 初始化 GestureDetector 用于双击
-        gestureDetector = new GestureDetector(this, new GestureDetector.SimpleOnGestureListener() {
-            @Override
-            public boolean onDoubleTap(MotionEvent e) {
-                Log.d(TAG, "Double tap detected, stopping service");
-                stopSelf(); // 双击时停止服务
-                return true;
+    @Override
+    protected void dump(FileDescriptor fd, PrintWriter writer, String[] args) {
+        if (args != null && args.length >= 2 && "trace".equals(args[0])) {
+            dumpTrace(args[1], writer);
+            return;
+        }
+        if (args != null && args.length >= 2 && "log".equals(args[0])) {
+            dumpLog(args, writer);
+            return;
+        }
+        if (args != null && args.length >= 2 && "startup".equals(args[0]) && "clear".equals(args[1])) {
+            StartupHistory.clear(this);
+            return;
+        }
+        if (args != null && args.length >= 2 && "automation".equals(args[0]) && automation != null) {
+            automation.setEnabled("on".equals(args[1]));
+            writer.println("automation=" + automation.isEnabled());
+            return;
+        }
+        writer.println("windows=" + (blockers != null ? blockers.getWindowCount() : 0)
+                + " hidden=" + (blockers != null && blockers.isHidden())
+                + " standby=" + standby
+                + " profile=" + currentProfile
+                + " renderMode=" + renderMode
+                + " display=" + (displayConfig != null ? displayConfig.key : null));
+        if (blockers != null) {
+            for (int i = 0; i < blockers.getWindowCount(); i++) {
+                WindowManager.LayoutParams params = blockers.getWindow(i).params;
+                writer.println("  window " + i + ": " + params.x + "," + params.y
+                        + " " + params.width + "x" + params.height);
             }
-        });
-        
-        floatingView.setOnTouchListener(new View.OnTouchListener() {
-            private int initialX;
-            private int initialY;
-            private float initialTouchX;
-            private float initialTouchY;
-            private int initialWidth;
-            private int initialHeight;
-            private TouchState currentTouchState = TouchState.NONE;
-            
-            // 定义边缘热区的大小，例如 30dp
-            private final int handleSizeInDp = 30;
-            private int handleSizeInPx = 0;
+        }
+        metrics.dump(writer);
+        if (idleMonitor != null) {
+            idleMonitor.dump(writer);
+        }
+        StartupHistory.dump(this, writer);
+        RingLog.dump(writer);
+    }
 
-            @Override
-            public boolean onTouch(View v, MotionEvent event) {
-                // 处理双击手势
-                gestureDetector.onTouchEvent(event);
-                
-                switch (event.getAction() & MotionEvent.ACTION_MASK) {
-                    case MotionEvent.ACTION_DOWN:
-                        // 记录初始触摸坐标和窗口参数
-                        initialX = params.x;
-                        initialY = params.y;
-                        initialTouchX = event.getRawX();
-                        initialTouchY = event.getRawY();
-                        initialWidth = params.width;
-                        initialHeight = params.height;
-
-                        // 将 dp 转换为 px (只需做一次)
-                        if (handleSizeInPx == 0) {
-                            handleSizeInPx = (int) (handleSizeInDp * getResources().getDisplayMetrics().density);
-                        }
-
-                        // 判断触摸点是否在某个边缘热区
-                        float touchX = event.getX();
-                        float touchY = event.getY();
-                        
-                        boolean isTouchingLeftEdge = touchX < handleSizeInPx;
-                        boolean isTouchingTopEdge = touchY < handleSizeInPx;
-                        boolean isTouchingRightEdge = touchX > initialWidth - handleSizeInPx;
-                        boolean isTouchingBottomEdge = touchY > initialHeight - handleSizeInPx;
-
-                        // 根据触摸点位置设置状态
-                        if (isTouchingLeftEdge && isTouchingTopEdge) {
-                            currentTouchState = TouchState.RESIZING_TOP_LEFT;
-                        } else if (isTouchingRightEdge && isTouchingTopEdge) {
-                            currentTouchState = TouchState.RESIZING_TOP_RIGHT;
-                        } else if (isTouchingLeftEdge && isTouchingBottomEdge) {
-                            currentTouchState = TouchState.RESIZING_BOTTOM_LEFT;
-                        } else if (isTouchingRightEdge && isTouchingBottomEdge) {
-                            currentTouchState = TouchState.RESIZING_BOTTOM_RIGHT;
-                        } else if (isTouchingLeftEdge) {
-                            currentTouchState = TouchState.RESIZING_LEFT;
-                        } else if (isTouchingTopEdge) {
-                            currentTouchState = TouchState.RESIZING_TOP;
-                        } else if (isTouchingRightEdge) {
-                            currentTouchState = TouchState.RESIZING_RIGHT;
-                        } else if (isTouchingBottomEdge) {
-                            currentTouchState = TouchState.RESIZING_BOTTOM;
-                        } else {
-                            // 否则，默认为移动窗口
-                            currentTouchState = TouchState.MOVING;
-                        }
-                        
-                        Log.d(TAG, "Touch state: " + currentTouchState);
-                        return true;
-                        
-                    case MotionEvent.ACTION_MOVE:
-                        // 计算手指移动的距离
-                        float deltaX = event.getRawX() - initialTouchX;
-                        float deltaY = event.getRawY() - initialTouchY;
-
-                        switch (currentTouchState) {
-                            case MOVING:
-                                // 如果是移动状态，更新窗口的 x, y 坐标
-                                params.x = (int) (initialX + deltaX);
-                                params.y = (int) (initialY + deltaY);
-                                break;
-                                
-                            case RESIZING_LEFT:
-                                // 调整左边，需要同时改变宽度和x坐标
-                                int newWidthLeft = (int) (initialWidth - deltaX);
-                                if (newWidthLeft > 50) { // 最小宽度50
-                                    params.width = newWidthLeft;
-                                    params.x = (int) (initialX + deltaX);
-                                }
-                                break;
-                                
-                            case RESIZING_TOP:
-                                // 调整顶部，需要同时改变高度和y坐标
-                                int newHeightTop = (int) (initialHeight - deltaY);
-                                if (newHeightTop > 50) { // 最小高度50
-                                    params.height = newHeightTop;
-                                    params.y = (int) (initialY + deltaY);
-                                }
-                                break;
-                                
-                            case RESIZING_RIGHT:
-                                // 调整右边，只改变宽度
-                                int newWidthRight = (int) (initialWidth + deltaX);
-                                if (newWidthRight > 50) { // 最小宽度50
-                                    params.width = newWidthRight;
-                                }
-                                break;
-                                
-                            case RESIZING_BOTTOM:
-                                // 调整底部，只改变高度
-                                int newHeightBottom = (int) (initialHeight + deltaY);
-                                if (newHeightBottom > 50) { // 最小高度50
-                                    params.height = newHeightBottom;
-                                }
-                                break;
-                                
-                            case RESIZING_TOP_LEFT:
-                                // 调整左上角
-                                int newWidthTL = (int) (initialWidth - deltaX);
-                                int newHeightTL = (int) (initialHeight - deltaY);
-                                if (newWidthTL > 50) {
-                                    params.width = newWidthTL;
-                                    params.x = (int) (initialX + deltaX);
-                                }
-                                if (newHeightTL > 50) {
-                                    params.height = newHeightTL;
-                                    params.y = (int) (initialY + deltaY);
-                                }
-                                break;
-                                
-                            case RESIZING_TOP_RIGHT:
-                                // 调整右上角
-                                int newWidthTR = (int) (initialWidth + deltaX);
-                                int newHeightTR = (int) (initialHeight - deltaY);
-                                if (newWidthTR > 50) {
-                                    params.width = newWidthTR;
-                                }
-                                if (newHeightTR > 50) {
-                                    params.height = newHeightTR;
-                                    params.y = (int) (initialY + deltaY);
-                                }
-                                break;
-                                
-                            case RESIZING_BOTTOM_LEFT:
-                                // 调整左下角
-                                int newWidthBL = (int) (initialWidth - deltaX);
-                                int newHeightBL = (int) (initialHeight + deltaY);
-                                if (newWidthBL > 50) {
-                                    params.width = newWidthBL;
-                                    params.x = (int) (initialX + deltaX);
-                                }
-                                if (newHeightBL > 50) {
-                                    params.height = newHeightBL;
-                                }
-                                break;
-                                
-                            case RESIZING_BOTTOM_RIGHT:
-                                // 调整右下角
-                                int newWidthBR = (int) (initialWidth + deltaX);
-                                int newHeightBR = (int) (initialHeight + deltaY);
-                                if (newWidthBR > 50) {
-                                    params.width = newWidthBR;
-                                }
-                                if (newHeightBR > 50) {
-                                    params.height = newHeightBR;
-                                }
-                                break;
-                        }
-                        
-                        // 应用所有更改
-                        windowManager.updateViewLayout(floatingView, params);
-                        return true;
-                        
-                    case MotionEvent.ACTION_UP:
-                    case MotionEvent.ACTION_CANCEL:
-                        // 重置状态，为下一次触摸做准备
-                        currentTouchState = TouchState.NONE;
-                        return true;
+    /**
+     * 调整日志级别或清空日志缓冲区，级别为 d、i、w、e，或 off 表示关闭
+     */
+    private static void dumpLog(String[] args, PrintWriter writer) {
+        if ("clear".equals(args[1])) {
+            RingLog.clear();
+            return;
+        }
+        int level = args.length >= 3 ? parseLogLevel(args[2]) : -1;
+        if (level < 0) {
+            writer.println("Usage: log clear|buffer LEVEL|logcat LEVEL, LEVEL is d, i, w, e or off");
+        } else if ("buffer".equals(args[1])) {
+            RingLog.setBufferLevel(level);
+        } else if ("logcat".equals(args[1])) {
+            RingLog.setLogcatLevel(level);
+        }
+    }
+
+    private static int parseLogLevel(String name) {
+        switch (name) {
+            case "d":
+                return RingLog.DEBUG;
+            case "i":
+                return RingLog.INFO;
+            case "w":
+                return RingLog.WARN;
+            case "e":
+                return RingLog.ERROR;
+            case "off":
+                return Integer.MAX_VALUE;
+            default:
+                return -1;
+        }
+    }
+
+    /**
+     * 触摸录制，录制的文件用 adb pull 取出后放到单元测试中回放，在主线程执行，只用于调试
+     */
+    private void dumpTrace(String command, PrintWriter writer) {
+        File dir = new File(getFilesDir(), TRACE_DIR);
+        switch (command) {
+            case "start":
+                if (blockers != null) {
+                    blockers.startTrace();
+                    writer.println("Recording touch events");
                 }
-                return true;
-            }
-        });
+                break;
+            case "stop":
+                TouchTrace trace = blockers != null ? blockers.stopTrace() : null;
+                if (trace == null) {
+                    writer.println("Not recording");
+                    break;
+                }
+                File file = new File(dir, "trace-" + System.currentTimeMillis() + ".bstt");
+                try {
+                    if (!dir.isDirectory() && !dir.mkdirs()) {
+                        throw new IOException("Cannot create " + dir);
+                    }
+                    DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+                    try {
+                        trace.write(out);
+                    } finally {
+                        out.close();
+                    }
+                    writer.println("Saved " + trace.size() + " events to " + file);
+                } catch (IOException e) {
+                    RingLog.e(TAG, "Failed to save touch trace", e);
+                    writer.println("Failed to save: " + e.getMessage());
+                }
+                break;
+            default:
+                writer.println("Usage: trace start|stop");
+        }
     }
 
     @Override
     public void onDestroy() {
         super.onDestroy();
-        Log.d(TAG, "Service destroyed");
+        RingLog.d(TAG, "Service destroyed");
+        running = false;
+        standby = false;
+        StandbyTileService.requestUpdate(this);
+        Choreographer.getInstance().removeFrameCallback(firstFrameCallback);
+        mainHandler.removeCallbacks(firstFrameRunnable);
+        Choreographer.getInstance().removeFrameCallback(standbyFrameCallback);
+        mainHandler.removeCallbacks(standbyFrameRunnable);
+        DisplayManager displayManager = (DisplayManager) getSystemService(DISPLAY_SERVICE);
+        displayManager.unregisterDisplayListener(displayListener);
+        if (idleMonitor != null) {
+            idleMonitor.stop();
+        }
+        if (foregroundAppDetector != null) {
+            foregroundAppDetector.stop();
+        }
+        if (subtitleSync != null) {
+            subtitleSync.release();
+        }
+        if (screenSampler != null) {
+            screenSampler.stop();
+        }
+        if (blurCapture != null) {
+            blurCapture.stop();
+        }
+        renderMode = BlockerView.MODE_SOLID;
         // 保存当前窗口状态
-        if (params != null && floatingView != null) {
-            windowStateHelper.saveWindowState(
-                    params.width, 
-                    params.height, 
-                    params.x, 
-                    params.y
-            );
+        if (checkpointer != null) {
+            checkpointer.close();
         }
-        
-        if (floatingView != null) {
-            windowManager.removeView(floatingView);
+        if (blockers != null) {
+            blockers.removeAll();
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,164 @@
+package com.example.blocksubtitle.service;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.media.AudioManager;
+import android.media.AudioPlaybackConfiguration;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.PowerManager;
+import android.os.SystemClock;
+
+import com.example.blocksubtitle.util.IdlePolicy;
+
+import java.io.PrintWriter;
+import java.util.List;
+
+/**
+ * 把媒体播放和屏幕开关事件交给 {@link IdlePolicy}，并按策略的截止时间安排检查，只在主线程使用。
+ *
+ * 是否在播放以 AudioManager.isMusicActive() 为准，Android 8.0 起通过 AudioPlaybackCallback 得知变化。
+ * 更早的版本没有播放回调，休眠中无法得知播放开始，因此视为一直在播放，只在屏幕关闭时休眠。
+ * 读取其他应用的媒体会话需要通知使用权，这里不使用。
+ */
+class IdleMonitor implements IdlePolicy.Listener {
+
+    private static final String TAG = "IdleMonitor";
+
+    // 停止播放后等待多久进入休眠
+    private static final long IDLE_DELAY_MS = 2 * 60 * 1000;
+
+    // 播放器暂停后音频流还会保持活动一小段时间，收到回调后再查询一次
+    private static final long RECHECK_DELAY_MS = 1000;
+
+    interface Listener {
+        void onSleepChanged(boolean sleeping);
+    }
+
+    private final Context context;
+    private final Listener listener;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final AudioManager audioManager;
+    private final PowerManager powerManager;
+    private final IdlePolicy policy = new IdlePolicy(IDLE_DELAY_MS, this);
+
+    private boolean started;
+
+    // Android 8.0 起才有，创建时才加载该类
+    private AudioManager.AudioPlaybackCallback playbackCallback;
+
+    private final Runnable deadlineRunnable = new Runnable() {
+        @Override
+        public void run() {
+            policy.onDeadline(SystemClock.elapsedRealtime());
+            schedule();
+        }
+    };
+
+    private final Runnable recheckRunnable = new Runnable() {
+        @Override
+        public void run() {
+            updatePlayback();
+        }
+    };
+
+    private final BroadcastReceiver screenReceiver = new BroadcastReceiver() {
+        @Override
+        public void onReceive(Context context, Intent intent) {
+            policy.onScreenChanged(Intent.ACTION_SCREEN_ON.equals(intent.getAction()),
+                    SystemClock.elapsedRealtime());
+            schedule();
+        }
+    };
+
+    IdleMonitor(Context context, Listener listener) {
+        this.context = context;
+        this.listener = listener;
+        audioManager = (AudioManager) context.getSystemService(Context.AUDIO_SERVICE);
+        powerManager = (PowerManager) context.getSystemService(Context.POWER_SERVICE);
+    }
+
+    void start() {
+        if (started) {
+            return;
+        }
+        started = true;
+        IntentFilter filter = new IntentFilter(Intent.ACTION_SCREEN_ON);
+        filter.addAction(Intent.ACTION_SCREEN_OFF);
+        context.registerReceiver(screenReceiver, filter);
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+            playbackCallback = new AudioManager.AudioPlaybackCallback() {
+                @Override
+                public void onPlaybackConfigChanged(List<AudioPlaybackConfiguration> configs) {
+                    updatePlayback();
+                    mainHandler.removeCallbacks(recheckRunnable);
+                    mainHandler.postDelayed(recheckRunnable, RECHECK_DELAY_MS);
+                }
+            };
+            audioManager.registerAudioPlaybackCallback(playbackCallback, mainHandler);
+        }
+        policy.start(isPlaying(), powerManager.isInteractive(), SystemClock.elapsedRealtime());
+        schedule();
+    }
+
+    void stop() {
+        if (!started) {
+            return;
+        }
+        started = false;
+        context.unregisterReceiver(screenReceiver);
+        if (playbackCallback != null) {
+            audioManager.unregisterAudioPlaybackCallback(playbackCallback);
+            playbackCallback = null;
+        }
+        mainHandler.removeCallbacks(deadlineRunnable);
+        mainHandler.removeCallbacks(recheckRunnable);
+    }
+
+    /**
+     * 用户在使用遮挡窗，休眠中立即唤醒，等待中重新计时
+     */
+    void onUserActivity() {
+        int state = policy.getState();
+        if (started && (state == IdlePolicy.STATE_WAITING || state == IdlePolicy.STATE_IDLE)) {
+            policy.onUserActivity(SystemClock.elapsedRealtime());
+            schedule();
+        }
+    }
+
+    boolean isSleeping() {
+        return started && policy.isSleeping();
+    }
+
+    void dump(PrintWriter pw) {
+        policy.dump(pw, SystemClock.elapsedRealtime());
+    }
+
+    @Override
+    public void onSleepChanged(boolean sleeping) {
+        listener.onSleepChanged(sleeping);
+    }
+
+    private boolean isPlaying() {
+        return Build.VERSION.SDK_INT < Build.VERSION_CODES.O || audioManager.isMusicActive();
+    }
+
+    private void updatePlayback() {
+        policy.onPlaybackChanged(isPlaying(), SystemClock.elapsedRealtime());
+        schedule();
+    }
+
+    /**
+     * 按策略的截止时间安排下一次检查，没有截止时间时不保留任何定时器
+     */
+    private void schedule() {
+        mainHandler.removeCallbacks(deadlineRunnable);
+        long deadline = policy.getDeadline();
+        if (deadline != IdlePolicy.NO_DEADLINE) {
+            mainHandler.postDelayed(deadlineRunnable, Math.max(0, deadline - SystemClock.elapsedRealtime()));
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.example.blocksubtitle.service;
+
+import com.example.blocksubtitle.util.LatencyHistogram;
+
+import java.io.PrintWriter;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 悬浮窗响应性能的统计。记录过程不加锁、不分配对象，可以放在触摸和帧回调路径上。
+ * 时间统一使用 System.nanoTime()，与 MotionEvent 的事件时间同一时钟。
+ */
+class OverlayMetrics {
+
+    // 输入事件到 updateViewLayout 返回的延迟（纳秒）
+    final LatencyHistogram inputToRelayout = new LatencyHistogram();
+
+    // 每次手势触发的布局次数
+    final LatencyHistogram relayoutsPerGesture = new LatencyHistogram();
+
+    // 从点击启动器或磁贴到窗口添加完成、到第一帧绘制完成的时间（纳秒）。
+    // 不经过启动器和磁贴直接启动服务时从进程启动开始计算
+    final LatencyHistogram coldStart = new LatencyHistogram();
+    final LatencyHistogram firstFrame = new LatencyHistogram();
+
+    // 第一帧之后进行的通知等初始化的耗时（纳秒）
+    final LatencyHistogram deferredStartup = new LatencyHistogram();
+
+    // 从点击通知或磁贴（通知操作从服务收到 Intent 开始）到待机切换后第一帧绘制完成的时间（纳秒），与冷启动对比
+    final LatencyHistogram standbyToggle = new LatencyHistogram();
+
+    // 前台应用切换到检测到的延迟，以及切换配置档（保存、查找、应用布局）的耗时（纳秒）
+    final LatencyHistogram profileDetect = new LatencyHistogram();
+    final LatencyHistogram profileSwitch = new LatencyHistogram();
+
+    private final AtomicLong relayouts = new AtomicLong();
+    private final AtomicLong droppedFrames = new AtomicLong();
+
+    // 一帧的时长
+    private volatile long frameIntervalNanos = 16_666_667L;
+
+    void setRefreshRate(float refreshRate) {
+        if (refreshRate > 0) {
+            frameIntervalNanos = (long) (1_000_000_000L / refreshRate);
+        }
+    }
+
+    long getFrameIntervalNanos() {
+        return frameIntervalNanos;
+    }
+
+    /**
+     * 记录一次布局
+     *
+     * @param eventTimeNanos 触发本次布局的最早输入事件时间，没有时为 0
+     * @param frameTimeNanos 所在帧的 vsync 时间，不是在帧回调中执行时为 0
+     */
+    void recordRelayout(long eventTimeNanos, long frameTimeNanos, long nowNanos) {
+        relayouts.incrementAndGet();
+        if (eventTimeNanos > 0) {
+            inputToRelayout.record(nowNanos - eventTimeNanos);
+        }
+        // 布局完成时已经错过了下一个 vsync，视为掉帧
+        if (frameTimeNanos > 0) {
+            long late = nowNanos - frameTimeNanos;
+            if (late > frameIntervalNanos) {
+                droppedFrames.addAndGet(late / frameIntervalNanos);
+            }
+        }
+    }
+
+    void recordGesture(int relayoutCount) {
+        relayoutsPerGesture.record(relayoutCount);
+    }
+
+    void dump(PrintWriter pw) {
+        pw.println("Overlay metrics:");
+        pw.println("  relayouts=" + relayouts.get() + " droppedFrames=" + droppedFrames.get()
+                + " frameInterval=" + frameIntervalNanos / 1000 + "us");
+        pw.print("  ");
+        inputToRelayout.dump(pw, "inputToRelayout", 1000, "us");
+        pw.print("  ");
+        relayoutsPerGesture.dump(pw, "relayoutsPerGesture", 1, "");
+        pw.print("  ");
+        coldStart.dump(pw, "coldStart", 1_000_000, "ms");
+        pw.print("  ");
+        firstFrame.dump(pw, "firstFrame", 1_000_000, "ms");
+        pw.print("  ");
+        deferredStartup.dump(pw, "deferredStartup", 1000, "us");
+        pw.print("  ");
+        standbyToggle.dump(pw, "standbyToggle", 1000, "us");
+        pw.print("  ");
+        profileDetect.dump(pw, "profileDetect", 1_000_000, "ms");
+        pw.print("  ");
+        profileSwitch.dump(pw, "profileSwitch", 1000, "us");
+    }
+}
@@ -0,0 +1,239 @@
+package com.example.blocksubtitle.service;
+
+import android.graphics.PixelFormat;
+import android.hardware.display.DisplayManager;
+import android.hardware.display.VirtualDisplay;
+import android.media.Image;
+import android.media.ImageReader;
+import android.media.projection.MediaProjection;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Looper;
+import android.os.Process;
+import android.os.SystemClock;
+
+import com.example.blocksubtitle.util.RingLog;
+import com.example.blocksubtitle.util.SubtitleBandDetector;
+
+import java.nio.ByteBuffer;
+
+/**
+ * 通过 MediaProjection 以低分辨率、低频率采样屏幕，寻找字幕所在的条带。
+ * 图像处理全部在后台线程进行，亮度缓冲区在开始时分配并逐帧复用。
+ * 两次采样之间断开虚拟显示的输出面，系统不再为这段时间合成和传输画面，
+ * 间隔结束后再接上，只取接上后的第一帧。
+ */
+class ScreenSampler {
+
+    private static final String TAG = "ScreenSampler";
+
+    // 采样分辨率为屏幕的 1/DOWNSCALE
+    private static final int DOWNSCALE = 8;
+
+    // 两次分析之间的最短间隔
+    private static final long SAMPLE_INTERVAL_MS = 500;
+
+    // 超过该时间仍未检测到稳定的条带则放弃
+    private static final long TIMEOUT_MS = 20000;
+
+    /**
+     * 检测结果的回调，在主线程调用
+     */
+    interface Listener {
+        /**
+         * 检测到字幕条带，坐标为屏幕像素
+         */
+        void onBandDetected(int left, int top, int right, int bottom);
+
+        void onSamplingFailed();
+    }
+
+    private final Listener listener;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final SubtitleBandDetector detector = new SubtitleBandDetector();
+
+    private MediaProjection projection;
+    private HandlerThread samplerThread;
+    // 主线程创建和释放，采样线程用来断开和接上输出面
+    private volatile ImageReader imageReader;
+    private volatile VirtualDisplay virtualDisplay;
+    private volatile Handler samplerHandler;
+
+    // 以下字段只在采样线程访问
+    private byte[] luma;
+    private int sampleWidth;
+    private int sampleHeight;
+    private int screenWidth;
+    private int screenHeight;
+    private long lastSampleTime;
+
+    private final Runnable timeoutRunnable = new Runnable() {
+        @Override
+        public void run() {
+            RingLog.w(TAG, "No stable subtitle band found");
+            stop();
+            listener.onSamplingFailed();
+        }
+    };
+
+    // 间隔结束后重新接上输出面，等待下一帧
+    private final Runnable resumeRunnable = new Runnable() {
+        @Override
+        public void run() {
+            VirtualDisplay display = virtualDisplay;
+            ImageReader reader = imageReader;
+            if (display != null && reader != null) {
+                display.setSurface(reader.getSurface());
+            }
+        }
+    };
+
+    private final MediaProjection.Callback projectionCallback = new MediaProjection.Callback() {
+        @Override
+        public void onStop() {
+            mainHandler.post(new Runnable() {
+                @Override
+                public void run() {
+                    if (ScreenSampler.this.projection != null) {
+                        stop();
+                        listener.onSamplingFailed();
+                    }
+                }
+            });
+        }
+    };
+
+    private final ImageReader.OnImageAvailableListener imageListener = new ImageReader.OnImageAvailableListener() {
+        @Override
+        public void onImageAvailable(ImageReader reader) {
+            Image image = reader.acquireLatestImage();
+            if (image == null) {
+                return;
+            }
+            try {
+                long now = SystemClock.uptimeMillis();
+                if (now - lastSampleTime < SAMPLE_INTERVAL_MS) {
+                    return; // 断开输出面之前已经在途的帧
+                }
+                lastSampleTime = now;
+                Image.Plane plane = image.getPlanes()[0];
+                toLuma(plane.getBuffer(), plane.getRowStride(), plane.getPixelStride());
+                if (detector.analyze(luma, sampleWidth)) {
+                    postResult();
+                    return;
+                }
+            } finally {
+                image.close();
+            }
+            VirtualDisplay display = virtualDisplay;
+            Handler handler = samplerHandler;
+            if (display != null && handler != null) {
+                display.setSurface(null);
+                handler.removeCallbacks(resumeRunnable);
+                handler.postDelayed(resumeRunnable, SAMPLE_INTERVAL_MS);
+            }
+        }
+    };
+
+    ScreenSampler(Listener listener) {
+        this.listener = listener;
+    }
+
+    boolean isRunning() {
+        return projection != null;
+    }
+
+    /**
+     * 开始采样，projection 由调用方通过用户授权获得，停止时一并结束
+     */
+    void start(MediaProjection projection, int screenWidth, int screenHeight, int densityDpi) {
+        stop();
+        this.projection = projection;
+        this.screenWidth = screenWidth;
+        this.screenHeight = screenHeight;
+        sampleWidth = Math.max(1, screenWidth / DOWNSCALE);
+        sampleHeight = Math.max(1, screenHeight / DOWNSCALE);
+        luma = new byte[sampleWidth * sampleHeight];
+        detector.configure(sampleWidth, sampleHeight);
+        lastSampleTime = 0;
+
+        samplerThread = new HandlerThread(TAG, Process.THREAD_PRIORITY_BACKGROUND);
+        samplerThread.start();
+        Handler handler = new Handler(samplerThread.getLooper());
+        samplerHandler = handler;
+
+        imageReader = ImageReader.newInstance(sampleWidth, sampleHeight, PixelFormat.RGBA_8888, 2);
+        imageReader.setOnImageAvailableListener(imageListener, handler);
+        projection.registerCallback(projectionCallback, handler);
+        virtualDisplay = projection.createVirtualDisplay(TAG, sampleWidth, sampleHeight,
+                Math.max(1, densityDpi / DOWNSCALE), DisplayManager.VIRTUAL_DISPLAY_FLAG_AUTO_MIRROR,
+                imageReader.getSurface(), null, handler);
+        mainHandler.postDelayed(timeoutRunnable, TIMEOUT_MS);
+        RingLog.d(TAG, "Sampling at {}x{}", sampleWidth, sampleHeight);
+    }
+
+    void stop() {
+        mainHandler.removeCallbacks(timeoutRunnable);
+        if (projection == null) {
+            return;
+        }
+        MediaProjection current = projection;
+        projection = null;
+        samplerHandler.removeCallbacks(resumeRunnable);
+        if (virtualDisplay != null) {
+            virtualDisplay.release();
+            virtualDisplay = null;
+        }
+        current.unregisterCallback(projectionCallback);
+        current.stop();
+        // 在采样线程上关闭 ImageReader，避免与正在处理的帧冲突
+        final ImageReader reader = imageReader;
+        imageReader = null;
+        samplerHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                reader.close();
+            }
+        });
+        samplerThread.quitSafely();
+        samplerThread = null;
+        samplerHandler = null;
+    }
+
+    /**
+     * RGBA 转为亮度，写入复用的缓冲区
+     */
+    private void toLuma(ByteBuffer buffer, int rowStride, int pixelStride) {
+        for (int y = 0; y < sampleHeight; y++) {
+            int in = y * rowStride;
+            int out = y * sampleWidth;
+            for (int x = 0; x < sampleWidth; x++) {
+                int r = buffer.get(in) & 0xFF;
+                int g = buffer.get(in + 1) & 0xFF;
+                int b = buffer.get(in + 2) & 0xFF;
+                luma[out + x] = (byte) ((r * 77 + g * 150 + b * 29) >> 8);
+                in += pixelStride;
+            }
+        }
+    }
+
+    /**
+     * 把条带换算到屏幕坐标并交给主线程，上下各留出一个采样单位的余量
+     */
+    private void postResult() {
+        final int left = Math.max(0, (detector.getBandLeft() - 1) * screenWidth / sampleWidth);
+        final int top = Math.max(0, (detector.getBandTop() - 1) * screenHeight / sampleHeight);
+        final int right = Math.min(screenWidth, (detector.getBandRight() + 1) * screenWidth / sampleWidth);
+        final int bottom = Math.min(screenHeight, (detector.getBandBottom() + 1) * screenHeight / sampleHeight);
+        mainHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                if (projection == null) {
+                    return;
+                }
+                stop();
+                listener.onBandDetected(left, top, right, bottom);
+            }
+        });
+    }
+}
@@ -0,0 +1,96 @@
+package com.example.blocksubtitle.service;
+
+import android.app.PendingIntent;
+import android.content.ComponentName;
+import android.content.Context;
+import android.content.Intent;
+import android.graphics.drawable.Icon;
+import android.os.Build;
+import android.provider.Settings;
+import android.service.quicksettings.Tile;
+import android.service.quicksettings.TileService;
+
+import androidx.annotation.RequiresApi;
+
+import com.example.blocksubtitle.R;
+import com.example.blocksubtitle.activity.LauncherActivity;
+import com.example.blocksubtitle.util.RingLog;
+import com.example.blocksubtitle.util.WindowStateHelper;
+
+/**
+ * 快速设置磁贴：服务运行时切换待机；未运行时已有悬浮窗权限则直接启动服务，否则打开启动器。
+ */
+@RequiresApi(api = Build.VERSION_CODES.N)
+public class StandbyTileService extends TileService {
+
+    private static final String TAG = "StandbyTileService";
+
+    /**
+     * 请求系统刷新磁贴状态
+     */
+    static void requestUpdate(Context context) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.N) {
+            requestListeningState(context, new ComponentName(context, StandbyTileService.class));
+        }
+    }
+
+    @Override
+    public void onStartListening() {
+        updateTile();
+    }
+
+    @Override
+    public void onClick() {
+        if (FloatingWindowService.isRunning()) {
+            // 带上点击时刻，待机切换从这里开始计时
+            Intent intent = new Intent(this, FloatingWindowService.class)
+                    .setAction(FloatingWindowService.ACTION_TOGGLE_STANDBY)
+                    .putExtra(FloatingWindowService.EXTRA_LAUNCH_TIME_NANOS, System.nanoTime());
+            startService(intent);
+        } else if (!Settings.canDrawOverlays(this) || !startServiceDirectly()) {
+            Intent intent = new Intent(this, LauncherActivity.class)
+                    .addFlags(Intent.FLAG_ACTIVITY_NEW_TASK);
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.UPSIDE_DOWN_CAKE) {
+                startActivityAndCollapse(PendingIntent.getActivity(this, 0, intent, PendingIntent.FLAG_IMMUTABLE));
+            } else {
+                startActivityAndCollapse(intent);
+            }
+        }
+    }
+
+    /**
+     * 不经过启动器直接启动服务，同时预读保存的状态
+     *
+     * @return 是否启动成功。Android 12 起系统可能不允许从后台启动前台服务，此时改为打开启动器
+     */
+    private boolean startServiceDirectly() {
+        long launchNanos = System.nanoTime();
+        WindowStateHelper.prefetch(this);
+        Intent intent = new Intent(this, FloatingWindowService.class)
+                .putExtra(FloatingWindowService.EXTRA_LAUNCH_TIME_NANOS, launchNanos)
+                .putExtra(FloatingWindowService.EXTRA_LAUNCH_ENTRY, "tile");
+        try {
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+                startForegroundService(intent);
+            } else {
+                startService(intent);
+            }
+            return true;
+        } catch (IllegalStateException e) {
+            RingLog.w(TAG, "Cannot start service from tile", e);
+            return false;
+        }
+    }
+
+    private void updateTile() {
+        Tile tile = getQsTile();
+        if (tile == null) {
+            return;
+        }
+        boolean visible = FloatingWindowService.isRunning() && !FloatingWindowService.isStandby();
+        tile.setState(visible ? Tile.STATE_ACTIVE : Tile.STATE_INACTIVE);
+        tile.setIcon(Icon.createWithResource(this, R.drawable.ic_tile_blocker));
+        tile.setLabel(getString(R.string.tile_label));
+        tile.updateTile();
+    }
+}
@@ -0,0 +1,84 @@
+package com.example.blocksubtitle.service;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.Process;
+
+import java.io.PrintWriter;
+import java.util.Arrays;
+
+/**
+ * 最近几次冷启动的耗时，保存在 SharedPreferences 中，进程被杀死后仍然保留。
+ * 作为实际使用中的启动统计，可以通过 dumpsys 查看；可重复的启动基准在 macrobenchmark 模块中。
+ */
+class StartupHistory {
+
+    private static final String PREFS_NAME = "StartupHistory";
+    private static final String KEY_SAMPLES = "samples";
+
+    // 最多保留的次数，超过后丢弃最旧的
+    private static final int MAX_SAMPLES = 20;
+
+    private StartupHistory() {
+    }
+
+    /**
+     * 记录一次冷启动。第一次读取要等待文件加载，读取和写入都放在后台线程，不占用主线程
+     *
+     * @param attachNanos     从启动到窗口添加完成
+     * @param firstFrameNanos 从启动到第一帧绘制完成
+     * @param entry           启动入口，例如 launcher、tile、process
+     */
+    static void record(Context context, long attachNanos, long firstFrameNanos, String entry) {
+        final Context appContext = context.getApplicationContext();
+        final String sample = entry + ":" + attachNanos / 1000 + ":" + firstFrameNanos / 1000;
+        new Thread(new Runnable() {
+            @Override
+            public void run() {
+                Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                SharedPreferences prefs = appContext.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+                String[] old = split(prefs.getString(KEY_SAMPLES, ""));
+                StringBuilder sb = new StringBuilder();
+                for (int i = Math.max(0, old.length - MAX_SAMPLES + 1); i < old.length; i++) {
+                    sb.append(old[i]).append(';');
+                }
+                sb.append(sample);
+                prefs.edit().putString(KEY_SAMPLES, sb.toString()).apply();
+            }
+        }, "StartupHistory").start();
+    }
+
+    static void clear(Context context) {
+        context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE).edit().clear().apply();
+    }
+
+    /**
+     * 输出每次的耗时和中位数，单位为毫秒
+     */
+    static void dump(Context context, PrintWriter pw) {
+        String[] samples = split(context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE)
+                .getString(KEY_SAMPLES, ""));
+        long[] attach = new long[samples.length];
+        long[] firstFrame = new long[samples.length];
+        pw.println("Cold starts (" + samples.length + "):");
+        for (int i = 0; i < samples.length; i++) {
+            String[] parts = samples[i].split(":");
+            attach[i] = Long.parseLong(parts[1]);
+            firstFrame[i] = Long.parseLong(parts[2]);
+            pw.println("  " + parts[0] + " attach=" + attach[i] / 1000f + "ms firstFrame=" + firstFrame[i] / 1000f + "ms");
+        }
+        if (samples.length > 0) {
+            pw.println("  median attach=" + median(attach) / 1000f + "ms firstFrame=" + median(firstFrame) / 1000f + "ms");
+        }
+    }
+
+    private static String[] split(String text) {
+        return text.isEmpty() ? new String[0] : text.split(";");
+    }
+
+    private static long median(long[] values) {
+        long[] sorted = values.clone();
+        Arrays.sort(sorted);
+        return sorted[sorted.length / 2];
+    }
+}
@@ -0,0 +1,246 @@
+package com.example.blocksubtitle.service;
+
+import android.content.Context;
+import android.net.Uri;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Looper;
+import android.os.Process;
+import android.os.SystemClock;
+
+import com.example.blocksubtitle.util.RingLog;
+import com.example.blocksubtitle.util.SubtitleClock;
+import com.example.blocksubtitle.util.SubtitleIndex;
+import com.example.blocksubtitle.util.SubtitleParser;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * 按字幕文件的时间轴控制遮挡窗：只在有字幕的区间内显示。
+ * 加载完成的时刻视为播放开始，视频暂停或跳转后可以暂停同步，或者把某条字幕对齐到当前时刻；
+ * 用户还可以调整偏移量对齐视频，加载新文件时偏移量归零。
+ * 每次只安排下一次状态变化的定时器，不做轮询。
+ */
+class SubtitleSync {
+
+    private static final String TAG = "SubtitleSync";
+
+    /**
+     * 字幕同步状态的回调，在主线程调用
+     */
+    interface Listener {
+        void onSubtitleActiveChanged(boolean active);
+
+        void onSubtitleLoaded(boolean success);
+    }
+
+    private final Context context;
+    private final Listener listener;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private HandlerThread loaderThread;
+    private Handler loaderHandler;
+
+    private SubtitleIndex index;
+    private final SubtitleClock clock = new SubtitleClock();
+    // 遮挡窗是否应当显示，未同步时始终显示
+    private boolean active = true;
+    // 休眠期间不安排定时器；休眠时由这里暂停的时钟在唤醒时恢复，用户自己暂停的保持暂停
+    private boolean sleeping;
+    private boolean pausedForSleep;
+
+    private final Runnable updateRunnable = new Runnable() {
+        @Override
+        public void run() {
+            update();
+        }
+    };
+
+    SubtitleSync(Context context, Listener listener) {
+        this.context = context;
+        this.listener = listener;
+    }
+
+    boolean isRunning() {
+        return index != null;
+    }
+
+    /**
+     * 是否被用户暂停，休眠期间的自动暂停不算
+     */
+    boolean isPaused() {
+        return clock.isPaused() && !pausedForSleep;
+    }
+
+    long getOffsetMs() {
+        return clock.getOffset();
+    }
+
+    /**
+     * 在后台线程解析字幕文件，完成后从当前时刻开始同步
+     */
+    void load(final Uri uri) {
+        if (loaderThread == null) {
+            loaderThread = new HandlerThread("SubtitleLoader", Process.THREAD_PRIORITY_BACKGROUND);
+            loaderThread.start();
+            loaderHandler = new Handler(loaderThread.getLooper());
+        }
+        loaderHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                SubtitleIndex parsed = null;
+                try (InputStream in = context.getContentResolver().openInputStream(uri)) {
+                    if (in != null) {
+                        parsed = new SubtitleParser().parse(in);
+                    }
+                } catch (IOException | SecurityException e) {
+                    RingLog.e(TAG, "Failed to load subtitle {}", uri, e);
+                }
+                final SubtitleIndex result = parsed;
+                mainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (result == null || result.size() == 0) {
+                            listener.onSubtitleLoaded(false);
+                        } else {
+                            RingLog.d(TAG, "Loaded {} subtitle intervals", result.size());
+                            start(result);
+                            listener.onSubtitleLoaded(true);
+                        }
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * 从当前时刻开始按给定索引同步，上一个文件的偏移量不再适用
+     */
+    void start(SubtitleIndex index) {
+        this.index = index;
+        pausedForSleep = false;
+        clock.start(SystemClock.uptimeMillis());
+        update();
+    }
+
+    /**
+     * 调整偏移量，正值表示字幕提前
+     */
+    void adjustOffset(long deltaMs) {
+        setOffset(clock.getOffset() + deltaMs);
+    }
+
+    void setOffset(long offsetMs) {
+        clock.setOffset(offsetMs);
+        update();
+    }
+
+    /**
+     * 视频暂停时冻结播放位置，遮挡窗保持当前状态
+     */
+    void pause() {
+        pausedForSleep = false;
+        clock.pause(SystemClock.uptimeMillis());
+        update();
+    }
+
+    void resume() {
+        pausedForSleep = false;
+        clock.resume(SystemClock.uptimeMillis());
+        update();
+    }
+
+    /**
+     * 休眠时视频不在播放，冻结播放位置并取消定时器；唤醒时从冻结的位置继续，重新计算显示状态
+     */
+    void setSleeping(boolean sleeping) {
+        if (this.sleeping == sleeping) {
+            return;
+        }
+        this.sleeping = sleeping;
+        if (sleeping) {
+            mainHandler.removeCallbacks(updateRunnable);
+            if (index != null && !clock.isPaused()) {
+                clock.pause(SystemClock.uptimeMillis());
+                pausedForSleep = true;
+            }
+        } else {
+            if (pausedForSleep) {
+                pausedForSleep = false;
+                clock.resume(SystemClock.uptimeMillis());
+            }
+            update();
+        }
+    }
+
+    /**
+     * 把文件中第 cue 条字幕（从 0 开始）的开始对齐到当前时刻，
+     * 用于视频跳转之后重新同步。超出范围时忽略
+     */
+    void resyncToCue(int cue) {
+        if (index == null || cue < 0 || cue >= index.cueCount()) {
+            RingLog.w(TAG, "Ignoring resync to cue {}", cue);
+            return;
+        }
+        seek(index.getCueStart(cue));
+    }
+
+    /**
+     * 把离当前播放位置最近的字幕区间对齐到当前时刻，在视频中出现字幕的同时调用
+     */
+    void resyncToNearestCue() {
+        if (index != null) {
+            seek(index.getStart(index.nearest(clock.getPosition(SystemClock.uptimeMillis()))));
+        }
+    }
+
+    private void seek(long positionMs) {
+        clock.seek(positionMs, SystemClock.uptimeMillis());
+        update();
+    }
+
+    /**
+     * 停止同步，遮挡窗恢复常显
+     */
+    void stop() {
+        mainHandler.removeCallbacks(updateRunnable);
+        index = null;
+        pausedForSleep = false;
+        setActive(true);
+    }
+
+    void release() {
+        mainHandler.removeCallbacks(updateRunnable);
+        index = null;
+        if (loaderThread != null) {
+            loaderThread.quitSafely();
+            loaderThread = null;
+        }
+    }
+
+    /**
+     * 根据当前播放位置更新显示状态，并安排下一次状态变化
+     */
+    private void update() {
+        mainHandler.removeCallbacks(updateRunnable);
+        if (index == null) {
+            return;
+        }
+        long now = SystemClock.uptimeMillis();
+        long position = clock.getPosition(now);
+        setActive(index.isActive(position));
+
+        // 暂停期间位置不变，不需要定时器；休眠期间唤醒时再安排
+        long next = index.nextTransition(position);
+        if (next != SubtitleIndex.NO_TRANSITION && !clock.isPaused() && !sleeping) {
+            mainHandler.postAtTime(updateRunnable, now + (next - position));
+        }
+    }
+
+    private void setActive(boolean active) {
+        if (this.active != active) {
+            this.active = active;
+            listener.onSubtitleActiveChanged(active);
+        }
+    }
+}
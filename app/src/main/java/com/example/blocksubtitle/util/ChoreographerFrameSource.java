@@ -0,0 +1,44 @@
+package com.example.blocksubtitle.util;
+
+import android.view.Choreographer;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 基于 Choreographer 的帧信号来源，必须在主线程上创建和使用。
+ */
+public class ChoreographerFrameSource implements FrameCoalescer.FrameSource {
+
+    private final Choreographer choreographer = Choreographer.getInstance();
+
+    // 每个回调只包装一次，避免每帧分配新对象
+    private final Map<FrameCoalescer.FrameCallback, Choreographer.FrameCallback> wrappers = new HashMap<>();
+
+    @Override
+    public void postFrameCallback(FrameCoalescer.FrameCallback callback) {
+        choreographer.postFrameCallback(wrap(callback));
+    }
+
+    @Override
+    public void removeFrameCallback(FrameCoalescer.FrameCallback callback) {
+        Choreographer.FrameCallback wrapper = wrappers.get(callback);
+        if (wrapper != null) {
+            choreographer.removeFrameCallback(wrapper);
+        }
+    }
+
+    private Choreographer.FrameCallback wrap(final FrameCoalescer.FrameCallback callback) {
+        Choreographer.FrameCallback wrapper = wrappers.get(callback);
+        if (wrapper == null) {
+            wrapper = new Choreographer.FrameCallback() {
+                @Override
+                public void doFrame(long frameTimeNanos) {
+                    callback.doFrame(frameTimeNanos);
+                }
+            };
+            wrappers.put(callback, wrapper);
+        }
+        return wrapper;
+    }
+}
@@ -0,0 +1,226 @@
+package com.example.blocksubtitle.util;
+
+import java.util.Arrays;
+
+/**
+ * 一批自动化命令，文本格式为以分号或换行分隔的命令：
+ * <pre>
+ * add X Y W H          在最上层新增窗口
+ * remove INDEX         移除窗口，INDEX 从 0 开始，按层级从低到高
+ * bounds INDEX X Y W H 设置窗口边界
+ * hide / show          隐藏或显示所有窗口
+ * profile NAME         切换配置档，NAME 为 global 时使用全局配置档
+ * </pre>
+ * 解析时检查整批命令，包括窗口序号和尺寸是否有效，任何一条出错整批都不执行。
+ * 切换配置档之后的窗口序号只能在执行时检查，无效的命令会被跳过。
+ * 纯 Java 实现，可以在 JVM 上直接测试。
+ */
+public class CommandBatch {
+
+    private static final String TAG = "CommandBatch";
+
+    public static final int OP_ADD = 1;
+    public static final int OP_REMOVE = 2;
+    public static final int OP_BOUNDS = 3;
+    public static final int OP_HIDE = 4;
+    public static final int OP_SHOW = 5;
+    public static final int OP_PROFILE = 6;
+
+    // 每条命令最多的整数参数
+    private static final int MAX_ARGS = 5;
+
+    /**
+     * 执行命令的窗口集合，Android 上由遮挡窗管理器提供，便于在 JVM 上脱离 Android 验证
+     */
+    public interface Target {
+        int getWindowCount();
+
+        /**
+         * 开始批量操作，之后的布局推迟到 {@link #endBatch()}
+         */
+        void beginBatch();
+
+        void endBatch();
+
+        void addWindow(int x, int y, int width, int height);
+
+        void removeWindow(int index);
+
+        void setWindowBounds(int index, int x, int y, int width, int height);
+
+        void setHidden(boolean hidden);
+
+        void selectProfile(String profile);
+    }
+
+    private int count;
+    private int[] ops = new int[8];
+    private int[] args = new int[8 * MAX_ARGS];
+    private String[] names = new String[8];
+
+    /**
+     * 解析一批命令
+     *
+     * @param windowCount 执行前的窗口数，用于检查窗口序号
+     * @throws IllegalArgumentException 命令格式错误或窗口序号无效
+     */
+    public static CommandBatch parse(String text, int windowCount) {
+        CommandBatch batch = new CommandBatch();
+        int windows = windowCount;
+        // 切换配置档后窗口数取决于新配置档的记录，之后的序号只能在执行时检查
+        boolean known = true;
+        for (String command : text.split("[;\n]")) {
+            String[] parts = command.trim().split("\\s+");
+            if (parts.length == 0 || parts[0].isEmpty()) {
+                continue;
+            }
+            switch (parts[0]) {
+                case "add":
+                    batch.add(OP_ADD, null, checkSize(ints(parts, 4), 2));
+                    windows++;
+                    break;
+                case "remove":
+                    if (known && windows <= 1) {
+                        throw new IllegalArgumentException("Cannot remove the last window");
+                    }
+                    batch.add(OP_REMOVE, null, checkIndex(ints(parts, 1), known ? windows : Integer.MAX_VALUE));
+                    windows--;
+                    break;
+                case "bounds":
+                    batch.add(OP_BOUNDS, null, checkSize(checkIndex(ints(parts, 5), known ? windows : Integer.MAX_VALUE), 3));
+                    break;
+                case "hide":
+                    batch.add(OP_HIDE, null, ints(parts, 0));
+                    break;
+                case "show":
+                    batch.add(OP_SHOW, null, ints(parts, 0));
+                    break;
+                case "profile":
+                    if (parts.length != 2) {
+                        throw new IllegalArgumentException("Usage: profile NAME");
+                    }
+                    batch.add(OP_PROFILE, parts[1].equals("global") ? WindowStateHelper.GLOBAL_PROFILE : parts[1],
+                            new int[0]);
+                    known = false;
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown command: " + parts[0]);
+            }
+        }
+        return batch;
+    }
+
+    /**
+     * 在一次批量操作中依次执行所有命令
+     *
+     * @return 因窗口序号无效而跳过的命令数
+     */
+    public int apply(Target target) {
+        int skipped = 0;
+        target.beginBatch();
+        try {
+            for (int i = 0; i < count; i++) {
+                if (!apply(target, i)) {
+                    skipped++;
+                }
+            }
+        } finally {
+            target.endBatch();
+        }
+        return skipped;
+    }
+
+    public int size() {
+        return count;
+    }
+
+    public int getOp(int index) {
+        return ops[index];
+    }
+
+    public int getArg(int index, int which) {
+        return args[index * MAX_ARGS + which];
+    }
+
+    public String getName(int index) {
+        return names[index];
+    }
+
+    private boolean apply(Target target, int index) {
+        int windows = target.getWindowCount();
+        int window = getArg(index, 0);
+        switch (ops[index]) {
+            case OP_ADD:
+                target.addWindow(window, getArg(index, 1), getArg(index, 2), getArg(index, 3));
+                return true;
+            case OP_REMOVE:
+                // 切换配置档之后的序号在解析时无法检查
+                if (window >= windows || windows <= 1) {
+                    RingLog.w(TAG, "Skipped remove of window {}", window);
+                    return false;
+                }
+                target.removeWindow(window);
+                return true;
+            case OP_BOUNDS:
+                if (window >= windows) {
+                    RingLog.w(TAG, "Skipped bounds of window {}", window);
+                    return false;
+                }
+                target.setWindowBounds(window, getArg(index, 1), getArg(index, 2), getArg(index, 3),
+                        getArg(index, 4));
+                return true;
+            case OP_HIDE:
+                target.setHidden(true);
+                return true;
+            case OP_SHOW:
+                target.setHidden(false);
+                return true;
+            case OP_PROFILE:
+                target.selectProfile(names[index]);
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private void add(int op, String name, int[] values) {
+        if (count == ops.length) {
+            ops = Arrays.copyOf(ops, count * 2);
+            args = Arrays.copyOf(args, count * 2 * MAX_ARGS);
+            names = Arrays.copyOf(names, count * 2);
+        }
+        ops[count] = op;
+        names[count] = name;
+        System.arraycopy(values, 0, args, count * MAX_ARGS, values.length);
+        count++;
+    }
+
+    private static int[] ints(String[] parts, int expected) {
+        if (parts.length != expected + 1) {
+            throw new IllegalArgumentException(parts[0] + " takes " + expected + " arguments");
+        }
+        int[] values = new int[expected];
+        for (int i = 0; i < expected; i++) {
+            try {
+                values[i] = Integer.parseInt(parts[i + 1]);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Not a number: " + parts[i + 1]);
+            }
+        }
+        return values;
+    }
+
+    private static int[] checkSize(int[] values, int widthIndex) {
+        if (values[widthIndex] <= 0 || values[widthIndex + 1] <= 0) {
+            throw new IllegalArgumentException("Invalid size " + values[widthIndex] + "x" + values[widthIndex + 1]);
+        }
+        return values;
+    }
+
+    private static int[] checkIndex(int[] values, int windowCount) {
+        if (values[0] < 0 || values[0] >= windowCount) {
+            throw new IllegalArgumentException("No window " + values[0]);
+        }
+        return values;
+    }
+}
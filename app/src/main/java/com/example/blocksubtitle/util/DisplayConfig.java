@@ -0,0 +1,78 @@
+package com.example.blocksubtitle.util;
+
+import android.content.Context;
+import android.content.res.Resources;
+import android.graphics.Insets;
+import android.graphics.Rect;
+import android.os.Build;
+import android.util.DisplayMetrics;
+import android.view.WindowInsets;
+import android.view.WindowManager;
+import android.view.WindowMetrics;
+
+/**
+ * 当前显示配置的快照：屏幕尺寸、密度和系统栏占用的边距。
+ * 只在配置变化时重新获取，触摸路径上直接读取缓存的字段，不做系统调用。
+ * 方向和折叠屏的展开状态都体现在尺寸上，key 相同即视为同一种配置。
+ */
+public class DisplayConfig {
+
+    public final int width;
+    public final int height;
+    public final int densityDpi;
+
+    // 状态栏、导航栏等系统栏占用的边距
+    public final int insetLeft;
+    public final int insetTop;
+    public final int insetRight;
+    public final int insetBottom;
+
+    // 用于区分保存的布局，例如 "1080x2400@420"
+    public final String key;
+
+    public DisplayConfig(int width, int height, int densityDpi,
+                         int insetLeft, int insetTop, int insetRight, int insetBottom) {
+        this.width = width;
+        this.height = height;
+        this.densityDpi = densityDpi;
+        this.insetLeft = insetLeft;
+        this.insetTop = insetTop;
+        this.insetRight = insetRight;
+        this.insetBottom = insetBottom;
+        this.key = width + "x" + height + "@" + densityDpi;
+    }
+
+    public boolean isLandscape() {
+        return width > height;
+    }
+
+    /**
+     * 获取当前的显示配置
+     */
+    public static DisplayConfig current(Context context, WindowManager windowManager) {
+        int densityDpi = context.getResources().getConfiguration().densityDpi;
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.R) {
+            WindowMetrics metrics = windowManager.getMaximumWindowMetrics();
+            Rect bounds = metrics.getBounds();
+            Insets insets = metrics.getWindowInsets().getInsetsIgnoringVisibility(
+                    WindowInsets.Type.systemBars() | WindowInsets.Type.displayCutout());
+            return new DisplayConfig(bounds.width(), bounds.height(), densityDpi,
+                    insets.left, insets.top, insets.right, insets.bottom);
+        }
+
+        DisplayMetrics metrics = new DisplayMetrics();
+        windowManager.getDefaultDisplay().getRealMetrics(metrics);
+        Resources resources = context.getResources();
+        int statusBar = dimension(resources, "status_bar_height");
+        boolean landscape = metrics.widthPixels > metrics.heightPixels;
+        int navigationBar = dimension(resources,
+                landscape ? "navigation_bar_height_landscape" : "navigation_bar_height");
+        return new DisplayConfig(metrics.widthPixels, metrics.heightPixels, densityDpi,
+                0, statusBar, landscape ? navigationBar : 0, landscape ? 0 : navigationBar);
+    }
+
+    private static int dimension(Resources resources, String name) {
+        int id = resources.getIdentifier(name, "dimen", "android");
+        return id != 0 ? resources.getDimensionPixelSize(id) : 0;
+    }
+}
@@ -0,0 +1,153 @@
+package com.example.blocksubtitle.util;
+
+/**
+ * 抛掷惯性的逐帧计算：匀减速运动，速度在有限时间内线性衰减到 0。
+ * 开始时就按初速度算出停止点，停止点附近有磁吸目标时直接把停止点改为目标，
+ * 因此每帧只需几次乘法，窗口正好停在目标上，没有回弹也没有长时间的亚像素拖尾。
+ * 停止点交给 {@link LayoutConstraints} 求解，与拖动、缩放和加载状态使用同一套保持可见的规则。
+ * 纯 Java 实现，不分配任何对象，可以在 JVM 上直接测试。
+ */
+public class FlingStepper {
+
+    // 惯性滑行的距离 = 初速度 × 该时间
+    private static final float PROJECTION_SECONDS = 0.325f;
+
+    // 滑行时长的范围，以及只做磁吸时的时长
+    private static final long MIN_DURATION_NANOS = 120_000_000L;
+    private static final long MAX_DURATION_NANOS = 650_000_000L;
+    private static final long SNAP_DURATION_NANOS = 150_000_000L;
+
+    // 低于该速度（像素/秒）不产生惯性，只做磁吸
+    private final float minVelocity;
+
+    // 与磁吸目标的距离在该值以内时吸附（像素）
+    private final int snapDistance;
+
+    // 停止点的位置约束，可以与窗口的 WindowGeometry 共用
+    private LayoutConstraints constraints = new LayoutConstraints();
+
+    private int startX;
+    private int startY;
+    private int targetX;
+    private int targetY;
+    private long durationNanos;
+    private long startNanos;
+    private boolean running;
+
+    // 当前帧的位置
+    private int x;
+    private int y;
+
+    public FlingStepper(float minVelocity, int snapDistance) {
+        this.minVelocity = minVelocity;
+        this.snapDistance = snapDistance;
+    }
+
+    /**
+     * 使用给定的约束求解停止位置，窗口不会被甩出屏幕
+     */
+    public void setConstraints(LayoutConstraints constraints) {
+        this.constraints = constraints;
+    }
+
+    /**
+     * 开始一次抛掷
+     *
+     * @param velocityX 抬起手指时的速度（像素/秒）
+     * @param targets   已排序的磁吸目标，可以为 null
+     * @return 是否需要移动，不需要时窗口保持原位
+     */
+    public boolean start(int x, int y, int width, int height, float velocityX, float velocityY,
+                         SnapTargets targets) {
+        float speed = (float) Math.hypot(velocityX, velocityY);
+        boolean flinging = speed >= minVelocity;
+        int restX = x;
+        int restY = y;
+        if (flinging) {
+            restX = Math.round(x + velocityX * PROJECTION_SECONDS);
+            restY = Math.round(y + velocityY * PROJECTION_SECONDS);
+        }
+        constraints.solvePosition(restX, restY, width, height);
+        restX = constraints.x;
+        restY = constraints.y;
+        if (targets != null) {
+            int snappedX = targets.snapX(restX, width, snapDistance);
+            int snappedY = targets.snapY(restY, height, snapDistance);
+            if (snappedX != SnapTargets.NONE || snappedY != SnapTargets.NONE) {
+                // 吸附到其他窗口的边缘时也不能违反约束
+                constraints.solvePosition(snappedX != SnapTargets.NONE ? snappedX : restX,
+                        snappedY != SnapTargets.NONE ? snappedY : restY, width, height);
+                restX = constraints.x;
+                restY = constraints.y;
+            }
+        }
+        startX = x;
+        startY = y;
+        targetX = restX;
+        targetY = restY;
+        this.x = x;
+        this.y = y;
+        startNanos = 0;
+        if (flinging) {
+            // 匀减速：距离 = 初速度 × 时长 / 2
+            float distance = (float) Math.hypot(restX - x, restY - y);
+            long duration = (long) (2 * distance / speed * 1e9f);
+            durationNanos = Math.max(MIN_DURATION_NANOS, Math.min(duration, MAX_DURATION_NANOS));
+        } else {
+            durationNanos = SNAP_DURATION_NANOS;
+        }
+        running = restX != x || restY != y;
+        return running;
+    }
+
+    /**
+     * 计算某一帧的位置，第一次调用的帧时间作为起点
+     *
+     * @return 是否还需要下一帧
+     */
+    public boolean step(long frameTimeNanos) {
+        if (!running) {
+            return false;
+        }
+        if (startNanos == 0) {
+            startNanos = frameTimeNanos;
+        }
+        long elapsed = frameTimeNanos - startNanos;
+        if (elapsed >= durationNanos) {
+            x = targetX;
+            y = targetY;
+            running = false;
+            return false;
+        }
+        // 匀减速的位移比例为 1 - (1 - t)²
+        float remaining = 1f - (float) elapsed / durationNanos;
+        float progress = 1f - remaining * remaining;
+        x = Math.round(startX + (targetX - startX) * progress);
+        y = Math.round(startY + (targetY - startY) * progress);
+        return true;
+    }
+
+    public void stop() {
+        running = false;
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    public int getX() {
+        return x;
+    }
+
+    public int getY() {
+        return y;
+    }
+
+    public int getTargetX() {
+        return targetX;
+    }
+
+    public int getTargetY() {
+        return targetY;
+    }
+}
@@ -0,0 +1,163 @@
+package com.example.blocksubtitle.util;
+
+import android.app.AppOpsManager;
+import android.app.usage.UsageEvents;
+import android.app.usage.UsageStatsManager;
+import android.content.Context;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Looper;
+import android.os.Process;
+
+/**
+ * 检测前台应用的变化。
+ * 基于 UsageStatsManager 的增量事件查询：每次只读取上次查询之后的新事件，
+ * 前台应用没有变化时逐步拉长查询间隔，变化后再恢复到最短间隔。
+ * 查询在后台线程进行，结果回调到主线程。
+ * 每次 start() 创建独立的查询任务，持有自己的 Handler；stop() 只清除标记，
+ * 正在进行的查询结束后既不会再安排下一次，也不会回调。
+ */
+public class ForegroundAppDetector {
+
+    private static final String TAG = "ForegroundAppDetector";
+
+    // 查询间隔的范围
+    private static final long MIN_INTERVAL_MS = 1000;
+    private static final long MAX_INTERVAL_MS = 8000;
+
+    /**
+     * 前台应用变化的回调，在主线程调用
+     */
+    public interface Listener {
+        /**
+         * @param eventTimeMillis 系统记录的切换时间（System.currentTimeMillis() 时钟），用于统计检测延迟
+         */
+        void onForegroundAppChanged(String packageName, long eventTimeMillis);
+    }
+
+    private final Context context;
+    private final UsageStatsManager usageStatsManager;
+    private final Listener listener;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private HandlerThread pollThread;
+
+    // 当前的查询任务，只在主线程访问
+    private Poller poller;
+
+    // 最近检测到的前台应用，重新开始查询后相同的结果不再回调
+    private volatile String currentPackage;
+
+    /**
+     * 一次 start() 到 stop() 之间的查询任务，字段只在自己的查询线程访问
+     */
+    private class Poller implements Runnable {
+        final Handler handler;
+        private final UsageEvents.Event event = new UsageEvents.Event();
+        private long lastQueryTime;
+        private long interval = MIN_INTERVAL_MS;
+
+        // 在主线程清除，查询线程看到后停止
+        volatile boolean running = true;
+
+        Poller(Handler handler, long lastQueryTime) {
+            this.handler = handler;
+            this.lastQueryTime = lastQueryTime;
+        }
+
+        @Override
+        public void run() {
+            if (!running) {
+                return;
+            }
+            poll();
+            if (running) {
+                handler.postDelayed(this, interval);
+            }
+        }
+
+        private void poll() {
+            long now = System.currentTimeMillis();
+            String latest = null;
+            long latestTime = 0;
+            try {
+                UsageEvents events = usageStatsManager.queryEvents(lastQueryTime, now);
+                while (events.hasNextEvent()) {
+                    events.getNextEvent(event);
+                    if (event.getEventType() == UsageEvents.Event.MOVE_TO_FOREGROUND) {
+                        latest = event.getPackageName();
+                        latestTime = event.getTimeStamp();
+                    }
+                }
+            } catch (RuntimeException e) {
+                RingLog.w(TAG, "Failed to query usage events", e);
+            }
+            lastQueryTime = now;
+
+            if (latest != null && !latest.equals(currentPackage) && running) {
+                currentPackage = latest;
+                interval = MIN_INTERVAL_MS;
+                final String packageName = latest;
+                final long eventTime = latestTime;
+                mainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        // 查询期间已经停止
+                        if (running) {
+                            listener.onForegroundAppChanged(packageName, eventTime);
+                        }
+                    }
+                });
+            } else {
+                // 没有变化，逐步降低查询频率
+                interval = Math.min(interval * 2, MAX_INTERVAL_MS);
+            }
+        }
+    }
+
+    public ForegroundAppDetector(Context context, Listener listener) {
+        this.context = context.getApplicationContext();
+        this.usageStatsManager = (UsageStatsManager) context.getSystemService(Context.USAGE_STATS_SERVICE);
+        this.listener = listener;
+    }
+
+    /**
+     * 是否已获得“使用情况访问权限”
+     */
+    public static boolean hasPermission(Context context) {
+        AppOpsManager appOps = (AppOpsManager) context.getSystemService(Context.APP_OPS_SERVICE);
+        if (appOps == null) {
+            return false;
+        }
+        int mode = appOps.checkOpNoThrow(AppOpsManager.OPSTR_GET_USAGE_STATS,
+                Process.myUid(), context.getPackageName());
+        return mode == AppOpsManager.MODE_ALLOWED;
+    }
+
+    public void start() {
+        if (pollThread != null) {
+            return;
+        }
+        if (usageStatsManager == null || !hasPermission(context)) {
+            RingLog.w(TAG, "Usage access not granted, per-app profiles disabled");
+            return;
+        }
+        pollThread = new HandlerThread(TAG, Process.THREAD_PRIORITY_BACKGROUND);
+        pollThread.start();
+        // 第一次查询往前多看一段时间，找出当前的前台应用
+        poller = new Poller(new Handler(pollThread.getLooper()),
+                System.currentTimeMillis() - MAX_INTERVAL_MS * 8);
+        poller.handler.post(poller);
+    }
+
+    public void stop() {
+        if (pollThread == null) {
+            return;
+        }
+        // 正在进行的查询会执行完，之后不再安排下一次
+        poller.running = false;
+        poller.handler.removeCallbacks(poller);
+        pollThread.quitSafely();
+        pollThread = null;
+        poller = null;
+    }
+}
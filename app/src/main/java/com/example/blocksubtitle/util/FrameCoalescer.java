@@ -0,0 +1,106 @@
+package com.example.blocksubtitle.util;
+
+/**
+ * 按显示帧合并布局更新的工具类。
+ * 一帧之内无论请求多少次更新，都只会在下一帧回调中执行一次实际的布局操作。
+ * 帧信号通过 {@link FrameSource} 注入，便于在 JVM 上脱离 Android 进行验证。
+ */
+public class FrameCoalescer {
+
+    /**
+     * 帧回调
+     */
+    public interface FrameCallback {
+        void doFrame(long frameTimeNanos);
+    }
+
+    /**
+     * 帧信号来源，Android 上由 Choreographer 提供
+     */
+    public interface FrameSource {
+        void postFrameCallback(FrameCallback callback);
+
+        void removeFrameCallback(FrameCallback callback);
+    }
+
+    private final FrameSource frameSource;
+    private final Runnable applier;
+
+    // 是否已经向帧信号来源登记了回调
+    private boolean scheduled;
+
+    // 最近一次执行所在帧的 vsync 时间，不是在帧回调中执行时为 0
+    private long lastFrameTimeNanos;
+
+    // 统计：请求次数与实际执行次数
+    private long requestCount;
+    private long applyCount;
+
+    private final FrameCallback frameCallback = new FrameCallback() {
+        @Override
+        public void doFrame(long frameTimeNanos) {
+            if (!scheduled) {
+                return;
+            }
+            scheduled = false;
+            applyCount++;
+            lastFrameTimeNanos = frameTimeNanos;
+            applier.run();
+        }
+    };
+
+    public FrameCoalescer(FrameSource frameSource, Runnable applier) {
+        this.frameSource = frameSource;
+        this.applier = applier;
+    }
+
+    /**
+     * 请求在下一帧执行一次更新，同一帧内的重复请求会被合并
+     */
+    public void requestUpdate() {
+        requestCount++;
+        if (!scheduled) {
+            scheduled = true;
+            frameSource.postFrameCallback(frameCallback);
+        }
+    }
+
+    /**
+     * 立即执行尚未完成的更新（例如手指抬起时），保证最终位置不丢失
+     */
+    public void flush() {
+        if (scheduled) {
+            frameSource.removeFrameCallback(frameCallback);
+            scheduled = false;
+            applyCount++;
+            lastFrameTimeNanos = 0;
+            applier.run();
+        }
+    }
+
+    /**
+     * 放弃尚未执行的更新
+     */
+    public void cancel() {
+        if (scheduled) {
+            frameSource.removeFrameCallback(frameCallback);
+            scheduled = false;
+        }
+    }
+
+    public boolean isScheduled() {
+        return scheduled;
+    }
+
+    public long getLastFrameTimeNanos() {
+        return lastFrameTimeNanos;
+    }
+
+    public long getRequestCount() {
+        return requestCount;
+    }
+
+    public long getApplyCount() {
+        return applyCount;
+    }
+}
@@ -0,0 +1,164 @@
+package com.example.blocksubtitle.util;
+
+import java.io.PrintWriter;
+
+/**
+ * 休眠策略：根据媒体播放和屏幕状态决定遮挡窗是否休眠。
+ * <pre>
+ * 屏幕关闭                    → SCREEN_OFF（休眠）
+ * 屏幕打开且正在播放          → ACTIVE
+ * 屏幕打开、没有播放          → WAITING，超过 idleDelayMs 仍没有播放 → IDLE（休眠）
+ * </pre>
+ * 开始播放立即回到 ACTIVE；用户操作（例如调整窗口、点击通知）会让 IDLE 回到 WAITING 并重新计时。
+ * 时间由调用方传入，不依赖 Android，可以在 JVM 上用模拟的事件测试。
+ * 同时统计每个状态累计停留的时间。
+ */
+public class IdlePolicy {
+
+    public static final int STATE_ACTIVE = 0;
+    public static final int STATE_WAITING = 1;
+    public static final int STATE_IDLE = 2;
+    public static final int STATE_SCREEN_OFF = 3;
+
+    private static final String[] STATE_NAMES = {"active", "waiting", "idle", "screenOff"};
+
+    // 没有截止时间
+    public static final long NO_DEADLINE = -1;
+
+    /**
+     * 休眠状态变化的回调
+     */
+    public interface Listener {
+        void onSleepChanged(boolean sleeping);
+    }
+
+    private final long idleDelayMs;
+    private final Listener listener;
+
+    private boolean playing;
+    private boolean screenOn = true;
+
+    private int state = STATE_WAITING;
+    private long stateSince;
+    private long deadline = NO_DEADLINE;
+
+    // 每个状态累计停留的时间和进入次数，不包括当前这一段
+    private final long[] totals = new long[STATE_NAMES.length];
+    private final int[] entries = new int[STATE_NAMES.length];
+
+    public IdlePolicy(long idleDelayMs, Listener listener) {
+        this.idleDelayMs = idleDelayMs;
+        this.listener = listener;
+    }
+
+    /**
+     * 以当前的播放和屏幕状态开始，没有播放时从 WAITING 开始计时
+     */
+    public void start(boolean playing, boolean screenOn, long now) {
+        this.playing = playing;
+        this.screenOn = screenOn;
+        stateSince = now;
+        state = STATE_WAITING;
+        entries[STATE_WAITING]++;
+        deadline = now + idleDelayMs;
+        evaluate(now);
+    }
+
+    public void onPlaybackChanged(boolean playing, long now) {
+        if (this.playing != playing) {
+            this.playing = playing;
+            evaluate(now);
+        }
+    }
+
+    public void onScreenChanged(boolean screenOn, long now) {
+        if (this.screenOn != screenOn) {
+            this.screenOn = screenOn;
+            evaluate(now);
+        }
+    }
+
+    /**
+     * 用户在使用遮挡窗，休眠中立即唤醒，等待中重新计时
+     */
+    public void onUserActivity(long now) {
+        if (state == STATE_IDLE || state == STATE_WAITING) {
+            enter(STATE_WAITING, now);
+            deadline = now + idleDelayMs;
+        }
+    }
+
+    /**
+     * 到达 {@link #getDeadline()} 时调用，提前调用不会改变状态
+     */
+    public void onDeadline(long now) {
+        evaluate(now);
+    }
+
+    /**
+     * 下一次需要调用 {@link #onDeadline(long)} 的时间，只有 WAITING 有截止时间
+     */
+    public long getDeadline() {
+        return deadline;
+    }
+
+    public int getState() {
+        return state;
+    }
+
+    public boolean isSleeping() {
+        return isSleeping(state);
+    }
+
+    /**
+     * 某个状态累计停留的时间，包括当前正在停留的一段
+     */
+    public long getTimeInState(int state, long now) {
+        return totals[state] + (this.state == state ? now - stateSince : 0);
+    }
+
+    public void dump(PrintWriter pw, long now) {
+        pw.print("Idle policy: state=" + STATE_NAMES[state] + " playing=" + playing + " screenOn=" + screenOn);
+        for (int i = 0; i < STATE_NAMES.length; i++) {
+            pw.print(" " + STATE_NAMES[i] + "=" + getTimeInState(i, now) / 1000 + "s/" + entries[i]);
+        }
+        pw.println();
+    }
+
+    /**
+     * 根据当前条件决定状态，从 ACTIVE 或 SCREEN_OFF 进入 WAITING 时重新计时
+     */
+    private void evaluate(long now) {
+        if (!screenOn) {
+            enter(STATE_SCREEN_OFF, now);
+        } else if (playing) {
+            enter(STATE_ACTIVE, now);
+        } else if (state == STATE_ACTIVE || state == STATE_SCREEN_OFF) {
+            enter(STATE_WAITING, now);
+            deadline = now + idleDelayMs;
+        } else if (state == STATE_WAITING && now >= deadline) {
+            enter(STATE_IDLE, now);
+        }
+    }
+
+    private void enter(int next, long now) {
+        if (next != STATE_WAITING) {
+            deadline = NO_DEADLINE;
+        }
+        if (next == state) {
+            return;
+        }
+        boolean wasSleeping = isSleeping(state);
+        totals[state] += now - stateSince;
+        entries[next]++;
+        state = next;
+        stateSince = now;
+        if (wasSleeping != isSleeping(next)) {
+            listener.onSleepChanged(!wasSleeping);
+        }
+    }
+
+    private static boolean isSleeping(int state) {
+        return state == STATE_IDLE || state == STATE_SCREEN_OFF;
+    }
+}
@@ -0,0 +1,248 @@
+package com.example.blocksubtitle.util;
+
+/**
+ * 窗口布局约束求解：尺寸上下限 → 宽高比 → 屏幕范围 → 保持可见。
+ * <pre>
+ * 尺寸    在 [min, max] 之内，设置了屏幕范围时不超过屏幕尺寸
+ * 宽高比  锁定时按主方向推算另一方向，超出限制时再反推
+ * 位置    keepVisible 为 0 时整个窗口在屏幕范围内；
+ *         大于 0 时每个方向至少有 keepVisible 像素（窗口更小时为整个窗口）落在安全区域内
+ * </pre>
+ * 安全区域是屏幕范围去掉系统栏边距，保证留在屏幕上的部分不会被状态栏或导航栏挡住而无法拖动。
+ * 屏幕范围只在显示配置变化时更新，多个窗口可以共用同一个实例。
+ * 求解结果写入公开字段，每帧调用时不分配任何对象。
+ */
+public class LayoutConstraints {
+
+    public static final int DEFAULT_MIN_SIZE = 50;
+
+    // 求解结果
+    public int x;
+    public int y;
+    public int width;
+    public int height;
+
+    // 尺寸限制
+    private int minWidth = DEFAULT_MIN_SIZE;
+    private int minHeight = DEFAULT_MIN_SIZE;
+    private int maxWidth = Integer.MAX_VALUE;
+    private int maxHeight = Integer.MAX_VALUE;
+
+    // 宽高比锁定 (width / height)，0 表示不锁定
+    private float aspectRatio;
+
+    // 屏幕范围
+    private boolean hasBounds;
+    private int boundsLeft;
+    private int boundsTop;
+    private int boundsRight;
+    private int boundsBottom;
+
+    // 安全区域，默认与屏幕范围相同
+    private int safeLeft;
+    private int safeTop;
+    private int safeRight;
+    private int safeBottom;
+
+    // 每个方向至少保持可见的像素，0 表示整个窗口都要在屏幕范围内
+    private int keepVisible;
+
+    public void setMinSize(int minWidth, int minHeight) {
+        this.minWidth = minWidth;
+        this.minHeight = minHeight;
+    }
+
+    public void setMaxSize(int maxWidth, int maxHeight) {
+        this.maxWidth = maxWidth;
+        this.maxHeight = maxHeight;
+    }
+
+    /**
+     * 锁定宽高比，传入 0 取消锁定
+     */
+    public void setAspectRatio(float aspectRatio) {
+        this.aspectRatio = aspectRatio;
+    }
+
+    public float getAspectRatio() {
+        return aspectRatio;
+    }
+
+    /**
+     * 设置屏幕范围，安全区域同时重置为整个屏幕
+     */
+    public void setBounds(int left, int top, int right, int bottom) {
+        boundsLeft = left;
+        boundsTop = top;
+        boundsRight = right;
+        boundsBottom = bottom;
+        safeLeft = left;
+        safeTop = top;
+        safeRight = right;
+        safeBottom = bottom;
+        hasBounds = true;
+    }
+
+    /**
+     * 从屏幕范围的四边去掉系统栏边距作为安全区域，需要先设置屏幕范围
+     */
+    public void setInsets(int left, int top, int right, int bottom) {
+        safeLeft = boundsLeft + left;
+        safeTop = boundsTop + top;
+        safeRight = Math.max(safeLeft, boundsRight - right);
+        safeBottom = Math.max(safeTop, boundsBottom - bottom);
+    }
+
+    public void clearBounds() {
+        hasBounds = false;
+    }
+
+    public boolean hasBounds() {
+        return hasBounds;
+    }
+
+    /**
+     * 设置每个方向至少保持可见的像素，传入 0 要求整个窗口都在屏幕范围内
+     */
+    public void setKeepVisible(int keepVisible) {
+        this.keepVisible = keepVisible;
+    }
+
+    public int getMinWidth() {
+        return minWidth;
+    }
+
+    public int getMinHeight() {
+        return minHeight;
+    }
+
+    /**
+     * 宽度上限，设置了屏幕范围时不超过屏幕宽度，且不小于下限
+     */
+    public int getMaxWidth() {
+        int max = maxWidth;
+        if (hasBounds) {
+            max = Math.min(max, boundsRight - boundsLeft);
+        }
+        return Math.max(max, minWidth);
+    }
+
+    public int getMaxHeight() {
+        int max = maxHeight;
+        if (hasBounds) {
+            max = Math.min(max, boundsBottom - boundsTop);
+        }
+        return Math.max(max, minHeight);
+    }
+
+    /**
+     * 某条竖边固定不动时的宽度上限。要求整个窗口在屏幕内时，还受固定边到屏幕边缘的距离限制
+     *
+     * @param edge          固定边的横坐标
+     * @param anchoredRight 固定的是否为右边
+     */
+    public int getMaxWidthFrom(int edge, boolean anchoredRight) {
+        int max = getMaxWidth();
+        if (hasBounds && keepVisible <= 0) {
+            max = Math.min(max, anchoredRight ? edge - boundsLeft : boundsRight - edge);
+        }
+        return Math.max(max, minWidth);
+    }
+
+    public int getMaxHeightFrom(int edge, boolean anchoredBottom) {
+        int max = getMaxHeight();
+        if (hasBounds && keepVisible <= 0) {
+            max = Math.min(max, anchoredBottom ? edge - boundsTop : boundsBottom - edge);
+        }
+        return Math.max(max, minHeight);
+    }
+
+    /**
+     * 按尺寸限制和宽高比求解尺寸，结果写入 {@link #width} 和 {@link #height}
+     *
+     * @param widthLeads 锁定宽高比时是否以宽度为准推算高度
+     */
+    public void solveSize(int width, int height, int maxW, int maxH, boolean widthLeads) {
+        int newWidth = clamp(width, minWidth, maxW);
+        int newHeight = clamp(height, minHeight, maxH);
+        // 已经符合宽高比（在取整误差以内）时保持不变，否则反推出的尺寸再次加载时可能差一个像素
+        if (aspectRatio > 0f && Math.round(newHeight * aspectRatio) != newWidth
+                && Math.round(newWidth / aspectRatio) != newHeight) {
+            if (widthLeads) {
+                // 以宽度为准推算高度，超出限制时再反推宽度
+                newHeight = Math.round(newWidth / aspectRatio);
+                if (newHeight > maxH || newHeight < minHeight) {
+                    newHeight = clamp(newHeight, minHeight, maxH);
+                    newWidth = Math.round(newHeight * aspectRatio);
+                }
+            } else {
+                newWidth = Math.round(newHeight * aspectRatio);
+                if (newWidth > maxW || newWidth < minWidth) {
+                    newWidth = clamp(newWidth, minWidth, maxW);
+                    newHeight = Math.round(newWidth / aspectRatio);
+                }
+            }
+            // 反推的一边可能因为取整差一个像素，限制优先于宽高比
+            newWidth = clamp(newWidth, minWidth, maxW);
+            newHeight = clamp(newHeight, minHeight, maxH);
+        }
+        this.width = newWidth;
+        this.height = newHeight;
+    }
+
+    /**
+     * 按屏幕范围和保持可见的规则求解位置，结果写入 {@link #x} 和 {@link #y}
+     */
+    public void solvePosition(int x, int y, int width, int height) {
+        if (!hasBounds) {
+            this.x = x;
+            this.y = y;
+            return;
+        }
+        if (keepVisible <= 0) {
+            // 窗口比屏幕还大时，优先保证左上角可见
+            this.x = Math.max(boundsLeft, Math.min(x, boundsRight - width));
+            this.y = Math.max(boundsTop, Math.min(y, boundsBottom - height));
+            return;
+        }
+        int visibleX = Math.min(keepVisible, Math.min(width, safeRight - safeLeft));
+        int visibleY = Math.min(keepVisible, Math.min(height, safeBottom - safeTop));
+        this.x = Math.max(safeLeft + visibleX - width, Math.min(x, safeRight - visibleX));
+        this.y = Math.max(safeTop + visibleY - height, Math.min(y, safeBottom - visibleY));
+    }
+
+    /**
+     * 完整求解：先尺寸后位置，用于加载保存的状态和外部设置的边界
+     *
+     * @return 结果与输入是否不同
+     */
+    public boolean solve(int x, int y, int width, int height) {
+        solveSize(width, height, getMaxWidth(), getMaxHeight(), true);
+        solvePosition(x, y, this.width, this.height);
+        return this.x != x || this.y != y || this.width != width || this.height != height;
+    }
+
+    /**
+     * 判断边界是否满足所有约束，用于诊断和测试
+     */
+    public boolean isSatisfied(int x, int y, int width, int height) {
+        if (width < minWidth || width > getMaxWidth() || height < minHeight || height > getMaxHeight()) {
+            return false;
+        }
+        if (!hasBounds) {
+            return true;
+        }
+        if (keepVisible <= 0) {
+            return width > boundsRight - boundsLeft || height > boundsBottom - boundsTop
+                    || (x >= boundsLeft && y >= boundsTop && x + width <= boundsRight && y + height <= boundsBottom);
+        }
+        int visibleX = Math.min(keepVisible, Math.min(width, safeRight - safeLeft));
+        int visibleY = Math.min(keepVisible, Math.min(height, safeBottom - safeTop));
+        return Math.min(x + width, safeRight) - Math.max(x, safeLeft) >= visibleX
+                && Math.min(y + height, safeBottom) - Math.max(y, safeTop) >= visibleY;
+    }
+
+    private static int clamp(int value, int min, int max) {
+        return value < min ? min : (value > max ? max : value);
+    }
+}
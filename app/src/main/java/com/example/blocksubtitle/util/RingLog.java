@@ -0,0 +1,237 @@
+package com.example.blocksubtitle.util;
+
+import android.util.Log;
+
+import java.io.PrintWriter;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+
+/**
+ * 应用内的日志：事件以基本类型写入预分配的环形缓冲区，需要时通过 dumpsys 导出，用于问题反馈。
+ * 消息是带 {} 占位符的常量字符串，参数以 long 或对象引用保存，只有导出或转发到 logcat 时才拼接字符串，
+ * 低于记录级别的调用在第一行返回，不产生任何分配。
+ *
+ * 占位符依次由对象参数（如果有）和 long 参数填充；异常不占用占位符，导出时附在消息后面。
+ */
+public final class RingLog {
+
+    // 与 android.util.Log 的级别一致
+    public static final int DEBUG = Log.DEBUG;
+    public static final int INFO = Log.INFO;
+    public static final int WARN = Log.WARN;
+    public static final int ERROR = Log.ERROR;
+
+    // 缓冲区能保存的事件数，写满后覆盖最旧的事件
+    private static final int CAPACITY = 512;
+    private static final int MAX_ARGS = 4;
+
+    // 写入缓冲区和转发到 logcat 的最低级别
+    private static volatile int bufferLevel = DEBUG;
+    private static volatile int logcatLevel = WARN;
+
+    private static final long[] times = new long[CAPACITY];
+    private static final byte[] levels = new byte[CAPACITY];
+    private static final byte[] argCounts = new byte[CAPACITY];
+    private static final String[] tags = new String[CAPACITY];
+    private static final String[] messages = new String[CAPACITY];
+    private static final Object[] objects = new Object[CAPACITY];
+    private static final Throwable[] throwables = new Throwable[CAPACITY];
+    private static final long[] args = new long[CAPACITY * MAX_ARGS];
+
+    // 已写入的事件总数，下一个事件的位置为 total % CAPACITY
+    private static long total;
+
+    private RingLog() {
+    }
+
+    /**
+     * 某个级别的日志是否会被记录，拼接参数本身有开销时先检查
+     */
+    public static boolean isLoggable(int level) {
+        return level >= bufferLevel || level >= logcatLevel;
+    }
+
+    public static void setBufferLevel(int level) {
+        bufferLevel = level;
+    }
+
+    public static void setLogcatLevel(int level) {
+        logcatLevel = level;
+    }
+
+    public static void d(String tag, String message) {
+        log(DEBUG, tag, message, null, null, 0, 0, 0, 0, 0);
+    }
+
+    public static void d(String tag, String message, long a) {
+        log(DEBUG, tag, message, null, null, 1, a, 0, 0, 0);
+    }
+
+    public static void d(String tag, String message, long a, long b) {
+        log(DEBUG, tag, message, null, null, 2, a, b, 0, 0);
+    }
+
+    public static void d(String tag, String message, long a, long b, long c, long d) {
+        log(DEBUG, tag, message, null, null, 4, a, b, c, d);
+    }
+
+    public static void d(String tag, String message, Object object) {
+        log(DEBUG, tag, message, object, null, 0, 0, 0, 0, 0);
+    }
+
+    public static void d(String tag, String message, Object object, long a) {
+        log(DEBUG, tag, message, object, null, 1, a, 0, 0, 0);
+    }
+
+    public static void w(String tag, String message) {
+        log(WARN, tag, message, null, null, 0, 0, 0, 0, 0);
+    }
+
+    public static void w(String tag, String message, long a) {
+        log(WARN, tag, message, null, null, 1, a, 0, 0, 0);
+    }
+
+    public static void w(String tag, String message, Object object) {
+        log(WARN, tag, message, object, null, 0, 0, 0, 0, 0);
+    }
+
+    public static void w(String tag, String message, Object object, long a) {
+        log(WARN, tag, message, object, null, 1, a, 0, 0, 0);
+    }
+
+    public static void w(String tag, String message, Throwable throwable) {
+        log(WARN, tag, message, null, throwable, 0, 0, 0, 0, 0);
+    }
+
+    public static void e(String tag, String message) {
+        log(ERROR, tag, message, null, null, 0, 0, 0, 0, 0);
+    }
+
+    public static void e(String tag, String message, Throwable throwable) {
+        log(ERROR, tag, message, null, throwable, 0, 0, 0, 0, 0);
+    }
+
+    public static void e(String tag, String message, Object object, Throwable throwable) {
+        log(ERROR, tag, message, object, throwable, 0, 0, 0, 0, 0);
+    }
+
+    private static void log(int level, String tag, String message, Object object, Throwable throwable,
+                            int argCount, long a, long b, long c, long d) {
+        boolean toBuffer = level >= bufferLevel;
+        boolean toLogcat = level >= logcatLevel;
+        if (!toBuffer && !toLogcat) {
+            return;
+        }
+        if (toBuffer) {
+            long now = System.currentTimeMillis();
+            synchronized (RingLog.class) {
+                int slot = (int) (total % CAPACITY);
+                times[slot] = now;
+                levels[slot] = (byte) level;
+                argCounts[slot] = (byte) argCount;
+                tags[slot] = tag;
+                messages[slot] = message;
+                objects[slot] = object;
+                throwables[slot] = throwable;
+                int base = slot * MAX_ARGS;
+                args[base] = a;
+                args[base + 1] = b;
+                args[base + 2] = c;
+                args[base + 3] = d;
+                total++;
+            }
+        }
+        if (toLogcat) {
+            String text = format(message, object, argCount, a, b, c, d);
+            if (throwable != null) {
+                Log.println(level, tag, text + '\n' + Log.getStackTraceString(throwable));
+            } else {
+                Log.println(level, tag, text);
+            }
+        }
+    }
+
+    /**
+     * 按从旧到新的顺序导出缓冲区中的事件
+     */
+    public static void dump(PrintWriter pw) {
+        SimpleDateFormat timeFormat = new SimpleDateFormat("MM-dd HH:mm:ss.SSS", Locale.US);
+        Date date = new Date();
+        synchronized (RingLog.class) {
+            long first = Math.max(0, total - CAPACITY);
+            pw.println("log: " + (total - first) + " of " + total + " events");
+            for (long i = first; i < total; i++) {
+                int slot = (int) (i % CAPACITY);
+                int base = slot * MAX_ARGS;
+                date.setTime(times[slot]);
+                pw.print(timeFormat.format(date));
+                pw.print(' ');
+                pw.print(levelChar(levels[slot]));
+                pw.print(' ');
+                pw.print(tags[slot]);
+                pw.print(": ");
+                pw.println(format(messages[slot], objects[slot], argCounts[slot],
+                        args[base], args[base + 1], args[base + 2], args[base + 3]));
+                if (throwables[slot] != null) {
+                    pw.println(Log.getStackTraceString(throwables[slot]));
+                }
+            }
+        }
+    }
+
+    /**
+     * 清空缓冲区，释放对象参数的引用
+     */
+    public static void clear() {
+        synchronized (RingLog.class) {
+            total = 0;
+            for (int i = 0; i < CAPACITY; i++) {
+                tags[i] = null;
+                messages[i] = null;
+                objects[i] = null;
+                throwables[i] = null;
+            }
+        }
+    }
+
+    private static String format(String message, Object object, int argCount,
+                                 long a, long b, long c, long d) {
+        if (object == null && argCount == 0) {
+            return message;
+        }
+        StringBuilder sb = new StringBuilder(message.length() + 32);
+        int next = object != null ? -1 : 0; // -1 表示下一个占位符使用对象参数
+        int start = 0;
+        int index;
+        while ((index = message.indexOf("{}", start)) >= 0) {
+            sb.append(message, start, index);
+            if (next < 0) {
+                sb.append(object);
+            } else if (next < argCount) {
+                sb.append(next == 0 ? a : next == 1 ? b : next == 2 ? c : d);
+            } else {
+                sb.append("{}");
+            }
+            next++;
+            start = index + 2;
+        }
+        sb.append(message, start, message.length());
+        return sb.toString();
+    }
+
+    private static char levelChar(int level) {
+        switch (level) {
+            case DEBUG:
+                return 'D';
+            case INFO:
+                return 'I';
+            case WARN:
+                return 'W';
+            case ERROR:
+                return 'E';
+            default:
+                return 'V';
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.example.blocksubtitle.util;
+
+import java.util.Arrays;
+
+/**
+ * 磁吸目标：屏幕边缘、系统栏边界和其他遮挡窗的边缘。
+ * 水平和垂直方向各保存一个有序数组，查找最近的目标只需一次二分查找。
+ * 数组容量不足时才会扩容，重复构建不分配对象。
+ */
+public class SnapTargets {
+
+    // 没有可吸附的目标
+    public static final int NONE = Integer.MIN_VALUE;
+
+    private int[] xs = new int[16];
+    private int[] ys = new int[16];
+    private int xCount;
+    private int yCount;
+
+    public void clear() {
+        xCount = 0;
+        yCount = 0;
+    }
+
+    /**
+     * 添加一条竖直的目标线（x 坐标）
+     */
+    public void addX(int x) {
+        if (xCount == xs.length) {
+            xs = Arrays.copyOf(xs, xCount * 2);
+        }
+        xs[xCount++] = x;
+    }
+
+    /**
+     * 添加一条水平的目标线（y 坐标）
+     */
+    public void addY(int y) {
+        if (yCount == ys.length) {
+            ys = Arrays.copyOf(ys, yCount * 2);
+        }
+        ys[yCount++] = y;
+    }
+
+    /**
+     * 添加一个矩形的四条边
+     */
+    public void addRect(int left, int top, int right, int bottom) {
+        addX(left);
+        addX(right);
+        addY(top);
+        addY(bottom);
+    }
+
+    /**
+     * 添加完所有目标后排序，之后才能查找
+     */
+    public void sort() {
+        Arrays.sort(xs, 0, xCount);
+        Arrays.sort(ys, 0, yCount);
+    }
+
+    /**
+     * 窗口左边为 left、宽度为 width 时，左边或右边吸附到最近目标后的左边位置
+     *
+     * @return 吸附后的左边位置，两条边都没有 maxDistance 以内的目标时返回 NONE
+     */
+    public int snapX(int left, int width, int maxDistance) {
+        return snap(xs, xCount, left, width, maxDistance);
+    }
+
+    /**
+     * 窗口上边为 top、高度为 height 时，上边或下边吸附到最近目标后的上边位置
+     */
+    public int snapY(int top, int height, int maxDistance) {
+        return snap(ys, yCount, top, height, maxDistance);
+    }
+
+    private static int snap(int[] targets, int count, int start, int size, int maxDistance) {
+        int nearStart = nearest(targets, count, start);
+        int nearEnd = nearest(targets, count, start + size);
+        long startDistance = nearStart == NONE ? Long.MAX_VALUE : Math.abs((long) nearStart - start);
+        long endDistance = nearEnd == NONE ? Long.MAX_VALUE : Math.abs((long) nearEnd - start - size);
+        if (startDistance <= endDistance && startDistance <= maxDistance) {
+            return nearStart;
+        }
+        if (endDistance <= maxDistance) {
+            return nearEnd - size;
+        }
+        return NONE;
+    }
+
+    private static int nearest(int[] targets, int count, int value) {
+        if (count == 0) {
+            return NONE;
+        }
+        int index = Arrays.binarySearch(targets, 0, count, value);
+        if (index >= 0) {
+            return value;
+        }
+        int insertion = -index - 1;
+        if (insertion == 0) {
+            return targets[0];
+        }
+        if (insertion == count) {
+            return targets[count - 1];
+        }
+        int below = targets[insertion - 1];
+        int above = targets[insertion];
+        return value - below <= above - value ? below : above;
+    }
+}
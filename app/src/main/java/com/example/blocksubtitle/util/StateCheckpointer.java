@@ -0,0 +1,203 @@
+package com.example.blocksubtitle.util;
+
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Looper;
+import android.os.Process;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+/**
+ * 在用户调整窗口的过程中定期保存状态，防止进程被杀后丢失本次的调整。
+ * 主线程只负责节流和取快照，写入在后台线程按提交顺序进行。
+ * 每条记录（配置档和显示配置）最多保留一个未写入的快照，被同一记录更新的快照覆盖；
+ * 不同记录共用归一化坐标等键，因此最后提交的快照总是最后写入。
+ */
+public class StateCheckpointer {
+
+    private static final String TAG = "StateCheckpointer";
+
+    // 两次保存之间的最短间隔
+    private static final long CHECKPOINT_INTERVAL_MS = 500;
+
+    /**
+     * 状态快照的来源，在主线程调用
+     */
+    public interface Source {
+        /**
+         * 当前状态所属的配置档
+         */
+        String getProfile();
+
+        /**
+         * 当前状态所属的显示配置
+         */
+        DisplayConfig getDisplayConfig();
+
+        List<WindowStateHelper.WindowState> snapshot();
+    }
+
+    /**
+     * 任务调度，Android 上由 Handler 提供，便于在 JVM 上脱离 Android 验证
+     */
+    public interface Scheduler {
+        void post(Runnable task);
+
+        void postDelayed(Runnable task, long delayMs);
+
+        void removeCallbacks(Runnable task);
+    }
+
+    /**
+     * 等待写入的快照
+     */
+    private static class Snapshot {
+        final String profile;
+        final DisplayConfig config;
+        final List<WindowStateHelper.WindowState> states;
+
+        Snapshot(String profile, DisplayConfig config, List<WindowStateHelper.WindowState> states) {
+            this.profile = profile;
+            this.config = config;
+            this.states = states;
+        }
+
+        String record() {
+            return profile + "@" + config.key;
+        }
+    }
+
+    private final WindowStateHelper windowStateHelper;
+    private final Source source;
+    private final Scheduler mainScheduler;
+    private final Scheduler writerScheduler;
+
+    // 写入线程，注入调度器时为 null
+    private final HandlerThread writerThread;
+
+    // 等待写入的快照，以记录名为键，按提交顺序排列，访问时锁住自身
+    private final LinkedHashMap<String, Snapshot> pending = new LinkedHashMap<>();
+
+    // 是否已经安排了一次保存
+    private boolean scheduled;
+
+    private final Runnable snapshotRunnable = new Runnable() {
+        @Override
+        public void run() {
+            scheduled = false;
+            submit(new Snapshot(source.getProfile(), source.getDisplayConfig(), source.snapshot()));
+        }
+    };
+
+    private final Runnable writeRunnable = new Runnable() {
+        @Override
+        public void run() {
+            while (true) {
+                Snapshot snapshot;
+                synchronized (pending) {
+                    Iterator<Snapshot> iterator = pending.values().iterator();
+                    if (!iterator.hasNext()) {
+                        return;
+                    }
+                    snapshot = iterator.next();
+                    iterator.remove();
+                }
+                if (!windowStateHelper.commitWindowStates(snapshot.profile, snapshot.config, snapshot.states)) {
+                    RingLog.w(TAG, "Failed to write window state");
+                }
+            }
+        }
+    };
+
+    public StateCheckpointer(WindowStateHelper windowStateHelper, Source source) {
+        this.windowStateHelper = windowStateHelper;
+        this.source = source;
+        mainScheduler = new HandlerScheduler(new Handler(Looper.getMainLooper()));
+        writerThread = new HandlerThread("StateCheckpointer", Process.THREAD_PRIORITY_BACKGROUND);
+        writerThread.start();
+        writerScheduler = new HandlerScheduler(new Handler(writerThread.getLooper()));
+    }
+
+    /**
+     * 使用注入的调度器，mainScheduler 上的任务必须与其他方法在同一线程执行
+     */
+    public StateCheckpointer(WindowStateHelper windowStateHelper, Source source,
+                             Scheduler mainScheduler, Scheduler writerScheduler) {
+        this.windowStateHelper = windowStateHelper;
+        this.source = source;
+        this.mainScheduler = mainScheduler;
+        this.writerScheduler = writerScheduler;
+        writerThread = null;
+    }
+
+    /**
+     * 标记状态已改变，在主线程调用。一个间隔内的多次调用只会保存一次
+     */
+    public void markDirty() {
+        if (!scheduled) {
+            scheduled = true;
+            mainScheduler.postDelayed(snapshotRunnable, CHECKPOINT_INTERVAL_MS);
+        }
+    }
+
+    /**
+     * 立即保存当前状态，例如切换配置档或显示配置之前
+     */
+    public void flush() {
+        mainScheduler.removeCallbacks(snapshotRunnable);
+        scheduled = false;
+        List<WindowStateHelper.WindowState> states = source.snapshot();
+        if (!states.isEmpty()) {
+            submit(new Snapshot(source.getProfile(), source.getDisplayConfig(), states));
+        }
+    }
+
+    /**
+     * 立即保存最终状态并结束后台线程。写入按顺序执行，旧快照不会覆盖最终状态
+     */
+    public void close() {
+        flush();
+        if (writerThread != null) {
+            writerThread.quitSafely();
+        }
+    }
+
+    private void submit(Snapshot snapshot) {
+        boolean idle;
+        synchronized (pending) {
+            idle = pending.isEmpty();
+            // 同一记录的旧快照直接丢弃，新快照排到最后
+            String record = snapshot.record();
+            pending.remove(record);
+            pending.put(record, snapshot);
+        }
+        if (idle) {
+            writerScheduler.post(writeRunnable);
+        }
+    }
+
+    private static class HandlerScheduler implements Scheduler {
+        private final Handler handler;
+
+        HandlerScheduler(Handler handler) {
+            this.handler = handler;
+        }
+
+        @Override
+        public void post(Runnable task) {
+            handler.post(task);
+        }
+
+        @Override
+        public void postDelayed(Runnable task, long delayMs) {
+            handler.postDelayed(task, delayMs);
+        }
+
+        @Override
+        public void removeCallbacks(Runnable task) {
+            handler.removeCallbacks(task);
+        }
+    }
+}
@@ -0,0 +1,182 @@
+package com.example.blocksubtitle.util;
+
+import java.util.Arrays;
+
+/**
+ * 从低分辨率的亮度帧中寻找字幕所在的水平条带。
+ * 字幕文字在水平方向上有密集的高对比度边缘，并且总是出现在固定的高度，
+ * 因此对每一行的边缘密度做指数衰减累计，取持续最强的一段连续行作为条带，
+ * 再在条带内按列累计确定左右范围。连续几帧条带位置稳定后才认为检测成功。
+ * 纯 Java 实现，所有缓冲区在 {@link #configure(int, int)} 时分配，逐帧分析不分配对象。
+ */
+public class SubtitleBandDetector {
+
+    // 相邻像素亮度差超过该值视为边缘
+    private static final int EDGE_THRESHOLD = 48;
+
+    // 每帧累计值的衰减系数
+    private static final float DECAY = 0.8f;
+
+    // 峰值行的平均边缘密度（边缘数 / 宽度）低于该值时认为画面中没有字幕
+    private static final float MIN_ROW_DENSITY = 0.04f;
+
+    // 累计值达到峰值的这一比例的相邻行并入条带
+    private static final float BAND_RATIO = 0.5f;
+
+    // 累计值达到列峰值的这一比例的列计入左右范围
+    private static final float COLUMN_RATIO = 0.2f;
+
+    // 条带中心连续多少帧移动不超过 MAX_CENTER_DRIFT 行才算稳定
+    private static final int STABLE_FRAMES = 3;
+    private static final int MAX_CENTER_DRIFT = 2;
+
+    private int width;
+    private int height;
+    private float[] rowScores;
+    private float[] columnScores;
+
+    // 衰减累计的总权重，用于换算平均密度
+    private float weight;
+    private int stableFrames;
+    private int lastCenter = -1;
+
+    // 检测结果，帧坐标，右、下为开区间
+    private int bandLeft;
+    private int bandTop;
+    private int bandRight;
+    private int bandBottom;
+
+    /**
+     * 设置帧尺寸并分配缓冲区，尺寸不变时直接复用
+     */
+    public void configure(int width, int height) {
+        if (width != this.width || height != this.height) {
+            this.width = width;
+            this.height = height;
+            rowScores = new float[height];
+            columnScores = new float[width];
+        }
+        reset();
+    }
+
+    public void reset() {
+        if (rowScores != null) {
+            Arrays.fill(rowScores, 0f);
+            Arrays.fill(columnScores, 0f);
+        }
+        weight = 0f;
+        stableFrames = 0;
+        lastCenter = -1;
+    }
+
+    /**
+     * 分析一帧亮度数据
+     *
+     * @param luma      每像素一个字节的亮度
+     * @param rowStride 每行的字节数
+     * @return 条带是否已经稳定
+     */
+    public boolean analyze(byte[] luma, int rowStride) {
+        weight = weight * DECAY + 1f;
+
+        // 逐行统计边缘数并累计，记录峰值行
+        int peakRow = -1;
+        float peak = 0f;
+        for (int y = 0; y < height; y++) {
+            int offset = y * rowStride;
+            int edges = 0;
+            int previous = luma[offset] & 0xFF;
+            for (int x = 1; x < width; x++) {
+                int current = luma[offset + x] & 0xFF;
+                int diff = current - previous;
+                if (diff > EDGE_THRESHOLD || diff < -EDGE_THRESHOLD) {
+                    edges++;
+                }
+                previous = current;
+            }
+            float score = rowScores[y] * DECAY + (float) edges / width;
+            rowScores[y] = score;
+            if (score > peak) {
+                peak = score;
+                peakRow = y;
+            }
+        }
+        if (peakRow < 0 || peak / weight < MIN_ROW_DENSITY) {
+            stableFrames = 0;
+            return false;
+        }
+
+        // 从峰值行向上下扩展
+        float rowLimit = peak * BAND_RATIO;
+        int top = peakRow;
+        while (top > 0 && rowScores[top - 1] >= rowLimit) {
+            top--;
+        }
+        int bottom = peakRow + 1;
+        while (bottom < height && rowScores[bottom] >= rowLimit) {
+            bottom++;
+        }
+
+        // 条带内逐列统计边缘并累计，确定左右范围
+        float columnPeak = 0f;
+        float bandRows = bottom - top;
+        for (int x = 1; x < width; x++) {
+            int edges = 0;
+            for (int y = top; y < bottom; y++) {
+                int offset = y * rowStride + x;
+                int diff = (luma[offset] & 0xFF) - (luma[offset - 1] & 0xFF);
+                if (diff > EDGE_THRESHOLD || diff < -EDGE_THRESHOLD) {
+                    edges++;
+                }
+            }
+            float score = columnScores[x] * DECAY + edges / bandRows;
+            columnScores[x] = score;
+            if (score > columnPeak) {
+                columnPeak = score;
+            }
+        }
+        float columnLimit = columnPeak * COLUMN_RATIO;
+        int left = 1;
+        while (left < width - 1 && columnScores[left] < columnLimit) {
+            left++;
+        }
+        int right = width - 1;
+        while (right > left && columnScores[right] < columnLimit) {
+            right--;
+        }
+
+        bandLeft = left - 1;
+        bandTop = top;
+        bandRight = right + 1;
+        bandBottom = bottom;
+
+        int center = (top + bottom) / 2;
+        if (lastCenter >= 0 && Math.abs(center - lastCenter) <= MAX_CENTER_DRIFT) {
+            stableFrames++;
+        } else {
+            stableFrames = 1;
+        }
+        lastCenter = center;
+        return isStable();
+    }
+
+    public boolean isStable() {
+        return stableFrames >= STABLE_FRAMES;
+    }
+
+    public int getBandLeft() {
+        return bandLeft;
+    }
+
+    public int getBandTop() {
+        return bandTop;
+    }
+
+    public int getBandRight() {
+        return bandRight;
+    }
+
+    public int getBandBottom() {
+        return bandBottom;
+    }
+}
@@ -0,0 +1,81 @@
+package com.example.blocksubtitle.util;
+
+/**
+ * 字幕同步的时间基准：播放位置 = 已播放时长 + 偏移量。
+ * 已播放时长从开始时刻起算，暂停期间冻结；对齐到某个时刻只移动时间基准，不改变用户设置的偏移量。
+ * 所有方法都由调用方传入当前时刻，不读取系统时钟，便于在测试中使用假时钟。
+ */
+public class SubtitleClock {
+
+    // 已播放时长为 0 的时刻
+    private long anchorMs;
+    private long offsetMs;
+    private boolean paused;
+    // 暂停时冻结的已播放时长
+    private long pausedElapsedMs;
+
+    /**
+     * 从给定时刻开始播放，偏移量和暂停状态一并清除
+     */
+    public void start(long nowMs) {
+        anchorMs = nowMs;
+        offsetMs = 0;
+        paused = false;
+        pausedElapsedMs = 0;
+    }
+
+    /**
+     * 当前的字幕播放位置，暂停期间保持不变
+     */
+    public long getPosition(long nowMs) {
+        return elapsed(nowMs) + offsetMs;
+    }
+
+    public long getOffset() {
+        return offsetMs;
+    }
+
+    /**
+     * 设置偏移量，正值表示字幕提前
+     */
+    public void setOffset(long offsetMs) {
+        this.offsetMs = offsetMs;
+    }
+
+    public boolean isPaused() {
+        return paused;
+    }
+
+    public void pause(long nowMs) {
+        if (!paused) {
+            pausedElapsedMs = nowMs - anchorMs;
+            paused = true;
+        }
+    }
+
+    /**
+     * 从暂停的位置继续播放
+     */
+    public void resume(long nowMs) {
+        if (paused) {
+            anchorMs = nowMs - pausedElapsedMs;
+            paused = false;
+        }
+    }
+
+    /**
+     * 移动时间基准，使当前播放位置等于给定位置；暂停状态保持不变
+     */
+    public void seek(long positionMs, long nowMs) {
+        long elapsed = positionMs - offsetMs;
+        if (paused) {
+            pausedElapsedMs = elapsed;
+        } else {
+            anchorMs = nowMs - elapsed;
+        }
+    }
+
+    private long elapsed(long nowMs) {
+        return paused ? pausedElapsedMs : nowMs - anchorMs;
+    }
+}
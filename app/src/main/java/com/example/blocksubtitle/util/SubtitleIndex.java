@@ -0,0 +1,196 @@
+package com.example.blocksubtitle.util;
+
+import java.util.Arrays;
+
+/**
+ * 字幕时间区间索引。
+ * 构建时对区间排序并合并重叠部分，得到互不相交的有序区间，
+ * 用两个 long 数组紧凑保存，查询某一时刻是否有字幕只需一次二分查找。
+ * 时间单位为毫秒，区间为左闭右开 [start, end)。
+ * 另外按文件中的顺序保留每条原始字幕的开始时间，外部按字幕序号对齐时间轴时使用，
+ * 合并后的区间序号与字幕序号并不对应。
+ */
+public class SubtitleIndex {
+
+    // 没有下一次变化
+    public static final long NO_TRANSITION = Long.MAX_VALUE;
+
+    private final long[] starts;
+    private final long[] ends;
+    // 原始字幕的开始时间，按文件中的顺序
+    private final long[] cueStarts;
+
+    private SubtitleIndex(long[] starts, long[] ends, long[] cueStarts) {
+        this.starts = starts;
+        this.ends = ends;
+        this.cueStarts = cueStarts;
+    }
+
+    /**
+     * 合并后的区间数量
+     */
+    public int size() {
+        return starts.length;
+    }
+
+    public long getStart(int index) {
+        return starts[index];
+    }
+
+    public long getEnd(int index) {
+        return ends[index];
+    }
+
+    /**
+     * 原始字幕的数量，包括时长为 0 而没有生成区间的字幕
+     */
+    public int cueCount() {
+        return cueStarts.length;
+    }
+
+    /**
+     * 第 cue 条原始字幕（按文件中的顺序，从 0 开始）的开始时间
+     */
+    public long getCueStart(int cue) {
+        return cueStarts[cue];
+    }
+
+    /**
+     * 指定时刻是否有字幕
+     */
+    public boolean isActive(long timeMs) {
+        int i = floor(timeMs);
+        return i >= 0 && timeMs < ends[i];
+    }
+
+    /**
+     * 指定时刻之后，字幕显示状态下一次发生变化的时刻
+     */
+    public long nextTransition(long timeMs) {
+        int i = floor(timeMs);
+        if (i >= 0 && timeMs < ends[i]) {
+            return ends[i];
+        }
+        return i + 1 < starts.length ? starts[i + 1] : NO_TRANSITION;
+    }
+
+    /**
+     * 起始时间离指定时刻最近的区间，用于把看到的字幕对齐到时间轴；索引为空时返回 -1
+     */
+    public int nearest(long timeMs) {
+        int i = floor(timeMs);
+        if (i + 1 < starts.length && (i < 0 || starts[i + 1] - timeMs < timeMs - starts[i])) {
+            return i + 1;
+        }
+        return i;
+    }
+
+    /**
+     * 起始时间不大于 timeMs 的最后一个区间，没有时返回 -1
+     */
+    private int floor(long timeMs) {
+        int low = 0;
+        int high = starts.length - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (starts[mid] <= timeMs) {
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return high;
+    }
+
+    /**
+     * 逐条添加区间，最后调用 {@link #build()} 生成索引
+     */
+    public static class Builder {
+        private long[] starts = new long[256];
+        private long[] ends = new long[256];
+        private int count;
+        private long[] cueStarts = new long[256];
+        private int cueCount;
+        private boolean sorted = true;
+
+        public Builder add(long startMs, long endMs) {
+            // 字幕序号按文件中的每一条计数，与是否生成区间无关
+            if (cueCount == cueStarts.length) {
+                cueStarts = Arrays.copyOf(cueStarts, cueCount * 2);
+            }
+            cueStarts[cueCount++] = startMs;
+            if (endMs <= startMs) {
+                return this;
+            }
+            if (count == starts.length) {
+                starts = Arrays.copyOf(starts, count * 2);
+                ends = Arrays.copyOf(ends, count * 2);
+            }
+            if (count > 0 && startMs < starts[count - 1]) {
+                sorted = false;
+            }
+            starts[count] = startMs;
+            ends[count] = endMs;
+            count++;
+            return this;
+        }
+
+        public SubtitleIndex build() {
+            if (!sorted) {
+                sort(0, count - 1);
+            }
+            // 合并重叠或首尾相接的区间
+            int merged = 0;
+            for (int i = 0; i < count; i++) {
+                if (merged > 0 && starts[i] <= ends[merged - 1]) {
+                    ends[merged - 1] = Math.max(ends[merged - 1], ends[i]);
+                } else {
+                    starts[merged] = starts[i];
+                    ends[merged] = ends[i];
+                    merged++;
+                }
+            }
+            return new SubtitleIndex(Arrays.copyOf(starts, merged), Arrays.copyOf(ends, merged),
+                    Arrays.copyOf(cueStarts, cueCount));
+        }
+
+        /**
+         * 按起始时间对两个并列数组做快速排序
+         */
+        private void sort(int low, int high) {
+            while (low < high) {
+                long pivot = starts[(low + high) >>> 1];
+                int i = low;
+                int j = high;
+                while (i <= j) {
+                    while (starts[i] < pivot) {
+                        i++;
+                    }
+                    while (starts[j] > pivot) {
+                        j--;
+                    }
+                    if (i <= j) {
+                        swap(i++, j--);
+                    }
+                }
+                // 先递归较短的一侧，控制递归深度
+                if (j - low < high - i) {
+                    sort(low, j);
+                    low = i;
+                } else {
+                    sort(i, high);
+                    high = j;
+                }
+            }
+        }
+
+        private void swap(int a, int b) {
+            long start = starts[a];
+            long end = ends[a];
+            starts[a] = starts[b];
+            ends[a] = ends[b];
+            starts[b] = start;
+            ends[b] = end;
+        }
+    }
+}
@@ -0,0 +1,209 @@
+package com.example.blocksubtitle.util;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.PushbackInputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 流式解析 SRT / ASS 字幕文件，只提取时间区间，不保留字幕文本。
+ * 逐行读取，文件再大也只占用一行的内存。两种格式在同一遍扫描中识别：
+ * 含有 "-->" 的行按 SRT 时间轴解析，"Dialogue:" 行按 ASS 事件解析。
+ * 编码按文件开头的 BOM 识别，支持 UTF-8、UTF-16LE 和 UTF-16BE。
+ */
+public class SubtitleParser {
+
+    private static final String SRT_ARROW = "-->";
+    private static final String ASS_FORMAT = "Format:";
+    private static final String ASS_DIALOGUE = "Dialogue:";
+
+    // ASS 事件中 Start / End 字段的位置，可由 [Events] 中的 Format 行覆盖
+    private int assStartField = 1;
+    private int assEndField = 2;
+    private boolean inAssEvents;
+
+    /**
+     * 解析字幕流，调用方负责关闭流
+     */
+    public SubtitleIndex parse(InputStream in) throws IOException {
+        PushbackInputStream stream = new PushbackInputStream(in, 3);
+        BufferedReader reader = new BufferedReader(new InputStreamReader(stream, detectCharset(stream)));
+        SubtitleIndex.Builder builder = new SubtitleIndex.Builder();
+        String line;
+        while ((line = reader.readLine()) != null) {
+            parseLine(line.trim(), builder);
+        }
+        return builder.build();
+    }
+
+    /**
+     * 读取并跳过 BOM，返回对应的编码。
+     * 没有 BOM 时只会用到 ASCII 的时间字段，用 ISO-8859-1 解码不会出错也最快，与 UTF-8、GBK 等编码兼容
+     */
+    static Charset detectCharset(PushbackInputStream in) throws IOException {
+        byte[] bom = new byte[3];
+        int count = 0;
+        int n;
+        while (count < bom.length && (n = in.read(bom, count, bom.length - count)) > 0) {
+            count += n;
+        }
+        int b0 = count > 0 ? bom[0] & 0xFF : -1;
+        int b1 = count > 1 ? bom[1] & 0xFF : -1;
+        int b2 = count > 2 ? bom[2] & 0xFF : -1;
+        if (b0 == 0xEF && b1 == 0xBB && b2 == 0xBF) {
+            return StandardCharsets.UTF_8;
+        }
+        Charset charset = StandardCharsets.ISO_8859_1;
+        int skip = 0;
+        if (b0 == 0xFF && b1 == 0xFE) {
+            charset = StandardCharsets.UTF_16LE;
+            skip = 2;
+        } else if (b0 == 0xFE && b1 == 0xFF) {
+            charset = StandardCharsets.UTF_16BE;
+            skip = 2;
+        }
+        // 不属于 BOM 的字节放回流中
+        if (count > skip) {
+            in.unread(bom, skip, count - skip);
+        }
+        return charset;
+    }
+
+    private void parseLine(String line, SubtitleIndex.Builder builder) {
+        if (line.isEmpty()) {
+            return;
+        }
+        if (line.charAt(0) == '[') {
+            inAssEvents = line.equalsIgnoreCase("[Events]");
+            return;
+        }
+        if (inAssEvents && line.startsWith(ASS_FORMAT)) {
+            parseAssFormat(line);
+            return;
+        }
+        if (line.startsWith(ASS_DIALOGUE)) {
+            parseAssDialogue(line, builder);
+            return;
+        }
+        int arrow = line.indexOf(SRT_ARROW);
+        if (arrow > 0) {
+            long start = parseTime(line, 0, arrow);
+            long end = parseTime(line, arrow + SRT_ARROW.length(), line.length());
+            if (start >= 0 && end >= 0) {
+                builder.add(start, end);
+            }
+        }
+    }
+
+    private void parseAssFormat(String line) {
+        int field = 0;
+        int from = ASS_FORMAT.length();
+        while (from <= line.length()) {
+            int comma = line.indexOf(',', from);
+            int to = comma < 0 ? line.length() : comma;
+            String name = line.substring(from, to).trim();
+            if (name.equalsIgnoreCase("Start")) {
+                assStartField = field;
+            } else if (name.equalsIgnoreCase("End")) {
+                assEndField = field;
+            }
+            if (comma < 0) {
+                break;
+            }
+            from = comma + 1;
+            field++;
+        }
+    }
+
+    private void parseAssDialogue(String line, SubtitleIndex.Builder builder) {
+        long start = -1;
+        long end = -1;
+        int field = 0;
+        int from = ASS_DIALOGUE.length();
+        int lastField = Math.max(assStartField, assEndField);
+        // 文本字段在最后且可能含逗号，只需要扫描到时间字段为止
+        while (field <= lastField) {
+            int comma = line.indexOf(',', from);
+            if (comma < 0) {
+                return;
+            }
+            if (field == assStartField) {
+                start = parseTime(line, from, comma);
+            } else if (field == assEndField) {
+                end = parseTime(line, from, comma);
+            }
+            from = comma + 1;
+            field++;
+        }
+        if (start >= 0 && end >= 0) {
+            builder.add(start, end);
+        }
+    }
+
+    /**
+     * 解析 [H]H:MM:SS[,.]fff 形式的时间，小数部分按位数换算为毫秒。
+     * 直接扫描字符，不创建子字符串
+     *
+     * @return 毫秒数，格式错误时返回 -1
+     */
+    static long parseTime(String s, int from, int to) {
+        long hours = 0;
+        long minutes = 0;
+        long seconds = 0;
+        long fraction = 0;
+        int fractionDigits = 0;
+        int field = 0; // 0=时 1=分 2=秒 3=小数
+        long value = 0;
+        boolean digits = false;
+        for (int i = from; i < to; i++) {
+            char c = s.charAt(i);
+            if (c >= '0' && c <= '9') {
+                if (field == 3) {
+                    if (fractionDigits < 3) {
+                        fraction = fraction * 10 + (c - '0');
+                        fractionDigits++;
+                    }
+                } else {
+                    value = value * 10 + (c - '0');
+                }
+                digits = true;
+            } else if (c == ':') {
+                if (field == 0) {
+                    hours = value;
+                } else if (field == 1) {
+                    minutes = value;
+                } else {
+                    return -1;
+                }
+                field++;
+                value = 0;
+            } else if (c == ',' || c == '.') {
+                if (field != 2) {
+                    return -1;
+                }
+                seconds = value;
+                field = 3;
+            } else if (c == ' ' || c == '\t') {
+                if (digits && field >= 2) {
+                    break;
+                }
+            } else {
+                return -1;
+            }
+        }
+        if (!digits || field < 2) {
+            return -1;
+        }
+        if (field == 2) {
+            seconds = value;
+        }
+        while (fractionDigits > 0 && fractionDigits < 3) {
+            fraction *= 10;
+            fractionDigits++;
+        }
+        return ((hours * 60 + minutes) * 60 + seconds) * 1000 + fraction;
+    }
+}
@@ -0,0 +1,282 @@
+package com.example.blocksubtitle.util;
+
+/**
+ * 遮挡窗的手势流水线：每个触摸事件只处理一次，同时完成双击判定、单指移动/拖边和双指缩放。
+ * 纯 Java 实现，不依赖 MotionEvent，由调用方提取坐标后传入，不分配任何对象。
+ * 手指数量变化时以当前边界重新设定锚点，窗口不会跳动，也不会产生额外的布局。
+ */
+public class TouchGesture {
+
+    // 与 MotionEvent 的取值一致，调用方可以直接传入 getActionMasked()
+    public static final int ACTION_DOWN = 0;
+    public static final int ACTION_UP = 1;
+    public static final int ACTION_MOVE = 2;
+    public static final int ACTION_CANCEL = 3;
+    public static final int ACTION_POINTER_DOWN = 5;
+    public static final int ACTION_POINTER_UP = 6;
+
+    // onTouchEvent 的返回值，可以组合
+    public static final int RESULT_NONE = 0;
+    public static final int RESULT_CHANGED = 1;          // 窗口边界改变，需要布局
+    public static final int RESULT_DOUBLE_TAP = 1 << 1;  // 检测到双击
+    public static final int RESULT_ENDED = 1 << 2;       // 手势结束
+    public static final int RESULT_FLING = 1 << 3;       // 单指移动结束，可以开始惯性和磁吸
+
+    // 计算抬起速度时使用的采样数和时间窗口，包括 MotionEvent 中的历史采样，240Hz 触摸屏在窗口内约有 24 个采样
+    private static final int VELOCITY_SAMPLES = 32;
+    private static final long VELOCITY_WINDOW_MS = 100;
+
+    // 抬起前停顿超过该时间视为速度为 0；相邻采样间隔超过该时间时，更早的采样不参与计算
+    private static final long VELOCITY_STOP_MS = 40;
+
+    private final WindowGeometry geometry;
+
+    // 判定为点击的最大移动距离、两次点击的最大距离（像素）和最长间隔（毫秒）
+    private final float touchSlopSquare;
+    private final float doubleTapSlopSquare;
+    private final long doubleTapTimeoutMs;
+
+    // 当前手势的按下位置
+    private float downX;
+    private float downY;
+
+    // 当前手势是否仍可能是一次点击
+    private boolean tapCandidate;
+
+    // 当前手势是否已经被判定为双击的第二次按下
+    private boolean doubleTapping;
+
+    // 上一次点击的按下位置和抬起时间，没有时为 -1
+    private float lastTapX;
+    private float lastTapY;
+    private long lastTapUpMs = -1;
+
+    // 单指移动的最近采样，环形缓冲
+    private final long[] sampleTimes = new long[VELOCITY_SAMPLES];
+    private final float[] sampleX = new float[VELOCITY_SAMPLES];
+    private final float[] sampleY = new float[VELOCITY_SAMPLES];
+    private int sampleCount;
+    private int sampleNext;
+
+    // 最近一次抬起时的速度（像素/秒）
+    private float velocityX;
+    private float velocityY;
+
+    public TouchGesture(WindowGeometry geometry, int touchSlop, int doubleTapSlop, long doubleTapTimeoutMs) {
+        this.geometry = geometry;
+        this.touchSlopSquare = (float) touchSlop * touchSlop;
+        this.doubleTapSlopSquare = (float) doubleTapSlop * doubleTapSlop;
+        this.doubleTapTimeoutMs = doubleTapTimeoutMs;
+    }
+
+    /**
+     * 处理一个触摸事件。按下前调用方需先用当前窗口边界设置 geometry
+     *
+     * @param action       事件类型 (ACTION_*)
+     * @param eventTimeMs  事件时间
+     * @param pointerCount 事件之后仍按在屏幕上的手指数，ACTION_POINTER_UP 时不含抬起的手指
+     * @param localX       第一个手指在窗口内的坐标，只在 ACTION_DOWN 时使用
+     * @param x0           第一个手指的屏幕坐标
+     * @param x1           第二个手指的屏幕坐标，只有一个手指时忽略
+     * @return RESULT_* 的组合，没有进行中的手势时抬起不会返回 RESULT_ENDED
+     */
+    public int onTouchEvent(int action, long eventTimeMs, int pointerCount, float localX, float localY,
+                            float x0, float y0, float x1, float y1) {
+        switch (action) {
+            case ACTION_DOWN:
+                return onDown(eventTimeMs, localX, localY, x0, y0);
+
+            case ACTION_POINTER_DOWN:
+            case ACTION_POINTER_UP:
+                // 手指数量变化，按剩下的手指重新设定锚点，边界保持不变
+                tapCandidate = false;
+                sampleCount = 0;
+                if (geometry.getTouchState() == WindowGeometry.TouchState.NONE) {
+                    return RESULT_NONE;
+                }
+                if (pointerCount >= 2) {
+                    geometry.beginScale(x0, y0, x1, y1);
+                } else if (pointerCount == 1) {
+                    geometry.begin(WindowGeometry.TouchState.MOVING, x0, y0);
+                }
+                return RESULT_NONE;
+
+            case ACTION_MOVE:
+                if (tapCandidate && distanceSquare(x0, y0, downX, downY) > touchSlopSquare) {
+                    tapCandidate = false;
+                }
+                if (pointerCount == 1) {
+                    addSample(eventTimeMs, x0, y0);
+                }
+                boolean changed = geometry.getTouchState() == WindowGeometry.TouchState.SCALING
+                        ? pointerCount >= 2 && geometry.updateScale(x0, y0, x1, y1)
+                        : geometry.update(x0, y0);
+                return changed ? RESULT_CHANGED : RESULT_NONE;
+
+            case ACTION_UP:
+                // 双击的第二次点击不能再作为下一次双击的第一次
+                if (tapCandidate && !doubleTapping) {
+                    lastTapX = downX;
+                    lastTapY = downY;
+                    lastTapUpMs = eventTimeMs;
+                } else {
+                    lastTapUpMs = -1;
+                }
+                boolean fling = geometry.getTouchState() == WindowGeometry.TouchState.MOVING && !doubleTapping;
+                addSample(eventTimeMs, x0, y0);
+                computeVelocity();
+                return end() | (fling ? RESULT_FLING : RESULT_NONE);
+
+            case ACTION_CANCEL:
+                lastTapUpMs = -1;
+                return end();
+        }
+        return RESULT_NONE;
+    }
+
+    /**
+     * 添加一个单指移动的历史采样，只用于计算抬起速度。
+     * 在处理 ACTION_MOVE / ACTION_UP 之前按时间顺序传入该事件的历史采样，窗口位置仍然只按最新坐标计算
+     */
+    public void addHistoricalSample(long eventTimeMs, float x, float y) {
+        if (isActive() && geometry.getTouchState() != WindowGeometry.TouchState.SCALING) {
+            addSample(eventTimeMs, x, y);
+        }
+    }
+
+    /**
+     * 最近一次抬起时的水平速度（像素/秒）
+     */
+    public float getVelocityX() {
+        return velocityX;
+    }
+
+    /**
+     * 最近一次抬起时的垂直速度（像素/秒）
+     */
+    public float getVelocityY() {
+        return velocityY;
+    }
+
+    /**
+     * 清除所有手势状态，包括上一次点击和速度采样，窗口回收复用前调用
+     */
+    public void reset() {
+        end();
+        lastTapUpMs = -1;
+        sampleCount = 0;
+        sampleNext = 0;
+        velocityX = 0f;
+        velocityY = 0f;
+    }
+
+    public WindowGeometry getGeometry() {
+        return geometry;
+    }
+
+    /**
+     * 手势是否正在进行
+     */
+    public boolean isActive() {
+        return geometry.getTouchState() != WindowGeometry.TouchState.NONE;
+    }
+
+    private int onDown(long eventTimeMs, float localX, float localY, float rawX, float rawY) {
+        doubleTapping = lastTapUpMs >= 0
+                && eventTimeMs - lastTapUpMs <= doubleTapTimeoutMs
+                && distanceSquare(rawX, rawY, lastTapX, lastTapY) <= doubleTapSlopSquare;
+        downX = rawX;
+        downY = rawY;
+        tapCandidate = true;
+        sampleCount = 0;
+        addSample(eventTimeMs, rawX, rawY);
+        // 记录初始触摸坐标和窗口参数，并判断触摸点是否在某个边缘热区
+        geometry.begin(localX, localY, rawX, rawY);
+        return doubleTapping ? RESULT_DOUBLE_TAP : RESULT_NONE;
+    }
+
+    private int end() {
+        boolean active = isActive();
+        tapCandidate = false;
+        doubleTapping = false;
+        geometry.end();
+        return active ? RESULT_ENDED : RESULT_NONE;
+    }
+
+    private void addSample(long timeMs, float x, float y) {
+        sampleTimes[sampleNext] = timeMs;
+        sampleX[sampleNext] = x;
+        sampleY[sampleNext] = y;
+        sampleNext = (sampleNext + 1) % VELOCITY_SAMPLES;
+        if (sampleCount < VELOCITY_SAMPLES) {
+            sampleCount++;
+        }
+    }
+
+    /**
+     * 按 impulse 算法计算速度：把相邻采样间的速度变化视为对单位质量施加的冲量，累计动能后换算为速度，
+     * 与系统 VelocityTracker 的 impulse 策略相同。越靠近抬起的采样影响越大，能反映抬起前的加速和折返；
+     * 同一帧中合并的历史采样越多，结果越准确
+     */
+    private void computeVelocity() {
+        velocityX = 0f;
+        velocityY = 0f;
+        if (sampleCount < 2) {
+            return;
+        }
+        int newest = (sampleNext + VELOCITY_SAMPLES - 1) % VELOCITY_SAMPLES;
+        // 抬起前停顿过，不产生惯性
+        int previous = (newest + VELOCITY_SAMPLES - 1) % VELOCITY_SAMPLES;
+        if (sampleTimes[newest] - sampleTimes[previous] > VELOCITY_STOP_MS) {
+            return;
+        }
+        // 向前找到时间窗口内、中间没有停顿的最早采样
+        int oldest = newest;
+        int count = 1;
+        while (count < sampleCount) {
+            int index = (oldest + VELOCITY_SAMPLES - 1) % VELOCITY_SAMPLES;
+            if (sampleTimes[newest] - sampleTimes[index] > VELOCITY_WINDOW_MS
+                    || sampleTimes[oldest] - sampleTimes[index] > VELOCITY_STOP_MS) {
+                break;
+            }
+            oldest = index;
+            count++;
+        }
+
+        float workX = 0f;
+        float workY = 0f;
+        boolean first = true;
+        for (int i = oldest; i != newest; i = (i + 1) % VELOCITY_SAMPLES) {
+            int next = (i + 1) % VELOCITY_SAMPLES;
+            long duration = sampleTimes[next] - sampleTimes[i];
+            if (duration <= 0) {
+                continue; // 同一时刻的重复采样
+            }
+            float vx = (sampleX[next] - sampleX[i]) * 1000f / duration;
+            float vy = (sampleY[next] - sampleY[i]) * 1000f / duration;
+            workX += (vx - energyToVelocity(workX)) * Math.abs(vx);
+            workY += (vy - energyToVelocity(workY)) * Math.abs(vy);
+            if (first) {
+                // 第一段从静止开始，动能为 v²/2
+                workX *= 0.5f;
+                workY *= 0.5f;
+                first = false;
+            }
+        }
+        velocityX = energyToVelocity(workX);
+        velocityY = energyToVelocity(workY);
+    }
+
+    /**
+     * 单位质量的动能换算为速度，保留方向
+     */
+    private static float energyToVelocity(float work) {
+        return Math.copySign((float) Math.sqrt(2f * Math.abs(work)), work);
+    }
+
+    private static float distanceSquare(float x0, float y0, float x1, float y1) {
+        float dx = x1 - x0;
+        float dy = y1 - y0;
+        return dx * dx + dy * dy;
+    }
+}
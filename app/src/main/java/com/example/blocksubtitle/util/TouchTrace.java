@@ -0,0 +1,209 @@
+package com.example.blocksubtitle.util;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * 遮挡窗触摸事件的录制结果，保存的是手势流水线 {@link TouchGesture} 的输入，
+ * 以及每次按下前和手势结束后窗口的实际边界，用于回放时核对结果。
+ * 内存中使用基本类型的并列数组，录制时只在容量不足时扩容。
+ *
+ * 文件格式（大端）：文件头为魔数、版本、热区大小、点击判定参数和帧间隔；
+ * 每个事件为 窗口编号（低 8 位）、类型、手指数、相对上一事件的毫秒数、窗口内坐标、第一个手指的屏幕坐标，
+ * 两个手指时再加第二个手指的屏幕坐标，按下和结束时再加窗口边界。
+ */
+public class TouchTrace {
+
+    private static final int MAGIC = 0x42535454; // "BSTT"
+    private static final int VERSION = 1;
+
+    // 每个事件的坐标数和边界数
+    private static final int COORDS = 6;
+    private static final int BOUNDS = 5;
+
+    // 录制时的手势参数，回放时使用同样的参数
+    public final int handleSize;
+    public final int touchSlop;
+    public final int doubleTapSlop;
+    public final int doubleTapTimeoutMs;
+    public final long frameIntervalNanos;
+
+    private int count;
+    private int[] windowIds = new int[64];
+    private byte[] actions = new byte[64];
+    private byte[] pointerCounts = new byte[64];
+    private long[] times = new long[64];
+    private float[] coords = new float[64 * COORDS];
+    private int[] bounds = new int[64 * BOUNDS];
+
+    public TouchTrace(int handleSize, int touchSlop, int doubleTapSlop, int doubleTapTimeoutMs,
+                      long frameIntervalNanos) {
+        this.handleSize = handleSize;
+        this.touchSlop = touchSlop;
+        this.doubleTapSlop = doubleTapSlop;
+        this.doubleTapTimeoutMs = doubleTapTimeoutMs;
+        this.frameIntervalNanos = frameIntervalNanos;
+    }
+
+    /**
+     * 追加一个事件，参数与 {@link TouchGesture#onTouchEvent} 相同
+     *
+     * @param x          按下时为按下前的窗口边界，手势结束时为结束后的窗口边界，其他事件忽略
+     * @param relayouts  手势结束时为本次手势的布局次数，其他事件忽略
+     */
+    public void add(int windowId, int action, long eventTimeMs, int pointerCount,
+                    float localX, float localY, float x0, float y0, float x1, float y1,
+                    int x, int y, int width, int height, int relayouts) {
+        if (count == actions.length) {
+            grow();
+        }
+        windowIds[count] = windowId & 0xFF; // 只保存低 8 位
+        actions[count] = (byte) action;
+        pointerCounts[count] = (byte) Math.min(pointerCount, Byte.MAX_VALUE);
+        times[count] = eventTimeMs;
+        int c = count * COORDS;
+        coords[c] = localX;
+        coords[c + 1] = localY;
+        coords[c + 2] = x0;
+        coords[c + 3] = y0;
+        coords[c + 4] = x1;
+        coords[c + 5] = y1;
+        int b = count * BOUNDS;
+        bounds[b] = x;
+        bounds[b + 1] = y;
+        bounds[b + 2] = width;
+        bounds[b + 3] = height;
+        bounds[b + 4] = relayouts;
+        count++;
+    }
+
+    public int size() {
+        return count;
+    }
+
+    public int getWindowId(int index) {
+        return windowIds[index];
+    }
+
+    public int getAction(int index) {
+        return actions[index];
+    }
+
+    public int getPointerCount(int index) {
+        return pointerCounts[index];
+    }
+
+    public long getTime(int index) {
+        return times[index];
+    }
+
+    /**
+     * 事件的坐标，依次为窗口内 x、y，第一个手指的屏幕 x、y，第二个手指的屏幕 x、y
+     */
+    public float getCoord(int index, int which) {
+        return coords[index * COORDS + which];
+    }
+
+    /**
+     * 记录的窗口边界，依次为 x、y、宽、高、布局次数
+     */
+    public int getBound(int index, int which) {
+        return bounds[index * BOUNDS + which];
+    }
+
+    public void write(DataOutputStream out) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeShort(VERSION);
+        out.writeInt(handleSize);
+        out.writeInt(touchSlop);
+        out.writeInt(doubleTapSlop);
+        out.writeInt(doubleTapTimeoutMs);
+        out.writeLong(frameIntervalNanos);
+        out.writeInt(count);
+        long previous = count > 0 ? times[0] : 0;
+        if (count > 0) {
+            out.writeLong(previous);
+        }
+        for (int i = 0; i < count; i++) {
+            int action = actions[i];
+            out.writeByte(windowIds[i]);
+            out.writeByte(action);
+            out.writeByte(pointerCounts[i]);
+            out.writeInt((int) (times[i] - previous));
+            previous = times[i];
+            int c = i * COORDS;
+            int coordCount = hasSecondPointer(action, pointerCounts[i]) ? COORDS : COORDS - 2;
+            for (int j = 0; j < coordCount; j++) {
+                out.writeFloat(coords[c + j]);
+            }
+            int boundCount = boundCount(action);
+            int b = i * BOUNDS;
+            for (int j = 0; j < boundCount; j++) {
+                out.writeInt(bounds[b + j]);
+            }
+        }
+    }
+
+    public static TouchTrace read(DataInputStream in) throws IOException {
+        if (in.readInt() != MAGIC) {
+            throw new IOException("Not a touch trace");
+        }
+        int version = in.readShort();
+        if (version != VERSION) {
+            throw new IOException("Unsupported touch trace version " + version);
+        }
+        TouchTrace trace = new TouchTrace(in.readInt(), in.readInt(), in.readInt(), in.readInt(), in.readLong());
+        int count = in.readInt();
+        long time = count > 0 ? in.readLong() : 0;
+        float[] coord = new float[COORDS];
+        int[] bound = new int[BOUNDS];
+        for (int i = 0; i < count; i++) {
+            int windowId = in.readUnsignedByte();
+            int action = in.readByte();
+            int pointerCount = in.readByte();
+            time += in.readInt();
+            Arrays.fill(coord, 0f);
+            Arrays.fill(bound, 0);
+            int coordCount = hasSecondPointer(action, pointerCount) ? COORDS : COORDS - 2;
+            for (int j = 0; j < coordCount; j++) {
+                coord[j] = in.readFloat();
+            }
+            int boundCount = boundCount(action);
+            for (int j = 0; j < boundCount; j++) {
+                bound[j] = in.readInt();
+            }
+            trace.add(windowId, action, time, pointerCount,
+                    coord[0], coord[1], coord[2], coord[3], coord[4], coord[5],
+                    bound[0], bound[1], bound[2], bound[3], bound[4]);
+        }
+        return trace;
+    }
+
+    private static boolean hasSecondPointer(int action, int pointerCount) {
+        return action != TouchGesture.ACTION_DOWN && pointerCount >= 2;
+    }
+
+    private static int boundCount(int action) {
+        switch (action) {
+            case TouchGesture.ACTION_DOWN:
+                return BOUNDS - 1;
+            case TouchGesture.ACTION_UP:
+            case TouchGesture.ACTION_CANCEL:
+                return BOUNDS;
+            default:
+                return 0;
+        }
+    }
+
+    private void grow() {
+        int capacity = actions.length * 2;
+        windowIds = Arrays.copyOf(windowIds, capacity);
+        actions = Arrays.copyOf(actions, capacity);
+        pointerCounts = Arrays.copyOf(pointerCounts, capacity);
+        times = Arrays.copyOf(times, capacity);
+        coords = Arrays.copyOf(coords, capacity * COORDS);
+        bounds = Arrays.copyOf(bounds, capacity * BOUNDS);
+    }
+}
@@ -0,0 +1,325 @@
+package com.example.blocksubtitle.util;
+
+/**
+ * 悬浮窗几何计算引擎：边缘热区判定 → 手势模式 → 新的窗口边界。
+ * 纯 Java 实现，只使用基本类型字段，处理每个触摸事件时不分配任何对象。
+ * 尺寸、宽高比和屏幕范围交给 {@link LayoutConstraints} 求解，每次更新后的边界都满足约束。
+ */
+public class WindowGeometry {
+
+    /**
+     * 定义一个枚举来表示当前的触摸状态
+     */
+    public enum TouchState {
+        NONE,       // 无操作
+        MOVING,     // 移动窗口
+        RESIZING_LEFT, RESIZING_TOP, RESIZING_RIGHT, RESIZING_BOTTOM,
+        RESIZING_TOP_LEFT, RESIZING_TOP_RIGHT, RESIZING_BOTTOM_LEFT, RESIZING_BOTTOM_RIGHT,
+        SCALING     // 双指缩放
+    }
+
+    public static final int DEFAULT_MIN_SIZE = LayoutConstraints.DEFAULT_MIN_SIZE;
+
+    // 当前窗口边界
+    public int x;
+    public int y;
+    public int width;
+    public int height;
+
+    // 边缘热区大小（像素）
+    private int handleSize;
+
+    // 尺寸、宽高比和屏幕范围约束，可以与其他窗口共用
+    private LayoutConstraints constraints = new LayoutConstraints();
+
+    // 双指缩放时宽高是否分别跟随两个方向的指距
+    private boolean independentScale;
+
+    // 某个方向的初始指距小于该值时，这个方向不参与独立缩放
+    private int minScaleSpan;
+
+    // 手势开始时的窗口参数和触摸坐标
+    private int initialX;
+    private int initialY;
+    private int initialWidth;
+    private int initialHeight;
+    private float initialTouchX;
+    private float initialTouchY;
+    private TouchState touchState = TouchState.NONE;
+
+    // 双指缩放开始时的指距和焦点
+    private float initialSpanX;
+    private float initialSpanY;
+    private float initialSpan;
+    private float initialFocusX;
+    private float initialFocusY;
+
+    public void set(int x, int y, int width, int height) {
+        this.x = x;
+        this.y = y;
+        this.width = width;
+        this.height = height;
+    }
+
+    public void setHandleSize(int handleSize) {
+        this.handleSize = handleSize;
+    }
+
+    /**
+     * 使用给定的约束，多个窗口共用时屏幕范围只需要更新一次
+     */
+    public void setConstraints(LayoutConstraints constraints) {
+        this.constraints = constraints;
+    }
+
+    public LayoutConstraints getConstraints() {
+        return constraints;
+    }
+
+    public void setMinSize(int minWidth, int minHeight) {
+        constraints.setMinSize(minWidth, minHeight);
+    }
+
+    public void setMaxSize(int maxWidth, int maxHeight) {
+        constraints.setMaxSize(maxWidth, maxHeight);
+    }
+
+    /**
+     * 锁定宽高比，传入 0 取消锁定
+     */
+    public void setAspectRatio(float aspectRatio) {
+        constraints.setAspectRatio(aspectRatio);
+    }
+
+    /**
+     * 双指缩放时宽高分别跟随水平和垂直方向的指距；关闭时等比缩放。锁定宽高比时总是等比缩放
+     *
+     * @param minSpan 初始指距小于该值的方向保持原尺寸，避免手指几乎重合时尺寸剧烈变化
+     */
+    public void setIndependentScale(boolean independentScale, int minSpan) {
+        this.independentScale = independentScale;
+        this.minScaleSpan = minSpan;
+    }
+
+    /**
+     * 将窗口限制在给定的屏幕范围内
+     */
+    public void setBounds(int left, int top, int right, int bottom) {
+        constraints.setBounds(left, top, right, bottom);
+    }
+
+    public void clearBounds() {
+        constraints.clearBounds();
+    }
+
+    /**
+     * 按约束调整当前边界，用于加载保存的状态和外部设置的边界
+     *
+     * @return 边界是否发生变化
+     */
+    public boolean constrain() {
+        if (!constraints.solve(x, y, width, height)) {
+            return false;
+        }
+        x = constraints.x;
+        y = constraints.y;
+        width = constraints.width;
+        height = constraints.height;
+        return true;
+    }
+
+    public TouchState getTouchState() {
+        return touchState;
+    }
+
+    /**
+     * 判断窗口内的触摸点落在哪个边缘热区
+     */
+    public TouchState hitTest(float localX, float localY) {
+        boolean isTouchingLeftEdge = localX < handleSize;
+        boolean isTouchingTopEdge = localY < handleSize;
+        boolean isTouchingRightEdge = localX > width - handleSize;
+        boolean isTouchingBottomEdge = localY > height - handleSize;
+
+        if (isTouchingLeftEdge && isTouchingTopEdge) {
+            return TouchState.RESIZING_TOP_LEFT;
+        } else if (isTouchingRightEdge && isTouchingTopEdge) {
+            return TouchState.RESIZING_TOP_RIGHT;
+        } else if (isTouchingLeftEdge && isTouchingBottomEdge) {
+            return TouchState.RESIZING_BOTTOM_LEFT;
+        } else if (isTouchingRightEdge && isTouchingBottomEdge) {
+            return TouchState.RESIZING_BOTTOM_RIGHT;
+        } else if (isTouchingLeftEdge) {
+            return TouchState.RESIZING_LEFT;
+        } else if (isTouchingTopEdge) {
+            return TouchState.RESIZING_TOP;
+        } else if (isTouchingRightEdge) {
+            return TouchState.RESIZING_RIGHT;
+        } else if (isTouchingBottomEdge) {
+            return TouchState.RESIZING_BOTTOM;
+        }
+        // 否则，默认为移动窗口
+        return TouchState.MOVING;
+    }
+
+    /**
+     * 开始一次手势：根据窗口内坐标判定模式，并记录屏幕坐标作为锚点
+     */
+    public TouchState begin(float localX, float localY, float rawX, float rawY) {
+        return begin(hitTest(localX, localY), rawX, rawY);
+    }
+
+    /**
+     * 以指定模式开始一次手势
+     */
+    public TouchState begin(TouchState state, float rawX, float rawY) {
+        initialX = x;
+        initialY = y;
+        initialWidth = width;
+        initialHeight = height;
+        initialTouchX = rawX;
+        initialTouchY = rawY;
+        touchState = state;
+        return state;
+    }
+
+    /**
+     * 以当前边界为锚点开始双指缩放，两指的屏幕坐标作为初始指距和焦点。
+     * 手指数量变化时重新调用即可，不会引起窗口跳动
+     */
+    public void beginScale(float x0, float y0, float x1, float y1) {
+        initialX = x;
+        initialY = y;
+        initialWidth = width;
+        initialHeight = height;
+        initialSpanX = Math.abs(x1 - x0);
+        initialSpanY = Math.abs(y1 - y0);
+        initialSpan = (float) Math.hypot(initialSpanX, initialSpanY);
+        initialFocusX = (x0 + x1) / 2f;
+        initialFocusY = (y0 + y1) / 2f;
+        touchState = TouchState.SCALING;
+    }
+
+    /**
+     * 根据两指的屏幕坐标计算新的窗口边界：尺寸按指距缩放，焦点下的内容跟随焦点移动
+     *
+     * @return 边界是否发生变化
+     */
+    public boolean updateScale(float x0, float y0, float x1, float y1) {
+        if (touchState != TouchState.SCALING) {
+            return false;
+        }
+        int oldX = x;
+        int oldY = y;
+        int oldWidth = width;
+        int oldHeight = height;
+
+        float spanX = Math.abs(x1 - x0);
+        float spanY = Math.abs(y1 - y0);
+        float uniform = initialSpan > 0f ? (float) Math.hypot(spanX, spanY) / initialSpan : 1f;
+        float scaleX = uniform;
+        float scaleY = uniform;
+        if (independentScale && constraints.getAspectRatio() <= 0f) {
+            boolean horizontal = initialSpanX >= minScaleSpan;
+            boolean vertical = initialSpanY >= minScaleSpan;
+            if (horizontal || vertical) {
+                scaleX = horizontal ? spanX / initialSpanX : 1f;
+                scaleY = vertical ? spanY / initialSpanY : 1f;
+            }
+        }
+
+        constraints.solveSize(Math.round(initialWidth * scaleX), Math.round(initialHeight * scaleY),
+                constraints.getMaxWidth(), constraints.getMaxHeight(), true);
+        int newWidth = constraints.width;
+        int newHeight = constraints.height;
+
+        // 焦点在窗口内的相对位置保持不变
+        float focusX = (x0 + x1) / 2f;
+        float focusY = (y0 + y1) / 2f;
+        float relativeX = initialWidth > 0 ? (initialFocusX - initialX) / initialWidth : 0f;
+        float relativeY = initialHeight > 0 ? (initialFocusY - initialY) / initialHeight : 0f;
+        width = newWidth;
+        height = newHeight;
+        solvePosition(Math.round(focusX - relativeX * newWidth), Math.round(focusY - relativeY * newHeight));
+        return x != oldX || y != oldY || width != oldWidth || height != oldHeight;
+    }
+
+    /**
+     * 根据当前手指的屏幕坐标计算新的窗口边界
+     *
+     * @return 边界是否发生变化
+     */
+    public boolean update(float rawX, float rawY) {
+        if (touchState == TouchState.NONE || touchState == TouchState.SCALING) {
+            return false;
+        }
+        int oldX = x;
+        int oldY = y;
+        int oldWidth = width;
+        int oldHeight = height;
+
+        int deltaX = (int) (rawX - initialTouchX);
+        int deltaY = (int) (rawY - initialTouchY);
+
+        if (touchState == TouchState.MOVING) {
+            solvePosition(initialX + deltaX, initialY + deltaY);
+        } else {
+            resize(deltaX, deltaY);
+        }
+        return x != oldX || y != oldY || width != oldWidth || height != oldHeight;
+    }
+
+    /**
+     * 结束当前手势
+     */
+    public void end() {
+        touchState = TouchState.NONE;
+    }
+
+    private void resize(int deltaX, int deltaY) {
+        boolean left = touchState == TouchState.RESIZING_LEFT
+                || touchState == TouchState.RESIZING_TOP_LEFT
+                || touchState == TouchState.RESIZING_BOTTOM_LEFT;
+        boolean right = touchState == TouchState.RESIZING_RIGHT
+                || touchState == TouchState.RESIZING_TOP_RIGHT
+                || touchState == TouchState.RESIZING_BOTTOM_RIGHT;
+        boolean top = touchState == TouchState.RESIZING_TOP
+                || touchState == TouchState.RESIZING_TOP_LEFT
+                || touchState == TouchState.RESIZING_TOP_RIGHT;
+        boolean bottom = touchState == TouchState.RESIZING_BOTTOM
+                || touchState == TouchState.RESIZING_BOTTOM_LEFT
+                || touchState == TouchState.RESIZING_BOTTOM_RIGHT;
+
+        // 拖动哪条边，对边就保持不动
+        int maxW = constraints.getMaxWidthFrom(left ? initialX + initialWidth : initialX, left);
+        int maxH = constraints.getMaxHeightFrom(top ? initialY + initialHeight : initialY, top);
+
+        int newWidth = initialWidth;
+        int newHeight = initialHeight;
+        if (left) {
+            newWidth = initialWidth - deltaX;
+        } else if (right) {
+            newWidth = initialWidth + deltaX;
+        }
+        if (top) {
+            newHeight = initialHeight - deltaY;
+        } else if (bottom) {
+            newHeight = initialHeight + deltaY;
+        }
+        constraints.solveSize(newWidth, newHeight, maxW, maxH, left || right);
+        newWidth = constraints.width;
+        newHeight = constraints.height;
+
+        width = newWidth;
+        height = newHeight;
+        // 窗口大部分在屏幕外时缩小可能违反保持可见的规则，此时对边也会跟着移动
+        solvePosition(left ? initialX + initialWidth - newWidth : initialX,
+                top ? initialY + initialHeight - newHeight : initialY);
+    }
+
+    private void solvePosition(int newX, int newY) {
+        constraints.solvePosition(newX, newY, width, height);
+        x = constraints.x;
+        y = constraints.y;
+    }
+}
@@ -2,38 +2,343 @@ package com.example.blocksubtitle.util;
 
 import android.content.Context;
 import android.content.SharedPreferences;
+import android.os.Process;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.CRC32;
 
 /**
  * 用于保存和恢复悬浮窗状态的工具类。
+ * 状态按配置档保存，配置档以应用包名为键，全局配置档沿用旧版本的键名。
+ * 每个配置档下，每种显示配置（方向、尺寸、密度）各有一份像素坐标的记录；
+ * 另外保存一份相对屏幕尺寸的归一化坐标，用于还没有记录过的显示配置。
+ * 像素坐标记录的数量有上限，新建记录时删除最久没有写入的记录；
+ * 某个应用的记录全部删除后，它的归一化坐标也一并删除。
  */
 public class WindowStateHelper {
+    private static final String TAG = "WindowStateHelper";
     private static final String PREFS_NAME = "FloatingWindowPrefs";
+    private static final String KEY_COUNT = "count";
     private static final String KEY_WIDTH = "width";
     private static final String KEY_HEIGHT = "height";
     private static final String KEY_X = "x";
     private static final String KEY_Y = "y";
+    private static final String KEY_SEQUENCE = "seq";
+    private static final String KEY_CHECKSUM = "checksum";
+    private static final String KEY_USED = "used";
+
+    // 全局的写入计数，每次写入后记入该记录的 used，用来找出最久没有写入的记录
+    private static final String KEY_USE_CLOCK = "useClock";
+
+    // 像素坐标记录的默认数量上限，每份记录在每个窗口占四个键
+    static final int MAX_RECORDS = 48;
+
+    // 归一化坐标
+    private static final String KEY_NORMALIZED_COUNT = "ncount";
+    private static final String KEY_NORMALIZED_WIDTH = "nw";
+    private static final String KEY_NORMALIZED_HEIGHT = "nh";
+    private static final String KEY_NORMALIZED_X = "nx";
+    private static final String KEY_NORMALIZED_Y = "ny";
+
+    // 全局配置档，没有单独记录的应用都使用它
+    public static final String GLOBAL_PROFILE = "";
 
     private SharedPreferences prefs;
+    private final int maxRecords;
+
+    // 已加载的记录，以“配置档@显示配置”为键，切换应用或旋转屏幕时直接命中内存
+    private final Map<String, List<WindowState>> cache = new HashMap<>();
 
     public WindowStateHelper(Context context) {
-        prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        this(context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE));
+    }
+
+    /**
+     * 使用给定的存储，便于在 JVM 上测试和测量
+     */
+    public WindowStateHelper(SharedPreferences prefs) {
+        this(prefs, MAX_RECORDS);
+    }
+
+    WindowStateHelper(SharedPreferences prefs, int maxRecords) {
+        this.prefs = prefs;
+        this.maxRecords = maxRecords;
+    }
+
+    /**
+     * 在后台线程提前读取保存的状态。在启动器或磁贴中调用，服务创建窗口时磁盘读取已经完成或正在进行，
+     * 主线程不必从头等待
+     */
+    public static void prefetch(Context context) {
+        final Context appContext = context.getApplicationContext();
+        new Thread(new Runnable() {
+            @Override
+            public void run() {
+                Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                // 第一次读取会等待文件加载完成
+                appContext.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE).getInt(KEY_COUNT, 0);
+            }
+        }, "StatePrefetch").start();
+    }
+
+    /**
+     * 保存某个配置档在某种显示配置下所有遮挡窗的状态并同步写入磁盘，只能在后台线程调用
+     *
+     * @return 是否写入成功
+     */
+    public boolean commitWindowStates(String profile, DisplayConfig config, List<WindowState> states) {
+        String record = recordName(profile, config);
+        synchronized (cache) {
+            cache.put(record, states);
+        }
+        SharedPreferences.Editor editor = prefs.edit();
+        if (!prefs.contains(key(record, KEY_COUNT))) {
+            evictRecords(editor, record);
+        }
+        int oldCount = prefs.getInt(key(record, KEY_COUNT), 1);
+        int sequence = prefs.getInt(key(record, KEY_SEQUENCE), 0) + 1;
+        long useClock = prefs.getLong(KEY_USE_CLOCK, 0) + 1;
+        for (int i = 0; i < states.size(); i++) {
+            WindowState state = states.get(i);
+            editor.putInt(key(record, KEY_WIDTH, i), state.width)
+                    .putInt(key(record, KEY_HEIGHT, i), state.height)
+                    .putInt(key(record, KEY_X, i), state.x)
+                    .putInt(key(record, KEY_Y, i), state.y);
+        }
+        // 清理多余的旧窗口记录
+        for (int i = states.size(); i < oldCount; i++) {
+            editor.remove(key(record, KEY_WIDTH, i))
+                    .remove(key(record, KEY_HEIGHT, i))
+                    .remove(key(record, KEY_X, i))
+                    .remove(key(record, KEY_Y, i));
+        }
+        editor.putInt(key(record, KEY_COUNT), states.size())
+                .putInt(key(record, KEY_SEQUENCE), sequence)
+                .putLong(key(record, KEY_CHECKSUM), checksum(sequence, states))
+                .putLong(key(record, KEY_USED), useClock)
+                .putLong(KEY_USE_CLOCK, useClock);
+
+        // 归一化坐标总是反映最近一次的调整
+        int oldNormalizedCount = prefs.getInt(key(profile, KEY_NORMALIZED_COUNT), 0);
+        removeNormalizedStates(editor, profile, states.size(), oldNormalizedCount);
+        for (int i = 0; i < states.size(); i++) {
+            WindowState state = states.get(i);
+            editor.putFloat(key(profile, KEY_NORMALIZED_WIDTH, i), (float) state.width / config.width)
+                    .putFloat(key(profile, KEY_NORMALIZED_HEIGHT, i), (float) state.height / config.height)
+                    .putFloat(key(profile, KEY_NORMALIZED_X, i), (float) state.x / config.width)
+                    .putFloat(key(profile, KEY_NORMALIZED_Y, i), (float) state.y / config.height);
+        }
+        editor.putInt(key(profile, KEY_NORMALIZED_COUNT), states.size());
+        return editor.commit();
+    }
+
+    /**
+     * 加载某个配置档在某种显示配置下所有遮挡窗的状态，返回的列表不能修改。
+     * 依次使用：该显示配置的记录、归一化坐标换算、旧版本的像素坐标。
+     * 全局配置档至少返回一个窗口；其他配置档没有记录时返回 null。
+     */
+    public List<WindowState> loadWindowStates(String profile, DisplayConfig config) {
+        String record = recordName(profile, config);
+        synchronized (cache) {
+            List<WindowState> cached = cache.get(record);
+            if (cached != null) {
+                return cached;
+            }
+        }
+        List<WindowState> states = readWindowStates(record);
+        if (states != null) {
+            synchronized (cache) {
+                cache.put(record, states);
+            }
+            return states;
+        }
+        // 换算得到的结果不缓存，归一化坐标可能在其他显示配置下被更新
+        states = readNormalizedStates(profile, config);
+        if (states == null) {
+            states = readWindowStates(profile);
+        }
+        if (states == null && GLOBAL_PROFILE.equals(profile)) {
+            states = new ArrayList<>(1);
+            states.add(new WindowState(300, 300, 0, 0)); // 默认大小和位置
+        }
+        return states;
+    }
+
+    /**
+     * 最近一次写入的序号
+     */
+    public int getSequence(String profile, DisplayConfig config) {
+        return prefs.getInt(key(recordName(profile, config), KEY_SEQUENCE), 0);
+    }
+
+    /**
+     * 新建记录前，记录总数达到上限时删除最久没有写入的记录，与新记录在同一次提交中写入。
+     * 只在新建记录时遍历全部键，已有记录的写入不受影响
+     */
+    private void evictRecords(SharedPreferences.Editor editor, String newRecord) {
+        String suffix = "/" + KEY_COUNT;
+        final Map<String, Long> used = new HashMap<>();
+        for (String name : prefs.getAll().keySet()) {
+            // 旧版本按配置档保存的记录没有显示配置，不在此列
+            if (name.endsWith(suffix) && name.indexOf('@') >= 0) {
+                String record = name.substring(0, name.length() - suffix.length());
+                used.put(record, prefs.getLong(key(record, KEY_USED), 0));
+            }
+        }
+        int excess = used.size() + 1 - maxRecords;
+        if (excess <= 0) {
+            return;
+        }
+        List<String> records = new ArrayList<>(used.keySet());
+        Collections.sort(records, new Comparator<String>() {
+            @Override
+            public int compare(String a, String b) {
+                return Long.compare(used.get(a), used.get(b));
+            }
+        });
+
+        Set<String> evictedProfiles = new HashSet<>();
+        for (int r = 0; r < excess; r++) {
+            String record = records.get(r);
+            int count = prefs.getInt(key(record, KEY_COUNT), 1);
+            for (int i = 0; i < count; i++) {
+                editor.remove(key(record, KEY_WIDTH, i))
+                        .remove(key(record, KEY_HEIGHT, i))
+                        .remove(key(record, KEY_X, i))
+                        .remove(key(record, KEY_Y, i));
+            }
+            editor.remove(key(record, KEY_COUNT))
+                    .remove(key(record, KEY_SEQUENCE))
+                    .remove(key(record, KEY_CHECKSUM))
+                    .remove(key(record, KEY_USED));
+            synchronized (cache) {
+                cache.remove(record);
+            }
+            evictedProfiles.add(profileOf(record));
+        }
+
+        // 还有其他记录的配置档保留归一化坐标，全局配置档总是保留
+        evictedProfiles.remove(GLOBAL_PROFILE);
+        evictedProfiles.remove(profileOf(newRecord));
+        for (int r = excess; r < records.size(); r++) {
+            evictedProfiles.remove(profileOf(records.get(r)));
+        }
+        for (String profile : evictedProfiles) {
+            removeNormalizedStates(editor, profile, 0, prefs.getInt(key(profile, KEY_NORMALIZED_COUNT), 0));
+            editor.remove(key(profile, KEY_NORMALIZED_COUNT));
+        }
+        RingLog.d(TAG, "Evicted {} window state records", excess);
+    }
+
+    /**
+     * 删除序号在 [from, to) 之间的归一化坐标
+     */
+    private static void removeNormalizedStates(SharedPreferences.Editor editor, String profile, int from, int to) {
+        for (int i = from; i < to; i++) {
+            editor.remove(key(profile, KEY_NORMALIZED_WIDTH, i))
+                    .remove(key(profile, KEY_NORMALIZED_HEIGHT, i))
+                    .remove(key(profile, KEY_NORMALIZED_X, i))
+                    .remove(key(profile, KEY_NORMALIZED_Y, i));
+        }
+    }
+
+    /**
+     * 读取一份像素坐标的记录，不存在或校验和不匹配（写入被中断）时返回 null
+     */
+    private List<WindowState> readWindowStates(String record) {
+        // 旧版本的全局记录可能没有 count
+        boolean legacyGlobal = record.isEmpty() && prefs.contains(KEY_WIDTH);
+        if (!legacyGlobal && !prefs.contains(key(record, KEY_COUNT))) {
+            return null;
+        }
+        int count = Math.max(1, prefs.getInt(key(record, KEY_COUNT), 1));
+        List<WindowState> states = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int width = prefs.getInt(key(record, KEY_WIDTH, i), 300); // 默认宽度
+            int height = prefs.getInt(key(record, KEY_HEIGHT, i), 300); // 默认高度
+            int x = prefs.getInt(key(record, KEY_X, i), 0); // 默认X坐标
+            int y = prefs.getInt(key(record, KEY_Y, i), 0); // 默认Y坐标
+            states.add(new WindowState(width, height, x, y));
+        }
+
+        // 旧版本没有校验和，直接信任
+        if (prefs.contains(key(record, KEY_CHECKSUM))) {
+            int sequence = prefs.getInt(key(record, KEY_SEQUENCE), 0);
+            if (prefs.getLong(key(record, KEY_CHECKSUM), 0) != checksum(sequence, states)) {
+                RingLog.w(TAG, "Corrupted window state, record={}, seq={}", record, sequence);
+                return null;
+            }
+        }
+        return states;
+    }
+
+    private List<WindowState> readNormalizedStates(String profile, DisplayConfig config) {
+        int count = prefs.getInt(key(profile, KEY_NORMALIZED_COUNT), 0);
+        if (count <= 0) {
+            return null;
+        }
+        List<WindowState> states = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int width = Math.round(prefs.getFloat(key(profile, KEY_NORMALIZED_WIDTH, i), 0f) * config.width);
+            int height = Math.round(prefs.getFloat(key(profile, KEY_NORMALIZED_HEIGHT, i), 0f) * config.height);
+            int x = Math.round(prefs.getFloat(key(profile, KEY_NORMALIZED_X, i), 0f) * config.width);
+            int y = Math.round(prefs.getFloat(key(profile, KEY_NORMALIZED_Y, i), 0f) * config.height);
+            states.add(new WindowState(width, height, x, y));
+        }
+        return states;
+    }
+
+    private static long checksum(int sequence, List<WindowState> states) {
+        CRC32 crc = new CRC32();
+        update(crc, sequence);
+        update(crc, states.size());
+        for (int i = 0; i < states.size(); i++) {
+            WindowState state = states.get(i);
+            update(crc, state.width);
+            update(crc, state.height);
+            update(crc, state.x);
+            update(crc, state.y);
+        }
+        return crc.getValue();
+    }
+
+    private static void update(CRC32 crc, int value) {
+        crc.update(value >>> 24);
+        crc.update(value >>> 16);
+        crc.update(value >>> 8);
+        crc.update(value);
+    }
+
+    private static String recordName(String profile, DisplayConfig config) {
+        return profile + "@" + config.key;
+    }
+
+    /**
+     * 记录名中的配置档，包名中不含 '@'
+     */
+    private static String profileOf(String record) {
+        return record.substring(0, record.indexOf('@'));
     }
 
-    public void saveWindowState(int width, int height, int x, int y) {
-        prefs.edit()
-                .putInt(KEY_WIDTH, width)
-                .putInt(KEY_HEIGHT, height)
-                .putInt(KEY_X, x)
-                .putInt(KEY_Y, y)
-                .apply();
+    /**
+     * 全局配置档沿用旧版本的键名，保证升级后能读到原来的状态
+     */
+    private static String key(String record, String name) {
+        return record.isEmpty() ? name : record + "/" + name;
     }
 
-    public WindowStateHelper.WindowState loadWindowState() {
-        int width = prefs.getInt(KEY_WIDTH, 300); // 默认宽度
-        int height = prefs.getInt(KEY_HEIGHT, 300); // 默认高度
-        int x = prefs.getInt(KEY_X, 0); // 默认X坐标
-        int y = prefs.getInt(KEY_Y, 0); // 默认Y坐标
-        return new WindowStateHelper.WindowState(width, height, x, y);
+    /**
+     * 第一个窗口沿用旧版本的键名，保证升级后能读到原来的状态
+     */
+    private static String key(String record, String name, int index) {
+        return key(record, index == 0 ? name : name + "_" + index);
     }
 
     public static class WindowState {
@@ -46,4 +351,4 @@ public class WindowStateHelper {
             this.y = y;
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,124 @@
+package com.example.blocksubtitle.view;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.view.View;
+
+/**
+ * 遮挡窗视图：直接用预先创建的 Paint 绘制填充和边框，没有子视图，
+ * 省去 LayoutInflater 解析布局和加载 drawable 的开销。
+ * 模糊和马赛克模式下用低分辨率的画面代替纯色填充，绘制时放大到整个视图。
+ */
+public class BlockerView extends View {
+
+    // 渲染模式
+    public static final int MODE_SOLID = 0;
+    public static final int MODE_BLUR = 1;
+    public static final int MODE_PIXELATE = 2;
+
+    // 与原来的 @drawable/border 一致
+    private static final int FILL_COLOR = 0xFFD3D3D3; // Light Gray background
+    private static final int BORDER_COLOR = 0xFF888888; // Gray border for visual cue
+    private static final float BORDER_WIDTH_DP = 1f;
+
+    private final Paint fillPaint = new Paint();
+    private final Paint borderPaint = new Paint();
+    private final Paint framePaint = new Paint();
+    private final Rect frameBounds = new Rect();
+    private final float borderWidth;
+
+    private int mode = MODE_SOLID;
+
+    // 模糊或马赛克模式下的画面，尺寸不变时逐帧复用；还没有画面时仍用纯色填充
+    private Bitmap frame;
+
+    // 是否以不透明表面渲染，合成时可以跳过混合。与普通视图一样默认按半透明处理，由窗口的创建方开启
+    private boolean opaqueSurface;
+
+    public BlockerView(Context context) {
+        super(context);
+        borderWidth = BORDER_WIDTH_DP * context.getResources().getDisplayMetrics().density;
+
+        fillPaint.setStyle(Paint.Style.FILL);
+        fillPaint.setColor(FILL_COLOR);
+
+        borderPaint.setStyle(Paint.Style.STROKE);
+        borderPaint.setColor(BORDER_COLOR);
+        borderPaint.setStrokeWidth(borderWidth);
+    }
+
+    /**
+     * 设置是否以不透明表面渲染。窗口的 PixelFormat 需要同步设置为 OPAQUE 才能生效
+     */
+    public void setOpaqueSurface(boolean opaqueSurface) {
+        if (this.opaqueSurface != opaqueSurface) {
+            this.opaqueSurface = opaqueSurface;
+            invalidate();
+        }
+    }
+
+    public boolean isOpaqueSurface() {
+        return opaqueSurface;
+    }
+
+    /**
+     * 设置渲染模式。模糊模式放大画面时双线性过滤，马赛克模式保留块状边缘
+     */
+    public void setRenderMode(int mode) {
+        if (this.mode == mode) {
+            return;
+        }
+        this.mode = mode;
+        framePaint.setFilterBitmap(mode == MODE_BLUR);
+        if (mode == MODE_SOLID && frame != null) {
+            frame.recycle();
+            frame = null;
+        }
+        invalidate();
+    }
+
+    public int getRenderMode() {
+        return mode;
+    }
+
+    /**
+     * 更新模糊或马赛克模式下的画面，像素会被复制，调用方可以复用数组
+     */
+    public void setFrame(int[] pixels, int width, int height) {
+        if (mode == MODE_SOLID) {
+            return;
+        }
+        if (frame == null || frame.getWidth() != width || frame.getHeight() != height) {
+            if (frame != null) {
+                frame.recycle();
+            }
+            frame = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+            frame.setHasAlpha(false);
+        }
+        frame.setPixels(pixels, 0, width, 0, 0, width, height);
+        invalidate();
+    }
+
+    @Override
+    public boolean isOpaque() {
+        return opaqueSurface;
+    }
+
+    @Override
+    protected void onDraw(Canvas canvas) {
+        int width = getWidth();
+        int height = getHeight();
+        if (mode != MODE_SOLID && frame != null) {
+            frameBounds.set(0, 0, width, height);
+            canvas.drawBitmap(frame, null, frameBounds, framePaint);
+        } else {
+            canvas.drawRect(0, 0, width, height, fillPaint);
+        }
+        // 描边以线条中心为准，向内缩进半个线宽保证边框完整可见
+        float inset = borderWidth / 2f;
+        canvas.drawRect(inset, inset, width - inset, height - inset, borderPaint);
+    }
+}
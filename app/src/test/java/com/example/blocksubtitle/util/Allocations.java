@@ -0,0 +1,31 @@
+package com.example.blocksubtitle.util;
+
+import static org.junit.Assume.assumeTrue;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * 统计当前线程在堆上分配的字节数，用于验证每个事件不分配对象。
+ * 依赖 HotSpot 的 com.sun.management 扩展，不支持时跳过相关测试
+ */
+public final class Allocations {
+
+    private Allocations() {
+    }
+
+    /**
+     * 运行 body 并返回期间当前线程分配的字节数。先预热一轮，排除类加载和首次调用的分配
+     */
+    public static long measure(Runnable body) {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+        assumeTrue(threads.isThreadAllocatedMemorySupported());
+        threads.setThreadAllocatedMemoryEnabled(true);
+        long id = Thread.currentThread().getId();
+        body.run();
+        long before = threads.getThreadAllocatedBytes(id);
+        body.run();
+        return threads.getThreadAllocatedBytes(id) - before;
+    }
+}
@@ -0,0 +1,96 @@
+package com.example.blocksubtitle.util;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+public class BoxBlurTest {
+
+    private static int gray(int value) {
+        return 0xFF000000 | value << 16 | value << 8 | value;
+    }
+
+    private static int green(int pixel) {
+        return (pixel >> 8) & 0xFF;
+    }
+
+    @Test
+    public void downscaleAveragesEachBlock() {
+        int[] src = {
+                gray(0), gray(100), gray(40), gray(40), gray(255),
+                gray(200), gray(100), gray(40), gray(40), gray(255),
+                gray(9), gray(9), gray(9), gray(9), gray(9),
+        };
+        int[] dst = new int[2];
+        BoxBlur.downscale(src, 5, 3, 2, dst);
+        // 右侧和下方除不尽的像素被丢弃
+        assertArrayEquals(new int[]{gray(100), gray(40)}, dst);
+    }
+
+    @Test
+    public void fillRowsInterpolatesBetweenTheNeighbours() {
+        int[] pixels = new int[5];
+        Arrays.fill(pixels, gray(77));
+        pixels[0] = gray(0);
+        pixels[4] = gray(200);
+        BoxBlur.fillRows(pixels, 1, 5, 1, 4);
+        assertEquals(50, green(pixels[1]));
+        assertEquals(100, green(pixels[2]));
+        assertEquals(150, green(pixels[3]));
+    }
+
+    @Test
+    public void fillRowsCopiesTheOnlyNeighbour() {
+        int[] pixels = {gray(77), gray(77), gray(30)};
+        BoxBlur.fillRows(pixels, 1, 3, 0, 2);
+        assertArrayEquals(new int[]{gray(30), gray(30), gray(30)}, pixels);
+    }
+
+    @Test
+    public void blurKeepsAFlatImage() {
+        int[] pixels = new int[40 * 10];
+        Arrays.fill(pixels, 0xFF336699);
+        new BoxBlur().blur(pixels, 40, 10, 3, 2);
+        for (int pixel : pixels) {
+            assertEquals(0xFF336699, pixel);
+        }
+    }
+
+    @Test
+    public void blurSpreadsAnEdgeSymmetrically() {
+        int width = 20;
+        int[] pixels = new int[width * 4];
+        for (int i = 0; i < pixels.length; i++) {
+            pixels[i] = gray(i % width < width / 2 ? 0 : 255);
+        }
+        new BoxBlur().blur(pixels, width, 4, 2, 2);
+        int row = width * 2;
+        assertEquals(0, green(pixels[row]));
+        assertEquals(255, green(pixels[row + width - 1]));
+        for (int x = 1; x < width; x++) {
+            assertTrue(green(pixels[row + x]) >= green(pixels[row + x - 1]));
+        }
+        // 边缘两侧对称
+        assertEquals(255, green(pixels[row + width / 2 - 1]) + green(pixels[row + width / 2]), 1);
+    }
+
+    @Test
+    public void blurReusesItsBuffer() {
+        final BoxBlur kernel = new BoxBlur();
+        final int[] pixels = new int[270 * 60];
+        long bytes = Allocations.measure(new Runnable() {
+            @Override
+            public void run() {
+                for (int i = 0; i < 100; i++) {
+                    kernel.blur(pixels, 270, 60, 2, 2);
+                }
+            }
+        });
+        // 每帧重新分配临时缓冲区会是 64KB
+        assertTrue("allocated " + bytes + " bytes", bytes < 1024);
+    }
+}
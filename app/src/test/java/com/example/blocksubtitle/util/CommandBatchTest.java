@@ -0,0 +1,204 @@
+package com.example.blocksubtitle.util;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 以本地客户端的方式解析并执行命令批次，检查整批校验和每个窗口最多布局一次
+ */
+public class CommandBatchTest {
+
+    /**
+     * 与遮挡窗管理器行为一致的窗口集合：批量操作期间只标记布局，结束时每个窗口最多布局一次
+     */
+    private static class FakeTarget implements CommandBatch.Target {
+        // 每个窗口依次为 x、y、宽、高
+        final List<int[]> windows = new ArrayList<>();
+        final Map<String, List<int[]>> profiles = new HashMap<>();
+        final List<int[]> deferred = new ArrayList<>();
+        String profile = WindowStateHelper.GLOBAL_PROFILE;
+        boolean hidden;
+        boolean batching;
+        int layouts;
+
+        @Override
+        public int getWindowCount() {
+            return windows.size();
+        }
+
+        @Override
+        public void beginBatch() {
+            assertFalse(batching);
+            batching = true;
+        }
+
+        @Override
+        public void endBatch() {
+            batching = false;
+            for (int[] window : deferred) {
+                if (windows.contains(window)) {
+                    layouts++;
+                }
+            }
+            deferred.clear();
+        }
+
+        @Override
+        public void addWindow(int x, int y, int width, int height) {
+            int[] window = {x, y, width, height};
+            windows.add(window);
+            layout(window);
+        }
+
+        @Override
+        public void removeWindow(int index) {
+            assertTrue(batching);
+            windows.remove(index);
+        }
+
+        @Override
+        public void setWindowBounds(int index, int x, int y, int width, int height) {
+            int[] window = windows.get(index);
+            window[0] = x;
+            window[1] = y;
+            window[2] = width;
+            window[3] = height;
+            layout(window);
+        }
+
+        @Override
+        public void setHidden(boolean hidden) {
+            this.hidden = hidden;
+            for (int[] window : windows) {
+                layout(window);
+            }
+        }
+
+        @Override
+        public void selectProfile(String profile) {
+            profiles.put(this.profile, new ArrayList<>(windows));
+            this.profile = profile;
+            windows.clear();
+            List<int[]> saved = profiles.get(profile);
+            if (saved != null) {
+                windows.addAll(saved);
+            } else {
+                addWindow(0, 0, 200, 100);
+            }
+        }
+
+        private void layout(int[] window) {
+            assertTrue("Layout outside a batch", batching);
+            if (!deferred.contains(window)) {
+                deferred.add(window);
+            }
+        }
+    }
+
+    private FakeTarget target;
+
+    @Before
+    public void setUp() {
+        target = new FakeTarget();
+        target.windows.add(new int[]{0, 1800, 1080, 200});
+    }
+
+    private int run(String text) {
+        return CommandBatch.parse(text, target.getWindowCount()).apply(target);
+    }
+
+    private void assertRejected(String text) {
+        try {
+            CommandBatch.parse(text, target.getWindowCount());
+            fail("Accepted " + text);
+        } catch (IllegalArgumentException expected) {
+            // 整批拒绝
+        }
+    }
+
+    @Test
+    public void parsesEveryCommand() {
+        CommandBatch batch = CommandBatch.parse(
+                "add 10 20 300 40; bounds 0 1 2 3 4\nhide;show;  remove 1 ;profile global;profile video", 1);
+        assertEquals(7, batch.size());
+        assertEquals(CommandBatch.OP_ADD, batch.getOp(0));
+        assertEquals(300, batch.getArg(0, 2));
+        assertEquals(CommandBatch.OP_BOUNDS, batch.getOp(1));
+        assertEquals(4, batch.getArg(1, 4));
+        assertEquals(CommandBatch.OP_HIDE, batch.getOp(2));
+        assertEquals(CommandBatch.OP_SHOW, batch.getOp(3));
+        assertEquals(CommandBatch.OP_REMOVE, batch.getOp(4));
+        assertEquals(1, batch.getArg(4, 0));
+        assertEquals(WindowStateHelper.GLOBAL_PROFILE, batch.getName(5));
+        assertEquals("video", batch.getName(6));
+    }
+
+    @Test
+    public void emptyCommandsAreIgnored() {
+        assertEquals(0, CommandBatch.parse(" ;\n; ", 1).size());
+    }
+
+    @Test
+    public void invalidCommandsRejectTheWholeBatch() {
+        assertRejected("jump 1");
+        assertRejected("add 10 20 300");
+        assertRejected("add 10 20 300 x");
+        assertRejected("add 10 20 0 40");
+        assertRejected("bounds 1 0 0 100 100");
+        assertRejected("bounds 0 0 0 100 -1");
+        assertRejected("profile");
+        // 只剩一个窗口时不能移除
+        assertRejected("remove 0");
+        // 前面的命令有效也不执行
+        assertRejected("add 0 0 100 100; remove 2");
+    }
+
+    @Test
+    public void indicesFollowEarlierCommandsInTheBatch() {
+        assertEquals(0, run("add 0 0 100 100; add 0 100 100 100; remove 0; bounds 1 5 5 50 50"));
+        assertEquals(2, target.windows.size());
+        assertArrayEquals(new int[]{0, 0, 100, 100}, target.windows.get(0));
+        assertArrayEquals(new int[]{5, 5, 50, 50}, target.windows.get(1));
+    }
+
+    @Test
+    public void eachWindowIsLaidOutOnce() {
+        target.windows.add(new int[]{0, 0, 100, 100});
+        run("bounds 0 0 1700 1080 220; bounds 1 0 0 200 200; hide; bounds 0 0 1600 1080 300; show");
+        assertEquals(2, target.layouts);
+        assertFalse(target.hidden);
+        assertArrayEquals(new int[]{0, 1600, 1080, 300}, target.windows.get(0));
+    }
+
+    @Test
+    public void removedWindowsAreNotLaidOut() {
+        run("add 0 0 100 100; bounds 1 10 10 100 100; remove 1");
+        assertEquals(0, target.layouts);
+        assertEquals(1, target.windows.size());
+    }
+
+    @Test
+    public void indicesAfterAProfileSwitchAreCheckedWhenApplied() {
+        // 新配置档只有一个窗口，解析时无法知道
+        assertEquals(2, run("add 0 0 100 100; profile video; bounds 1 0 0 50 50; remove 0; bounds 0 1 2 30 40"));
+        assertEquals("video", target.profile);
+        assertEquals(1, target.windows.size());
+        assertArrayEquals(new int[]{1, 2, 30, 40}, target.windows.get(0));
+
+        // 切回原来的配置档，之前添加的窗口还在
+        assertEquals(0, run("profile global; remove 1"));
+        assertEquals(1, target.windows.size());
+        assertArrayEquals(new int[]{0, 1800, 1080, 200}, target.windows.get(0));
+    }
+}
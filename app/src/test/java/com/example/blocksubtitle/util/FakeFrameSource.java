@@ -0,0 +1,40 @@
+package com.example.blocksubtitle.util;
+
+import java.util.ArrayList;
+
+/**
+ * 手动推进的帧信号来源，代替 Choreographer 在 JVM 上驱动帧回调
+ */
+public class FakeFrameSource implements FrameCoalescer.FrameSource {
+
+    private final ArrayList<FrameCoalescer.FrameCallback> callbacks = new ArrayList<>();
+    private final ArrayList<FrameCoalescer.FrameCallback> running = new ArrayList<>();
+
+    @Override
+    public void postFrameCallback(FrameCoalescer.FrameCallback callback) {
+        callbacks.add(callback);
+    }
+
+    @Override
+    public void removeFrameCallback(FrameCoalescer.FrameCallback callback) {
+        while (callbacks.remove(callback)) {
+            // 同一个回调可能登记了多次
+        }
+    }
+
+    /**
+     * 执行一帧：只运行这一帧之前登记的回调，回调中新登记的留到下一帧
+     */
+    public void doFrame(long frameTimeNanos) {
+        running.clear();
+        running.addAll(callbacks);
+        callbacks.clear();
+        for (int i = 0; i < running.size(); i++) {
+            running.get(i).doFrame(frameTimeNanos);
+        }
+    }
+
+    public int getPendingCount() {
+        return callbacks.size();
+    }
+}
@@ -0,0 +1,86 @@
+package com.example.blocksubtitle.util;
+
+import java.util.ArrayList;
+
+/**
+ * 手动推进时间的调度器，代替 Handler 在 JVM 上执行任务
+ */
+public class FakeScheduler implements StateCheckpointer.Scheduler {
+
+    private static class Task {
+        final Runnable runnable;
+        final long when;
+
+        Task(Runnable runnable, long when) {
+            this.runnable = runnable;
+            this.when = when;
+        }
+    }
+
+    private final ArrayList<Task> tasks = new ArrayList<>();
+    private long now;
+
+    @Override
+    public void post(Runnable task) {
+        postDelayed(task, 0);
+    }
+
+    @Override
+    public void postDelayed(Runnable task, long delayMs) {
+        tasks.add(new Task(task, now + delayMs));
+    }
+
+    @Override
+    public void removeCallbacks(Runnable task) {
+        for (int i = tasks.size() - 1; i >= 0; i--) {
+            if (tasks.get(i).runnable == task) {
+                tasks.remove(i);
+            }
+        }
+    }
+
+    public long now() {
+        return now;
+    }
+
+    /**
+     * 推进时间，按到期顺序执行期间到期的任务
+     */
+    public void advance(long ms) {
+        long target = now + ms;
+        while (true) {
+            Task next = null;
+            for (int i = 0; i < tasks.size(); i++) {
+                Task task = tasks.get(i);
+                if (task.when <= target && (next == null || task.when < next.when)) {
+                    next = task;
+                }
+            }
+            if (next == null) {
+                break;
+            }
+            tasks.remove(next);
+            now = next.when;
+            next.runnable.run();
+        }
+        now = target;
+    }
+
+    /**
+     * 执行所有已到期的任务
+     */
+    public void runPending() {
+        advance(0);
+    }
+
+    /**
+     * 丢弃所有未执行的任务，模拟进程被杀
+     */
+    public void kill() {
+        tasks.clear();
+    }
+
+    public int getPendingCount() {
+        return tasks.size();
+    }
+}
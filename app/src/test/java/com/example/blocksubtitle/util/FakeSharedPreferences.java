@@ -0,0 +1,193 @@
+package com.example.blocksubtitle.util;
+
+import android.content.SharedPreferences;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 内存中的 SharedPreferences，“磁盘”内容可以取出后交给新的实例，模拟进程被杀后重新加载。
+ * 可以让下一次提交只写入前几个修改，模拟写入中途被打断
+ */
+public class FakeSharedPreferences implements SharedPreferences {
+
+    private final HashMap<String, Object> values;
+
+    // 下一次提交只应用的修改数，负数表示全部应用
+    private int tornAfter = -1;
+
+    private int commitCount;
+
+    public FakeSharedPreferences() {
+        this(new HashMap<String, Object>());
+    }
+
+    /**
+     * 以另一个实例的磁盘内容创建，相当于进程重启后重新读取文件
+     */
+    public FakeSharedPreferences(FakeSharedPreferences disk) {
+        this(new HashMap<>(disk.values));
+    }
+
+    private FakeSharedPreferences(HashMap<String, Object> values) {
+        this.values = values;
+    }
+
+    /**
+     * 下一次提交只写入前 changes 个修改
+     */
+    public void tearNextCommit(int changes) {
+        tornAfter = changes;
+    }
+
+    public synchronized int getCommitCount() {
+        return commitCount;
+    }
+
+    @Override
+    public synchronized Map<String, ?> getAll() {
+        return new HashMap<>(values);
+    }
+
+    @Override
+    public synchronized String getString(String key, String defValue) {
+        Object value = values.get(key);
+        return value != null ? (String) value : defValue;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public synchronized Set<String> getStringSet(String key, Set<String> defValues) {
+        Object value = values.get(key);
+        return value != null ? (Set<String>) value : defValues;
+    }
+
+    @Override
+    public synchronized int getInt(String key, int defValue) {
+        Object value = values.get(key);
+        return value != null ? (Integer) value : defValue;
+    }
+
+    @Override
+    public synchronized long getLong(String key, long defValue) {
+        Object value = values.get(key);
+        return value != null ? (Long) value : defValue;
+    }
+
+    @Override
+    public synchronized float getFloat(String key, float defValue) {
+        Object value = values.get(key);
+        return value != null ? (Float) value : defValue;
+    }
+
+    @Override
+    public synchronized boolean getBoolean(String key, boolean defValue) {
+        Object value = values.get(key);
+        return value != null ? (Boolean) value : defValue;
+    }
+
+    @Override
+    public synchronized boolean contains(String key) {
+        return values.containsKey(key);
+    }
+
+    @Override
+    public Editor edit() {
+        return new FakeEditor();
+    }
+
+    @Override
+    public void registerOnSharedPreferenceChangeListener(OnSharedPreferenceChangeListener listener) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void unregisterOnSharedPreferenceChangeListener(OnSharedPreferenceChangeListener listener) {
+        throw new UnsupportedOperationException();
+    }
+
+    private synchronized boolean apply(boolean clear, List<Map.Entry<String, Object>> changes) {
+        commitCount++;
+        int limit = tornAfter >= 0 ? Math.min(tornAfter, changes.size()) : changes.size();
+        tornAfter = -1;
+        if (clear) {
+            values.clear();
+        }
+        for (int i = 0; i < limit; i++) {
+            Map.Entry<String, Object> change = changes.get(i);
+            if (change.getValue() == null) {
+                values.remove(change.getKey());
+            } else {
+                values.put(change.getKey(), change.getValue());
+            }
+        }
+        return true;
+    }
+
+    private class FakeEditor implements Editor {
+        // 按调用顺序记录，null 表示删除
+        private final LinkedHashMap<String, Object> changes = new LinkedHashMap<>();
+        private boolean clear;
+
+        private Editor put(String key, Object value) {
+            changes.remove(key);
+            changes.put(key, value);
+            return this;
+        }
+
+        @Override
+        public Editor putString(String key, String value) {
+            return put(key, value);
+        }
+
+        @Override
+        public Editor putStringSet(String key, Set<String> values) {
+            return put(key, values);
+        }
+
+        @Override
+        public Editor putInt(String key, int value) {
+            return put(key, value);
+        }
+
+        @Override
+        public Editor putLong(String key, long value) {
+            return put(key, value);
+        }
+
+        @Override
+        public Editor putFloat(String key, float value) {
+            return put(key, value);
+        }
+
+        @Override
+        public Editor putBoolean(String key, boolean value) {
+            return put(key, value);
+        }
+
+        @Override
+        public Editor remove(String key) {
+            return put(key, null);
+        }
+
+        @Override
+        public Editor clear() {
+            clear = true;
+            return this;
+        }
+
+        @Override
+        public boolean commit() {
+            return FakeSharedPreferences.this.apply(clear, new ArrayList<>(changes.entrySet()));
+        }
+
+        @Override
+        public void apply() {
+            commit();
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.example.blocksubtitle.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class FlingStepperTest {
+
+    private static final int SCREEN_WIDTH = 1080;
+    private static final int SCREEN_HEIGHT = 2400;
+    private static final int KEEP_VISIBLE = 120;
+    private static final int SNAP_DISTANCE = 40;
+    private static final long FRAME_NANOS = 16_666_667L;
+
+    private LayoutConstraints constraints;
+    private FlingStepper fling;
+
+    @Before
+    public void setUp() {
+        constraints = new LayoutConstraints();
+        constraints.setBounds(0, 0, SCREEN_WIDTH, SCREEN_HEIGHT);
+        constraints.setInsets(0, 80, 0, 60);
+        constraints.setKeepVisible(KEEP_VISIBLE);
+        fling = new FlingStepper(50f, SNAP_DISTANCE);
+        fling.setConstraints(constraints);
+    }
+
+    /**
+     * 逐帧推进到停止，每一帧的位置都要满足约束
+     */
+    private void runToEnd(int width, int height) {
+        long time = 1_000_000_000L;
+        int frames = 0;
+        while (fling.step(time)) {
+            assertTrue(constraints.isSatisfied(fling.getX(), fling.getY(), width, height));
+            time += FRAME_NANOS;
+            assertTrue(++frames < 100);
+        }
+        assertTrue(constraints.isSatisfied(fling.getX(), fling.getY(), width, height));
+    }
+
+    @Test
+    public void flingMayLeaveTheWindowPartlyOffScreen() {
+        // 与拖动相同，甩出右边缘时只需保留 KEEP_VISIBLE 像素，而不是整个窗口都留在屏幕内
+        assertTrue(fling.start(400, 1000, 600, 150, 8000f, 0f, null));
+        assertEquals(SCREEN_WIDTH - KEEP_VISIBLE, fling.getTargetX());
+        assertEquals(1000, fling.getTargetY());
+        runToEnd(600, 150);
+        assertEquals(SCREEN_WIDTH - KEEP_VISIBLE, fling.getX());
+    }
+
+    @Test
+    public void flingStopsAtTheSystemBars() {
+        // 向上甩时停在状态栏下方仍能拖到的位置
+        fling.start(200, 600, 600, 150, 0f, -9000f, null);
+        assertEquals(80 + KEEP_VISIBLE - 150, fling.getTargetY());
+        runToEnd(600, 150);
+    }
+
+    @Test
+    public void slowReleaseOnlySnaps() {
+        SnapTargets targets = new SnapTargets();
+        targets.addRect(0, 0, SCREEN_WIDTH, SCREEN_HEIGHT);
+        targets.sort();
+        assertTrue(fling.start(20, 1000, 600, 150, 10f, 0f, targets));
+        assertEquals(0, fling.getTargetX());
+        assertEquals(1000, fling.getTargetY());
+        runToEnd(600, 150);
+    }
+
+    @Test
+    public void snapTargetOutsideTheConstraintsIsClampedBack() {
+        // 另一个窗口的左边缘离屏幕右边缘只有 80 像素，吸附过去会让本窗口露出的部分少于 KEEP_VISIBLE
+        SnapTargets targets = new SnapTargets();
+        targets.addX(SCREEN_WIDTH - 80);
+        targets.sort();
+        assertFalse(fling.start(SCREEN_WIDTH - KEEP_VISIBLE, 1000, 600, 150, 0f, 0f, targets));
+        assertEquals(SCREEN_WIDTH - KEEP_VISIBLE, fling.getTargetX());
+    }
+
+    @Test
+    public void noMovementWhenAlreadyAtRest() {
+        assertFalse(fling.start(200, 600, 600, 150, 0f, 0f, null));
+        assertFalse(fling.isRunning());
+    }
+}
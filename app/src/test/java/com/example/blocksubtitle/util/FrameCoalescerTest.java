@@ -0,0 +1,105 @@
+package com.example.blocksubtitle.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * 用合成的高采样率拖动事件流统计实际布局次数
+ */
+public class FrameCoalescerTest {
+
+    private static final long FRAME_NANOS = 16_666_667L;  // 60Hz 显示
+    private static final long EVENT_NANOS = 4_166_667L;   // 240Hz 触摸
+
+    private FakeFrameSource frameSource;
+    private WindowGeometry geometry;
+    private FrameCoalescer coalescer;
+
+    // 每次布局时应用的边界
+    private int relayouts;
+    private int appliedX;
+    private int appliedY;
+
+    @Before
+    public void setUp() {
+        frameSource = new FakeFrameSource();
+        geometry = new WindowGeometry();
+        geometry.setHandleSize(30);
+        geometry.set(100, 100, 300, 120);
+        coalescer = new FrameCoalescer(frameSource, new Runnable() {
+            @Override
+            public void run() {
+                relayouts++;
+                appliedX = geometry.x;
+                appliedY = geometry.y;
+            }
+        });
+    }
+
+    @Test
+    public void highRateDragRelayoutsAtMostOncePerFrame() {
+        geometry.begin(150, 60, 250, 160);
+        int frames = 0;
+        long nextFrame = FRAME_NANOS;
+        int moves = 240;
+        for (int i = 1; i <= moves; i++) {
+            long t = i * EVENT_NANOS;
+            while (t >= nextFrame) {
+                frameSource.doFrame(nextFrame);
+                nextFrame += FRAME_NANOS;
+                frames++;
+            }
+            if (geometry.update(250 + i, 160 + i / 2f)) {
+                coalescer.requestUpdate();
+            }
+        }
+        coalescer.flush();
+
+        assertEquals(moves, coalescer.getRequestCount());
+        // 每帧最多一次，外加抬起时的一次
+        assertTrue("relayouts=" + relayouts + " frames=" + frames, relayouts <= frames + 1);
+        assertTrue(relayouts >= frames);
+        assertEquals(relayouts, coalescer.getApplyCount());
+        // 最终边界没有丢失
+        assertEquals(100 + moves, appliedX);
+        assertEquals(100 + moves / 2, appliedY);
+    }
+
+    @Test
+    public void repeatedRequestsInOneFramePostOneCallback() {
+        for (int i = 0; i < 10; i++) {
+            coalescer.requestUpdate();
+        }
+        assertEquals(1, frameSource.getPendingCount());
+        frameSource.doFrame(FRAME_NANOS);
+        assertEquals(1, relayouts);
+        assertEquals(FRAME_NANOS, coalescer.getLastFrameTimeNanos());
+        assertFalse(coalescer.isScheduled());
+    }
+
+    @Test
+    public void flushAppliesImmediatelyAndSkipsTheFrame() {
+        coalescer.requestUpdate();
+        coalescer.flush();
+        assertEquals(1, relayouts);
+        assertEquals(0, frameSource.getPendingCount());
+        frameSource.doFrame(FRAME_NANOS);
+        assertEquals(1, relayouts);
+        // 没有待执行的更新时 flush 不做任何事
+        coalescer.flush();
+        assertEquals(1, relayouts);
+    }
+
+    @Test
+    public void cancelDropsPendingUpdate() {
+        coalescer.requestUpdate();
+        coalescer.cancel();
+        frameSource.doFrame(FRAME_NANOS);
+        assertEquals(0, relayouts);
+        assertFalse(coalescer.isScheduled());
+    }
+}
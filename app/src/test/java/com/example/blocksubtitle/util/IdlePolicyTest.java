@@ -0,0 +1,222 @@
+package com.example.blocksubtitle.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 用模拟的播放和屏幕事件驱动休眠策略，截止时间像 IdleMonitor 一样交给调度器，时间由调度器手动推进
+ */
+public class IdlePolicyTest {
+
+    private static final long IDLE_DELAY_MS = 60_000;
+
+    private FakeScheduler clock;
+    private IdlePolicy policy;
+    // 每次休眠状态变化
+    private final List<Boolean> changes = new ArrayList<>();
+
+    private final Runnable deadlineRunnable = new Runnable() {
+        @Override
+        public void run() {
+            policy.onDeadline(clock.now());
+            schedule();
+        }
+    };
+
+    @Before
+    public void setUp() {
+        clock = new FakeScheduler();
+        policy = new IdlePolicy(IDLE_DELAY_MS, new IdlePolicy.Listener() {
+            @Override
+            public void onSleepChanged(boolean sleeping) {
+                changes.add(sleeping);
+            }
+        });
+    }
+
+    private void schedule() {
+        clock.removeCallbacks(deadlineRunnable);
+        long deadline = policy.getDeadline();
+        if (deadline != IdlePolicy.NO_DEADLINE) {
+            clock.postDelayed(deadlineRunnable, Math.max(0, deadline - clock.now()));
+        }
+    }
+
+    private void start(boolean playing, boolean screenOn) {
+        policy.start(playing, screenOn, clock.now());
+        schedule();
+    }
+
+    private void playback(boolean playing) {
+        policy.onPlaybackChanged(playing, clock.now());
+        schedule();
+    }
+
+    private void screen(boolean on) {
+        policy.onScreenChanged(on, clock.now());
+        schedule();
+    }
+
+    private void userActivity() {
+        policy.onUserActivity(clock.now());
+        schedule();
+    }
+
+    @Test
+    public void startsActiveWhilePlaying() {
+        start(true, true);
+        assertEquals(IdlePolicy.STATE_ACTIVE, policy.getState());
+        assertEquals(IdlePolicy.NO_DEADLINE, policy.getDeadline());
+        assertEquals(0, clock.getPendingCount());
+        assertTrue(changes.isEmpty());
+    }
+
+    @Test
+    public void sleepsAfterTheDelayWithoutPlayback() {
+        start(false, true);
+        assertEquals(IdlePolicy.STATE_WAITING, policy.getState());
+        assertEquals(IDLE_DELAY_MS, policy.getDeadline());
+
+        clock.advance(IDLE_DELAY_MS - 1);
+        assertFalse(policy.isSleeping());
+        clock.advance(1);
+        assertEquals(IdlePolicy.STATE_IDLE, policy.getState());
+        assertEquals(1, changes.size());
+        assertTrue(changes.get(0));
+        // 休眠后不保留任何定时器
+        assertEquals(0, clock.getPendingCount());
+    }
+
+    @Test
+    public void earlyDeadlineDoesNotSleep() {
+        start(false, true);
+        clock.advance(1000);
+        policy.onDeadline(clock.now());
+        assertEquals(IdlePolicy.STATE_WAITING, policy.getState());
+    }
+
+    @Test
+    public void playbackWakesImmediately() {
+        start(false, true);
+        clock.advance(IDLE_DELAY_MS);
+        playback(true);
+        assertEquals(IdlePolicy.STATE_ACTIVE, policy.getState());
+        assertEquals(2, changes.size());
+        assertFalse(changes.get(1));
+    }
+
+    @Test
+    public void stoppingPlaybackRestartsTheDelay() {
+        start(true, true);
+        clock.advance(10 * IDLE_DELAY_MS);
+        playback(false);
+        assertEquals(IdlePolicy.STATE_WAITING, policy.getState());
+        assertEquals(clock.now() + IDLE_DELAY_MS, policy.getDeadline());
+
+        // 短暂暂停后继续播放，不会休眠
+        clock.advance(IDLE_DELAY_MS / 2);
+        playback(true);
+        clock.advance(IDLE_DELAY_MS);
+        assertEquals(IdlePolicy.STATE_ACTIVE, policy.getState());
+        assertTrue(changes.isEmpty());
+    }
+
+    @Test
+    public void screenOffSleepsEvenWhilePlaying() {
+        start(true, true);
+        screen(false);
+        assertEquals(IdlePolicy.STATE_SCREEN_OFF, policy.getState());
+        assertEquals(IdlePolicy.NO_DEADLINE, policy.getDeadline());
+        assertTrue(policy.isSleeping());
+
+        screen(true);
+        assertEquals(IdlePolicy.STATE_ACTIVE, policy.getState());
+        assertEquals(2, changes.size());
+        assertFalse(changes.get(1));
+    }
+
+    @Test
+    public void screenOnWithoutPlaybackWaitsAgain() {
+        start(false, false);
+        assertEquals(IdlePolicy.STATE_SCREEN_OFF, policy.getState());
+        assertEquals(0, clock.getPendingCount());
+
+        clock.advance(5 * IDLE_DELAY_MS);
+        screen(true);
+        assertEquals(IdlePolicy.STATE_WAITING, policy.getState());
+        assertEquals(clock.now() + IDLE_DELAY_MS, policy.getDeadline());
+        clock.advance(IDLE_DELAY_MS);
+        assertEquals(IdlePolicy.STATE_IDLE, policy.getState());
+    }
+
+    @Test
+    public void screenOffWhileIdleStaysAsleepUntilTheScreenIsOn() {
+        start(false, true);
+        clock.advance(IDLE_DELAY_MS);
+        // 两种休眠之间切换不通知
+        screen(false);
+        assertEquals(1, changes.size());
+        // 亮屏后先唤醒，重新计时
+        screen(true);
+        assertEquals(2, changes.size());
+        assertEquals(IdlePolicy.STATE_WAITING, policy.getState());
+        assertEquals(clock.now() + IDLE_DELAY_MS, policy.getDeadline());
+    }
+
+    @Test
+    public void userActivityWakesAndRestartsTheDelay() {
+        start(false, true);
+        clock.advance(IDLE_DELAY_MS / 2);
+        userActivity();
+        assertEquals(clock.now() + IDLE_DELAY_MS, policy.getDeadline());
+        clock.advance(IDLE_DELAY_MS / 2);
+        assertEquals(IdlePolicy.STATE_WAITING, policy.getState());
+
+        clock.advance(IDLE_DELAY_MS / 2);
+        assertTrue(policy.isSleeping());
+        userActivity();
+        assertEquals(IdlePolicy.STATE_WAITING, policy.getState());
+        assertEquals(2, changes.size());
+        assertFalse(changes.get(1));
+    }
+
+    @Test
+    public void userActivityIsIgnoredWhileActiveOrScreenOff() {
+        start(true, true);
+        userActivity();
+        assertEquals(IdlePolicy.STATE_ACTIVE, policy.getState());
+        screen(false);
+        userActivity();
+        assertEquals(IdlePolicy.STATE_SCREEN_OFF, policy.getState());
+    }
+
+    @Test
+    public void countsTimeInEachState() {
+        start(false, true);
+        clock.advance(IDLE_DELAY_MS + 30_000);
+        playback(true);
+        clock.advance(120_000);
+        screen(false);
+        clock.advance(15_000);
+
+        assertEquals(IDLE_DELAY_MS, policy.getTimeInState(IdlePolicy.STATE_WAITING, clock.now()));
+        assertEquals(30_000, policy.getTimeInState(IdlePolicy.STATE_IDLE, clock.now()));
+        assertEquals(120_000, policy.getTimeInState(IdlePolicy.STATE_ACTIVE, clock.now()));
+        // 包括当前正在停留的一段
+        assertEquals(15_000, policy.getTimeInState(IdlePolicy.STATE_SCREEN_OFF, clock.now()));
+
+        StringWriter out = new StringWriter();
+        policy.dump(new PrintWriter(out), clock.now());
+        assertTrue(out.toString(), out.toString().contains("state=screenOff"));
+        assertTrue(out.toString(), out.toString().contains("active=120s/1"));
+    }
+}
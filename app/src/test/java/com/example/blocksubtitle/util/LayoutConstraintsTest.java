@@ -0,0 +1,151 @@
+package com.example.blocksubtitle.util;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+/**
+ * 随机生成屏幕、系统栏、尺寸限制、宽高比和保持可见的规则，再施加随机的手势序列，
+ * 检查加载、拖动、缩放和抛掷之后的每一个边界都满足约束。种子固定，失败时可以按序列号复现
+ */
+public class LayoutConstraintsTest {
+
+    private static final long SEED = 42;
+    private static final int SEQUENCES = 2000;
+    private static final int GESTURES = 30;
+    private static final int EVENTS = 10;
+    private static final int HANDLE_SIZE = 40;
+    private static final long FRAME_NANOS = 16_666_667L;
+
+    private final Random random = new Random(SEED);
+
+    // 当前序列的屏幕尺寸
+    private int screenWidth;
+    private int screenHeight;
+
+    private LayoutConstraints randomConstraints() {
+        LayoutConstraints constraints = new LayoutConstraints();
+        screenWidth = 300 + random.nextInt(2000);
+        screenHeight = 300 + random.nextInt(2000);
+        constraints.setBounds(0, 0, screenWidth, screenHeight);
+        constraints.setInsets(random.nextInt(100), random.nextInt(150), random.nextInt(100), random.nextInt(150));
+        constraints.setKeepVisible(random.nextInt(3) == 0 ? 0 : random.nextInt(200));
+        if (random.nextInt(4) == 0) {
+            constraints.setAspectRatio(0.5f + random.nextFloat() * 8);
+        }
+        if (random.nextInt(3) == 0) {
+            constraints.setMaxSize(100 + random.nextInt(3000), 100 + random.nextInt(3000));
+        }
+        return constraints;
+    }
+
+    /**
+     * 任意边界，包括完全在屏幕外和尺寸为负的边界，模拟损坏或来自其他屏幕的保存状态
+     */
+    private WindowGeometry randomWindow(LayoutConstraints constraints) {
+        WindowGeometry geometry = new WindowGeometry();
+        geometry.setHandleSize(HANDLE_SIZE);
+        geometry.setConstraints(constraints);
+        geometry.setIndependentScale(random.nextBoolean(), HANDLE_SIZE);
+        geometry.set(random.nextInt(6000) - 3000, random.nextInt(6000) - 3000,
+                random.nextInt(4000) - 100, random.nextInt(4000) - 100);
+        return geometry;
+    }
+
+    private static void assertSatisfied(String what, int sequence, LayoutConstraints constraints,
+                                        int x, int y, int width, int height) {
+        assertTrue(what + " in sequence " + sequence + ": " + x + "," + y + " " + width + "x" + height,
+                constraints.isSatisfied(x, y, width, height));
+    }
+
+    /**
+     * 一次随机的单指拖动或双指缩放，每个事件之后检查边界
+     */
+    private void randomGesture(int sequence, LayoutConstraints constraints, WindowGeometry geometry) {
+        if (random.nextBoolean()) {
+            geometry.begin(random.nextFloat() * geometry.width, random.nextFloat() * geometry.height,
+                    geometry.x + 10, geometry.y + 10);
+            for (int i = 0; i < EVENTS; i++) {
+                geometry.update(random.nextInt(8000) - 4000, random.nextInt(8000) - 4000);
+                assertSatisfied(geometry.getTouchState().name(), sequence, constraints,
+                        geometry.x, geometry.y, geometry.width, geometry.height);
+            }
+        } else {
+            geometry.beginScale(random.nextInt(screenWidth), random.nextInt(screenHeight),
+                    random.nextInt(screenWidth), random.nextInt(screenHeight));
+            for (int i = 0; i < EVENTS; i++) {
+                geometry.updateScale(random.nextInt(screenWidth), random.nextInt(screenHeight),
+                        random.nextInt(4000) - 1000, random.nextInt(4000) - 1000);
+                assertSatisfied("SCALING", sequence, constraints,
+                        geometry.x, geometry.y, geometry.width, geometry.height);
+            }
+        }
+        geometry.end();
+    }
+
+    @Test
+    public void loadedBoundsSatisfyTheConstraints() {
+        for (int sequence = 0; sequence < SEQUENCES; sequence++) {
+            LayoutConstraints constraints = randomConstraints();
+            WindowGeometry geometry = randomWindow(constraints);
+            geometry.constrain();
+            assertSatisfied("load", sequence, constraints, geometry.x, geometry.y, geometry.width, geometry.height);
+            // 满足约束的边界再次加载时保持不变
+            assertFalse("reload in sequence " + sequence, geometry.constrain());
+        }
+    }
+
+    @Test
+    public void randomGesturesNeverLoseTheWindow() {
+        for (int sequence = 0; sequence < SEQUENCES; sequence++) {
+            LayoutConstraints constraints = randomConstraints();
+            WindowGeometry geometry = randomWindow(constraints);
+            geometry.constrain();
+            for (int gesture = 0; gesture < GESTURES; gesture++) {
+                randomGesture(sequence, constraints, geometry);
+            }
+        }
+    }
+
+    @Test
+    public void flingsComeToRestInsideTheConstraints() {
+        FlingStepper fling = new FlingStepper(50f, 40);
+        SnapTargets targets = new SnapTargets();
+        for (int sequence = 0; sequence < SEQUENCES; sequence++) {
+            LayoutConstraints constraints = randomConstraints();
+            fling.setConstraints(constraints);
+            WindowGeometry geometry = randomWindow(constraints);
+            geometry.constrain();
+            // 屏幕边缘和其他窗口的边缘作为磁吸目标，可能把停止点拉到约束之外
+            targets.clear();
+            targets.addRect(0, 0, screenWidth, screenHeight);
+            for (int i = random.nextInt(4); i > 0; i--) {
+                int left = random.nextInt(screenWidth);
+                int top = random.nextInt(screenHeight);
+                targets.addRect(left, top, left + random.nextInt(screenWidth), top + random.nextInt(screenHeight));
+            }
+            targets.sort();
+            for (int gesture = 0; gesture < GESTURES / 3; gesture++) {
+                randomGesture(sequence, constraints, geometry);
+                fling.start(geometry.x, geometry.y, geometry.width, geometry.height,
+                        random.nextInt(24000) - 12000, random.nextInt(24000) - 12000, targets);
+                assertSatisfied("fling target", sequence, constraints,
+                        fling.getTargetX(), fling.getTargetY(), geometry.width, geometry.height);
+                long time = 1_000_000_000L;
+                int frames = 0;
+                while (fling.step(time)) {
+                    assertSatisfied("fling frame", sequence, constraints,
+                            fling.getX(), fling.getY(), geometry.width, geometry.height);
+                    time += FRAME_NANOS;
+                    assertTrue(++frames < 100);
+                }
+                geometry.set(fling.getX(), fling.getY(), geometry.width, geometry.height);
+                assertSatisfied("fling rest", sequence, constraints,
+                        geometry.x, geometry.y, geometry.width, geometry.height);
+            }
+        }
+    }
+}
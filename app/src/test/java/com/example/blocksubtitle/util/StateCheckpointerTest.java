@@ -0,0 +1,162 @@
+package com.example.blocksubtitle.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 模拟拖动过程中进程被杀：未执行的任务全部丢弃，再用磁盘内容重新加载
+ */
+public class StateCheckpointerTest {
+
+    private static final DisplayConfig PORTRAIT = new DisplayConfig(1080, 2400, 420, 0, 80, 0, 120);
+    private static final DisplayConfig LANDSCAPE = new DisplayConfig(2400, 1080, 420, 80, 0, 120, 0);
+
+    private FakeSharedPreferences disk;
+    private WindowStateHelper helper;
+    private FakeScheduler main;
+    private FakeScheduler writer;
+    private StateCheckpointer checkpointer;
+
+    // 服务当前的状态
+    private String profile = WindowStateHelper.GLOBAL_PROFILE;
+    private DisplayConfig config = PORTRAIT;
+    private int x;
+    private int y = 1800;
+
+    @Before
+    public void setUp() {
+        disk = new FakeSharedPreferences();
+        helper = new WindowStateHelper(disk);
+        main = new FakeScheduler();
+        writer = new FakeScheduler();
+        checkpointer = new StateCheckpointer(helper, new StateCheckpointer.Source() {
+            @Override
+            public String getProfile() {
+                return profile;
+            }
+
+            @Override
+            public DisplayConfig getDisplayConfig() {
+                return config;
+            }
+
+            @Override
+            public List<WindowStateHelper.WindowState> snapshot() {
+                List<WindowStateHelper.WindowState> states = new ArrayList<>(1);
+                states.add(new WindowStateHelper.WindowState(800, 120, x, y));
+                return states;
+            }
+        }, main, writer);
+    }
+
+    /**
+     * 进程被杀后重新启动，从磁盘读取
+     */
+    private WindowStateHelper restart() {
+        main.kill();
+        writer.kill();
+        return new WindowStateHelper(new FakeSharedPreferences(disk));
+    }
+
+    /**
+     * 拖动一段时间，每 4ms 一个事件，写入线程与主线程同步推进
+     */
+    private void drag(int events) {
+        for (int i = 0; i < events; i++) {
+            x++;
+            checkpointer.markDirty();
+            main.advance(4);
+            writer.runPending();
+        }
+    }
+
+    @Test
+    public void killMidDragRestoresTheLastCheckpoint() {
+        drag(300);
+        int checkpointedX = x - (int) (main.now() % 500) / 4;
+        drag(50);
+        // 最后一段还没到下一次保存就被杀
+        WindowStateHelper.WindowState restored = restart().loadWindowStates(profile, config).get(0);
+        assertTrue("restored x=" + restored.x + " current x=" + x, restored.x >= checkpointedX && restored.x < x);
+        // 丢失的调整不超过一个保存间隔
+        assertTrue(x - restored.x <= 500 / 4);
+        assertEquals(1800, restored.y);
+    }
+
+    @Test
+    public void dragWritesOncePerInterval() {
+        drag(1000);
+        // 4 秒的拖动，每 500ms 保存一次
+        assertEquals(8, disk.getCommitCount());
+    }
+
+    @Test
+    public void killBeforeTheWriterRunsKeepsThePreviousState() {
+        x = 100;
+        checkpointer.flush();
+        writer.runPending();
+        x = 200;
+        checkpointer.flush();
+        // 快照已经提交但写入线程还没有执行
+        assertEquals(100, restart().loadWindowStates(profile, config).get(0).x);
+    }
+
+    @Test
+    public void tornWriteIsDetectedAndFallsBackToNormalizedState() {
+        x = 100;
+        checkpointer.flush();
+        writer.runPending();
+        // 第二次写入只写了坐标，没有写序号和校验和
+        disk.tearNextCommit(4);
+        x = 300;
+        checkpointer.flush();
+        writer.runPending();
+        String record = WindowStateHelper.GLOBAL_PROFILE;
+        WindowStateHelper reloaded = restart();
+        assertEquals(1, reloaded.getSequence(record, config));
+        // 像素记录校验失败，改用上一次完整写入的归一化坐标
+        assertEquals(100, reloaded.loadWindowStates(profile, config).get(0).x);
+    }
+
+    @Test
+    public void snapshotsForDifferentRecordsAreWrittenInOrder() {
+        x = 100;
+        checkpointer.flush();
+        // 写入线程还没执行就旋转了屏幕
+        config = LANDSCAPE;
+        x = 240;
+        checkpointer.flush();
+        writer.runPending();
+
+        WindowStateHelper reloaded = restart();
+        assertEquals(100, reloaded.loadWindowStates(profile, PORTRAIT).get(0).x);
+        assertEquals(240, reloaded.loadWindowStates(profile, LANDSCAPE).get(0).x);
+        // 归一化坐标来自最后一次提交（横屏），换算到没有记录的显示配置
+        DisplayConfig tablet = new DisplayConfig(2400 * 2, 1080 * 2, 320, 0, 0, 0, 0);
+        assertEquals(480, reloaded.loadWindowStates(profile, tablet).get(0).x);
+    }
+
+    @Test
+    public void newerSnapshotOfTheSameRecordReplacesThePendingOne() {
+        x = 100;
+        checkpointer.flush();
+        x = 200;
+        checkpointer.flush();
+        writer.runPending();
+        assertEquals(1, disk.getCommitCount());
+        assertEquals(200, restart().loadWindowStates(profile, config).get(0).x);
+    }
+
+    @Test
+    public void otherProfilesAreUntouchedByADragInTheGlobalProfile() {
+        drag(200);
+        assertNull(restart().loadWindowStates("com.example.video", config));
+    }
+}
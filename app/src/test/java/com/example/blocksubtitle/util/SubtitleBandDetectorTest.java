@@ -0,0 +1,146 @@
+package com.example.blocksubtitle.util;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+public class SubtitleBandDetectorTest {
+
+    // 1920x1080 屏幕按 1/8 采样
+    private static final int WIDTH = 240;
+    private static final int HEIGHT = 135;
+
+    // 合成字幕的位置，帧坐标，右、下为开区间
+    private static final int TEXT_LEFT = 60;
+    private static final int TEXT_TOP = 110;
+    private static final int TEXT_RIGHT = 180;
+    private static final int TEXT_BOTTOM = 118;
+
+    private SubtitleBandDetector detector;
+    private byte[] frame;
+    private Random random;
+
+    @Before
+    public void setUp() {
+        detector = new SubtitleBandDetector();
+        detector.configure(WIDTH, HEIGHT);
+        frame = new byte[WIDTH * HEIGHT];
+        random = new Random(42);
+    }
+
+    /**
+     * 平缓的渐变背景，相邻像素差远小于边缘阈值
+     */
+    private void fillBackground(int shift) {
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                frame[y * WIDTH + x] = (byte) (40 + (x + y + shift) / 4 % 60);
+            }
+        }
+    }
+
+    /**
+     * 白色笔画与黑色描边交替，模拟字幕文字的密集边缘
+     */
+    private void drawText(int left, int top, int right, int bottom) {
+        for (int y = top; y < bottom; y++) {
+            for (int x = left; x < right; x++) {
+                frame[y * WIDTH + x] = (byte) ((x + y) % 3 == 0 ? 250 : 10);
+            }
+        }
+    }
+
+    /**
+     * 随机位置的一小块高对比度画面，模拟变化的视频内容
+     */
+    private void drawNoiseBlock() {
+        int size = 12;
+        int left = random.nextInt(WIDTH - size);
+        int top = random.nextInt(HEIGHT - size);
+        for (int y = top; y < top + size; y++) {
+            for (int x = left; x < left + size; x++) {
+                frame[y * WIDTH + x] = (byte) (random.nextBoolean() ? 255 : 0);
+            }
+        }
+    }
+
+    @Test
+    public void findsStaticSubtitleBand() {
+        boolean stable = false;
+        for (int i = 0; i < 3; i++) {
+            fillBackground(i * 7);
+            drawText(TEXT_LEFT, TEXT_TOP, TEXT_RIGHT, TEXT_BOTTOM);
+            stable = detector.analyze(frame, WIDTH);
+        }
+        assertTrue(stable);
+        assertBandCoversText();
+    }
+
+    @Test
+    public void ignoresMovingVideoContent() {
+        boolean stable = false;
+        for (int i = 0; i < 10; i++) {
+            fillBackground(i * 7);
+            drawNoiseBlock();
+            drawNoiseBlock();
+            drawText(TEXT_LEFT, TEXT_TOP, TEXT_RIGHT, TEXT_BOTTOM);
+            stable = detector.analyze(frame, WIDTH);
+        }
+        assertTrue(stable);
+        assertBandCoversText();
+    }
+
+    @Test
+    public void blankFramesNeverStabilize() {
+        for (int i = 0; i < 10; i++) {
+            fillBackground(i * 7);
+            assertFalse(detector.analyze(frame, WIDTH));
+        }
+    }
+
+    @Test
+    public void jumpingTextIsNotStable() {
+        // 字幕在顶部和底部之间来回跳动时不认为找到了条带
+        for (int i = 0; i < 6; i++) {
+            Arrays.fill(frame, (byte) 60);
+            int top = i % 2 == 0 ? 10 : 110;
+            drawText(TEXT_LEFT, top, TEXT_RIGHT, top + 8);
+            assertFalse(detector.analyze(frame, WIDTH));
+        }
+    }
+
+    @Test
+    public void honorsRowStride() {
+        // 缓冲区每行带有填充字节，填充区中的内容不能影响结果
+        int stride = WIDTH + 16;
+        byte[] padded = new byte[stride * HEIGHT];
+        boolean stable = false;
+        for (int i = 0; i < 3; i++) {
+            fillBackground(i);
+            drawText(TEXT_LEFT, TEXT_TOP, TEXT_RIGHT, TEXT_BOTTOM);
+            for (int y = 0; y < HEIGHT; y++) {
+                System.arraycopy(frame, y * WIDTH, padded, y * stride, WIDTH);
+                for (int x = WIDTH; x < stride; x++) {
+                    padded[y * stride + x] = (byte) (x % 2 == 0 ? 255 : 0);
+                }
+            }
+            stable = detector.analyze(padded, stride);
+        }
+        assertTrue(stable);
+        assertBandCoversText();
+    }
+
+    private void assertBandCoversText() {
+        // 条带应覆盖文字，且两侧最多多出一个采样单位
+        assertTrue(detector.getBandTop() <= TEXT_TOP && detector.getBandTop() >= TEXT_TOP - 1);
+        assertTrue(detector.getBandBottom() >= TEXT_BOTTOM && detector.getBandBottom() <= TEXT_BOTTOM + 1);
+        assertTrue(detector.getBandLeft() <= TEXT_LEFT && detector.getBandLeft() >= TEXT_LEFT - 1);
+        assertTrue(detector.getBandRight() >= TEXT_RIGHT && detector.getBandRight() <= TEXT_RIGHT + 1);
+        assertTrue(detector.isStable());
+    }
+}
@@ -0,0 +1,91 @@
+package com.example.blocksubtitle.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class SubtitleClockTest {
+
+    private SubtitleClock clock;
+    private SubtitleIndex index;
+
+    @Before
+    public void setUp() {
+        clock = new SubtitleClock();
+        clock.start(10000);
+        index = new SubtitleIndex.Builder()
+                .add(1000, 2000)
+                .add(5000, 6000)
+                .add(9000, 9500)
+                .build();
+    }
+
+    @Test
+    public void positionFollowsTimeAndOffset() {
+        assertEquals(1500, clock.getPosition(11500));
+        clock.setOffset(500);
+        assertEquals(2000, clock.getPosition(11500));
+    }
+
+    @Test
+    public void pauseFreezesPositionAndResumeContinuesFromIt() {
+        clock.pause(11500);
+        assertTrue(clock.isPaused());
+        assertEquals(1500, clock.getPosition(20000));
+
+        // 视频暂停多久，恢复后时间轴就整体后移多久
+        clock.resume(20000);
+        assertFalse(clock.isPaused());
+        assertEquals(1500, clock.getPosition(20000));
+        assertEquals(2500, clock.getPosition(21000));
+    }
+
+    @Test
+    public void offsetAppliesWhilePaused() {
+        clock.pause(11000);
+        clock.setOffset(-300);
+        assertEquals(700, clock.getPosition(15000));
+    }
+
+    @Test
+    public void seekKeepsOffset() {
+        clock.setOffset(400);
+        clock.seek(index.getStart(1), 30000);
+        assertEquals(5000, clock.getPosition(30000));
+        assertEquals(5100, clock.getPosition(30100));
+        assertEquals(400, clock.getOffset());
+    }
+
+    @Test
+    public void seekWhilePausedStaysPaused() {
+        clock.pause(11000);
+        clock.seek(9000, 12000);
+        assertEquals(9000, clock.getPosition(50000));
+        clock.resume(50000);
+        assertEquals(9250, clock.getPosition(50250));
+    }
+
+    @Test
+    public void startClearsOffsetAndPause() {
+        clock.setOffset(1500);
+        clock.pause(12000);
+        clock.start(40000);
+        assertEquals(0, clock.getOffset());
+        assertFalse(clock.isPaused());
+        assertEquals(100, clock.getPosition(40100));
+    }
+
+    @Test
+    public void nearestPicksTheClosestCueStart() {
+        assertEquals(0, index.nearest(0));
+        assertEquals(0, index.nearest(2900));
+        assertEquals(1, index.nearest(3100));
+        assertEquals(1, index.nearest(5500));
+        assertEquals(2, index.nearest(8000));
+        assertEquals(2, index.nearest(100000));
+        assertEquals(-1, new SubtitleIndex.Builder().build().nearest(1000));
+    }
+}
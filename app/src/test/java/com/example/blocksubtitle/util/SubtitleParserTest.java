@@ -0,0 +1,108 @@
+package com.example.blocksubtitle.util;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+public class SubtitleParserTest {
+
+    private static final String SRT = "1\r\n"
+            + "00:00:01,000 --> 00:00:02,500\r\n"
+            + "第一行字幕\r\n"
+            + "\r\n"
+            + "2\r\n"
+            + "00:01:00,000 --> 00:01:03,000\r\n"
+            + "第二行字幕\r\n";
+
+    private static final String ASS = "[Script Info]\n"
+            + "Title: 测试\n"
+            + "\n"
+            + "[Events]\n"
+            + "Format: Layer, Start, End, Style, Name, MarginL, MarginR, MarginV, Effect, Text\n"
+            + "Dialogue: 0,0:00:01.00,0:00:02.50,Default,,0,0,0,,第一行，带逗号\n"
+            + "Dialogue: 0,0:01:00.00,0:01:03.00,Default,,0,0,0,,第二行\n";
+
+    private static byte[] encode(String text, Charset charset, int... bom) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (int b : bom) {
+            out.write(b);
+        }
+        out.write(text.getBytes(charset));
+        return out.toByteArray();
+    }
+
+    private static SubtitleIndex parse(byte[] data) throws IOException {
+        return new SubtitleParser().parse(new ByteArrayInputStream(data));
+    }
+
+    private static void assertTwoCues(SubtitleIndex index) {
+        assertEquals(2, index.size());
+        assertEquals(1000, index.getStart(0));
+        assertEquals(2500, index.getEnd(0));
+        assertEquals(60000, index.getStart(1));
+        assertEquals(63000, index.getEnd(1));
+    }
+
+    @Test
+    public void parsesSrtWithoutBom() throws IOException {
+        assertTwoCues(parse(encode(SRT, StandardCharsets.UTF_8)));
+    }
+
+    @Test
+    public void parsesSrtWithUtf8Bom() throws IOException {
+        assertTwoCues(parse(encode(SRT, StandardCharsets.UTF_8, 0xEF, 0xBB, 0xBF)));
+    }
+
+    @Test
+    public void parsesAssWithUtf8Bom() throws IOException {
+        // BOM 紧贴在第一个节名之前，解码错误时 [Script Info] 识别不出来
+        assertTwoCues(parse(encode(ASS, StandardCharsets.UTF_8, 0xEF, 0xBB, 0xBF)));
+    }
+
+    @Test
+    public void parsesUtf16LittleEndianAss() throws IOException {
+        assertTwoCues(parse(encode(ASS, StandardCharsets.UTF_16LE, 0xFF, 0xFE)));
+    }
+
+    @Test
+    public void parsesUtf16BigEndianSrt() throws IOException {
+        assertTwoCues(parse(encode(SRT, StandardCharsets.UTF_16BE, 0xFE, 0xFF)));
+    }
+
+    @Test
+    public void handlesStreamsShorterThanABom() throws IOException {
+        assertEquals(0, parse(new byte[0]).size());
+        assertEquals(0, parse(new byte[]{'1'}).size());
+        assertEquals(0, parse(new byte[]{(byte) 0xFF, (byte) 0xFE}).size());
+    }
+
+    @Test
+    public void cueNumbersFollowTheFileAfterMerging() throws IOException {
+        // 第二条与第一条重叠，第三条排在前面，合并后只剩两个区间
+        String srt = "1\n00:00:10,000 --> 00:00:14,000\n甲\n\n"
+                + "2\n00:00:12,000 --> 00:00:16,000\n乙\n\n"
+                + "3\n00:00:01,000 --> 00:00:02,000\n丙\n";
+        SubtitleIndex index = parse(encode(srt, StandardCharsets.UTF_8));
+        assertEquals(2, index.size());
+        assertEquals(1000, index.getStart(0));
+        assertEquals(10000, index.getStart(1));
+        assertEquals(16000, index.getEnd(1));
+        assertEquals(3, index.cueCount());
+        assertEquals(10000, index.getCueStart(0));
+        assertEquals(12000, index.getCueStart(1));
+        assertEquals(1000, index.getCueStart(2));
+    }
+
+    @Test
+    public void parsesTimeFractions() {
+        assertEquals(3723400, SubtitleParser.parseTime("1:02:03.4", 0, 9));
+        assertEquals(3723045, SubtitleParser.parseTime("01:02:03,045", 0, 12));
+        assertEquals(-1, SubtitleParser.parseTime("1:02", 0, 4));
+    }
+}
@@ -0,0 +1,135 @@
+package com.example.blocksubtitle.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class TouchGestureTest {
+
+    private static final int TOUCH_SLOP = 8;
+    private static final int DOUBLE_TAP_SLOP = 100;
+    private static final long DOUBLE_TAP_TIMEOUT = 300;
+
+    private WindowGeometry geometry;
+    private TouchGesture gesture;
+
+    @Before
+    public void setUp() {
+        geometry = new WindowGeometry();
+        geometry.setHandleSize(30);
+        geometry.set(100, 100, 300, 150);
+        gesture = new TouchGesture(geometry, TOUCH_SLOP, DOUBLE_TAP_SLOP, DOUBLE_TAP_TIMEOUT);
+    }
+
+    private int event(int action, long time, float x, float y) {
+        return gesture.onTouchEvent(action, time, 1, x - geometry.x, y - geometry.y, x, y, 0, 0);
+    }
+
+    private int tap(long time, float x, float y) {
+        int result = event(TouchGesture.ACTION_DOWN, time, x, y);
+        return result | event(TouchGesture.ACTION_UP, time + 50, x, y);
+    }
+
+    /**
+     * 单指水平拖动：60Hz 的帧各带一个 ACTION_MOVE，帧间 240Hz 的采样作为历史采样随事件一起到达
+     *
+     * @param path 手指横坐标随时间（毫秒）的变化
+     */
+    private void drag(double[] path, long upMs, boolean history) {
+        event(TouchGesture.ACTION_DOWN, 0, (float) path[0], 175);
+        long last = 0;
+        for (long frame = 16; frame <= upMs; frame += 16) {
+            long eventTime = Math.min(frame, upMs);
+            if (history) {
+                for (long t = last + 4; t < eventTime; t += 4) {
+                    gesture.addHistoricalSample(t, (float) path[(int) t], 175);
+                }
+            }
+            int action = frame + 16 > upMs ? TouchGesture.ACTION_UP : TouchGesture.ACTION_MOVE;
+            event(action, eventTime, (float) path[(int) eventTime], 175);
+            last = eventTime;
+        }
+    }
+
+    /**
+     * 先以 2000 像素/秒向右，第 60ms 起以 4000 像素/秒折返向左，第 80ms 抬起
+     */
+    private static double[] reversal() {
+        double[] path = new double[81];
+        for (int t = 0; t <= 80; t++) {
+            path[t] = t < 60 ? 150 + 2 * t : 270 - 4 * (t - 60);
+        }
+        return path;
+    }
+
+    @Test
+    public void constantDragGivesItsVelocity() {
+        double[] path = new double[81];
+        for (int t = 0; t <= 80; t++) {
+            path[t] = 150 + 1.5 * t;
+        }
+        drag(path, 80, true);
+        assertEquals(1500f, gesture.getVelocityX(), 1f);
+        assertEquals(0f, gesture.getVelocityY(), 0f);
+    }
+
+    @Test
+    public void historicalSamplesFollowAReversalWithinAFrame() {
+        drag(reversal(), 80, true);
+        assertEquals(-4000f, gesture.getVelocityX(), 40f);
+    }
+
+    @Test
+    public void reversalWithoutHistoryIsLessAccurate() {
+        // 每帧只看到最新坐标时，折返点落在两帧之间，估计偏差明显更大
+        drag(reversal(), 80, false);
+        assertTrue(Math.abs(gesture.getVelocityX() + 4000f) > 200f);
+    }
+
+    @Test
+    public void pauseBeforeLiftStopsTheFling() {
+        double[] path = new double[141];
+        for (int t = 0; t <= 140; t++) {
+            path[t] = t < 80 ? 150 + 2 * t : 310;
+        }
+        event(TouchGesture.ACTION_DOWN, 0, 150, 175);
+        for (int t = 4; t <= 80; t += 4) {
+            gesture.addHistoricalSample(t, (float) path[t], 175);
+        }
+        event(TouchGesture.ACTION_MOVE, 80, 310, 175);
+        event(TouchGesture.ACTION_UP, 140, 310, 175);
+        assertEquals(0f, gesture.getVelocityX(), 0f);
+    }
+
+    @Test
+    public void historyIsIgnoredWithoutAGesture() {
+        gesture.addHistoricalSample(0, 100, 100);
+        gesture.addHistoricalSample(10, 200, 100);
+        tap(1000, 250, 175);
+        assertEquals(0f, gesture.getVelocityX(), 0f);
+    }
+
+    @Test
+    public void twoQuickTapsAreADoubleTap() {
+        tap(1000, 250, 175);
+        assertTrue((tap(1200, 255, 178) & TouchGesture.RESULT_DOUBLE_TAP) != 0);
+    }
+
+    @Test
+    public void slowSecondTapIsNotADoubleTap() {
+        tap(1000, 250, 175);
+        assertEquals(0, tap(1500, 250, 175) & TouchGesture.RESULT_DOUBLE_TAP);
+    }
+
+    @Test
+    public void resetForgetsThePreviousTap() {
+        tap(1000, 250, 175);
+        // 窗口回收后复用，新的第一次点击不能与旧的点击组成双击
+        gesture.reset();
+        assertEquals(0, tap(1100, 250, 175) & TouchGesture.RESULT_DOUBLE_TAP);
+        assertEquals(0f, gesture.getVelocityX(), 0f);
+        assertEquals(WindowGeometry.TouchState.NONE, geometry.getTouchState());
+    }
+}
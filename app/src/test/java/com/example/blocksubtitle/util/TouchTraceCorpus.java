@@ -0,0 +1,125 @@
+package com.example.blocksubtitle.util;
+
+/**
+ * 内置的基准手势：拖动、拖边调整、双指缩放和双击。
+ * 事件按 120Hz 的触摸采样生成，结束时的窗口边界按手势的几何关系直接算出，
+ * 与设备上录制的文件一起在单元测试中回放，可以发现手势流水线的行为变化。
+ */
+public class TouchTraceCorpus {
+
+    private static final int HANDLE_SIZE = 80;
+    private static final int TOUCH_SLOP = 24;
+    private static final int DOUBLE_TAP_SLOP = 100;
+    private static final int DOUBLE_TAP_TIMEOUT_MS = 300;
+    private static final long FRAME_INTERVAL_NANOS = 16_666_667L;
+
+    // 触摸采样间隔
+    private static final long SAMPLE_INTERVAL_MS = 8;
+
+    // 所有手势开始时的窗口边界
+    private static final int X = 100;
+    private static final int Y = 100;
+    private static final int WIDTH = 300;
+    private static final int HEIGHT = 300;
+
+    public static final String[] NAMES = {"drag", "resize", "pinch", "double-tap"};
+
+    public static TouchTrace get(int index) {
+        switch (index) {
+            case 0:
+                return drag();
+            case 1:
+                return resize();
+            case 2:
+                return pinch();
+            default:
+                return doubleTap();
+        }
+    }
+
+    /**
+     * 按住窗口中央拖动 (200, 100)
+     */
+    private static TouchTrace drag() {
+        TouchTrace trace = newTrace();
+        long time = 1000;
+        down(trace, time, 150, 150, X + 150, Y + 150);
+        for (int i = 1; i <= 20; i++) {
+            time += SAMPLE_INTERVAL_MS;
+            move(trace, time, X + 150 + i * 10, Y + 150 + i * 5);
+        }
+        up(trace, time + SAMPLE_INTERVAL_MS, X + 350, Y + 250, X + 200, Y + 100, WIDTH, HEIGHT);
+        return trace;
+    }
+
+    /**
+     * 拖动右边缘向右 100
+     */
+    private static TouchTrace resize() {
+        TouchTrace trace = newTrace();
+        long time = 1000;
+        down(trace, time, WIDTH - 5, 150, X + WIDTH - 5, Y + 150);
+        for (int i = 1; i <= 10; i++) {
+            time += SAMPLE_INTERVAL_MS;
+            move(trace, time, X + WIDTH - 5 + i * 10, Y + 150);
+        }
+        up(trace, time + SAMPLE_INTERVAL_MS, X + WIDTH + 95, Y + 150, X, Y, WIDTH + 100, HEIGHT);
+        return trace;
+    }
+
+    /**
+     * 两指水平张开，指距从 100 变为 200：宽度加倍，高度不变，焦点下的内容跟随焦点
+     */
+    private static TouchTrace pinch() {
+        TouchTrace trace = newTrace();
+        long time = 1000;
+        float x0 = X + 150;
+        float y = Y + 150;
+        down(trace, time, 150, 150, x0, y);
+        time += SAMPLE_INTERVAL_MS;
+        trace.add(0, TouchGesture.ACTION_POINTER_DOWN, time, 2, 0, 0, x0, y, x0 + 100, y, 0, 0, 0, 0, 0);
+        for (int i = 1; i <= 10; i++) {
+            time += SAMPLE_INTERVAL_MS;
+            trace.add(0, TouchGesture.ACTION_MOVE, time, 2, 0, 0, x0, y, x0 + 100 + i * 10, y, 0, 0, 0, 0, 0);
+        }
+        time += SAMPLE_INTERVAL_MS;
+        trace.add(0, TouchGesture.ACTION_POINTER_UP, time, 1, 0, 0, x0, y, 0, 0, 0, 0, 0, 0, 0);
+        // 初始焦点在窗口内 2/3 处，新焦点 x0 + 100，新宽度 600
+        up(trace, time + SAMPLE_INTERVAL_MS, x0, y, (int) x0 + 100 - 400, Y, WIDTH * 2, HEIGHT);
+        return trace;
+    }
+
+    /**
+     * 在同一位置快速点击两次，窗口不动
+     */
+    private static TouchTrace doubleTap() {
+        TouchTrace trace = newTrace();
+        long time = 1000;
+        for (int i = 0; i < 2; i++) {
+            down(trace, time, 150, 150, X + 150, Y + 150);
+            up(trace, time + 60, X + 150, Y + 150, X, Y, WIDTH, HEIGHT);
+            time += 160;
+        }
+        return trace;
+    }
+
+    private static TouchTrace newTrace() {
+        return new TouchTrace(HANDLE_SIZE, TOUCH_SLOP, DOUBLE_TAP_SLOP, DOUBLE_TAP_TIMEOUT_MS, FRAME_INTERVAL_NANOS);
+    }
+
+    private static void down(TouchTrace trace, long time, float localX, float localY, float rawX, float rawY) {
+        trace.add(0, TouchGesture.ACTION_DOWN, time, 1, localX, localY, rawX, rawY, 0, 0, X, Y, WIDTH, HEIGHT, 0);
+    }
+
+    private static void move(TouchTrace trace, long time, float rawX, float rawY) {
+        trace.add(0, TouchGesture.ACTION_MOVE, time, 1, 0, 0, rawX, rawY, 0, 0, 0, 0, 0, 0, 0);
+    }
+
+    /**
+     * 手势结束，布局次数未知，记为 0
+     */
+    private static void up(TouchTrace trace, long time, float rawX, float rawY,
+                           int x, int y, int width, int height) {
+        trace.add(0, TouchGesture.ACTION_UP, time, 0, 0, 0, rawX, rawY, 0, 0, x, y, width, height, 0);
+    }
+}
@@ -0,0 +1,155 @@
+package com.example.blocksubtitle.util;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 把录制的触摸事件回放给与遮挡窗相同的手势流水线，不依赖 Android，在 JVM 上运行。
+ * 按录制时的帧间隔模拟帧信号，统计布局次数，并把每次手势结束后的窗口边界与录制时的实际结果核对。
+ * 供单元测试和 JMH 基准测试使用，不打包进应用。
+ */
+public class TouchTraceReplayer {
+
+    /**
+     * 一次回放的结果
+     */
+    public static class Result {
+        public int events;
+        public int gestures;
+        public int doubleTaps;
+        public int flings;
+
+        // 手势结束后边界与录制结果不一致的次数
+        public int mismatches;
+
+        // 录制时和回放时的布局次数。帧信号的相位不同，两者可能相差少量
+        public int recordedRelayouts;
+        public int replayedRelayouts;
+
+        @Override
+        public String toString() {
+            return "events=" + events + " gestures=" + gestures
+                    + " doubleTaps=" + doubleTaps + " flings=" + flings
+                    + " mismatches=" + mismatches
+                    + " relayouts=" + replayedRelayouts + " (recorded " + recordedRelayouts + ")";
+        }
+    }
+
+    /**
+     * 手动推进的帧信号，回调在第一个晚于请求时间的帧边界上执行
+     */
+    private static class ManualFrameSource implements FrameCoalescer.FrameSource {
+        private final long frameIntervalNanos;
+        private final List<FrameCoalescer.FrameCallback> callbacks = new ArrayList<>();
+        private final List<Long> dueTimes = new ArrayList<>();
+        private long nowNanos;
+
+        ManualFrameSource(long frameIntervalNanos) {
+            this.frameIntervalNanos = frameIntervalNanos;
+        }
+
+        @Override
+        public void postFrameCallback(FrameCoalescer.FrameCallback callback) {
+            callbacks.add(callback);
+            dueTimes.add((nowNanos / frameIntervalNanos + 1) * frameIntervalNanos);
+        }
+
+        @Override
+        public void removeFrameCallback(FrameCoalescer.FrameCallback callback) {
+            int index = callbacks.indexOf(callback);
+            if (index >= 0) {
+                callbacks.remove(index);
+                dueTimes.remove(index);
+            }
+        }
+
+        /**
+         * 执行到某个时间为止应该发生的所有帧回调
+         */
+        void advanceTo(long timeNanos) {
+            while (!callbacks.isEmpty() && dueTimes.get(0) <= timeNanos) {
+                FrameCoalescer.FrameCallback callback = callbacks.remove(0);
+                long due = dueTimes.remove(0);
+                nowNanos = due;
+                callback.doFrame(due);
+            }
+            nowNanos = timeNanos;
+        }
+    }
+
+    /**
+     * 回放中的一个遮挡窗，对应 BlockerWindow 的手势部分
+     */
+    private static class ReplayWindow {
+        final WindowGeometry geometry = new WindowGeometry();
+        final TouchGesture gesture;
+        final FrameCoalescer coalescer;
+        int relayouts;
+
+        ReplayWindow(TouchTrace trace, ManualFrameSource frameSource) {
+            geometry.setHandleSize(trace.handleSize);
+            geometry.setIndependentScale(true, trace.handleSize);
+            gesture = new TouchGesture(geometry, trace.touchSlop, trace.doubleTapSlop, trace.doubleTapTimeoutMs);
+            coalescer = new FrameCoalescer(frameSource, new Runnable() {
+                @Override
+                public void run() {
+                    relayouts++;
+                }
+            });
+        }
+    }
+
+    /**
+     * 回放一段录制
+     */
+    public static Result replay(TouchTrace trace) {
+        Result result = new Result();
+        ManualFrameSource frameSource = new ManualFrameSource(trace.frameIntervalNanos);
+        Map<Integer, ReplayWindow> windows = new HashMap<>();
+        for (int i = 0; i < trace.size(); i++) {
+            int action = trace.getAction(i);
+            frameSource.advanceTo(trace.getTime(i) * 1_000_000L);
+
+            ReplayWindow window = windows.get(trace.getWindowId(i));
+            if (window == null) {
+                window = new ReplayWindow(trace, frameSource);
+                windows.put(trace.getWindowId(i), window);
+            }
+            if (action == TouchGesture.ACTION_DOWN) {
+                window.coalescer.cancel();
+                window.geometry.set(trace.getBound(i, 0), trace.getBound(i, 1),
+                        trace.getBound(i, 2), trace.getBound(i, 3));
+                window.relayouts = 0;
+            }
+
+            int flags = window.gesture.onTouchEvent(action, trace.getTime(i), trace.getPointerCount(i),
+                    trace.getCoord(i, 0), trace.getCoord(i, 1), trace.getCoord(i, 2),
+                    trace.getCoord(i, 3), trace.getCoord(i, 4), trace.getCoord(i, 5));
+            result.events++;
+
+            if ((flags & TouchGesture.RESULT_DOUBLE_TAP) != 0) {
+                result.doubleTaps++;
+            }
+            if ((flags & TouchGesture.RESULT_CHANGED) != 0) {
+                window.coalescer.requestUpdate();
+            }
+            if ((flags & TouchGesture.RESULT_ENDED) != 0) {
+                window.coalescer.flush();
+                result.gestures++;
+                result.recordedRelayouts += trace.getBound(i, 4);
+                result.replayedRelayouts += window.relayouts;
+                WindowGeometry geometry = window.geometry;
+                if (geometry.x != trace.getBound(i, 0) || geometry.y != trace.getBound(i, 1)
+                        || geometry.width != trace.getBound(i, 2) || geometry.height != trace.getBound(i, 3)) {
+                    result.mismatches++;
+                }
+            }
+            if ((flags & TouchGesture.RESULT_FLING) != 0) {
+                result.flings++;
+            }
+        }
+        return result;
+    }
+}
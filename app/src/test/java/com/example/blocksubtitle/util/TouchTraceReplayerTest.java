@@ -0,0 +1,107 @@
+package com.example.blocksubtitle.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.net.URL;
+
+public class TouchTraceReplayerTest {
+
+    private static final int DRAG = 0;
+    private static final int RESIZE = 1;
+    private static final int PINCH = 2;
+    private static final int DOUBLE_TAP = 3;
+
+    private static TouchTraceReplayer.Result replay(int corpus) {
+        return TouchTraceReplayer.replay(TouchTraceCorpus.get(corpus));
+    }
+
+    @Test
+    public void dragEndsWhereTheFingerLeft() {
+        TouchTraceReplayer.Result result = replay(DRAG);
+        assertEquals(22, result.events);
+        assertEquals(1, result.gestures);
+        assertEquals(1, result.flings);
+        assertEquals(0, result.mismatches);
+    }
+
+    @Test
+    public void resizeMovesOnlyTheDraggedEdge() {
+        TouchTraceReplayer.Result result = replay(RESIZE);
+        assertEquals(1, result.gestures);
+        assertEquals(0, result.flings);
+        assertEquals(0, result.mismatches);
+    }
+
+    @Test
+    public void pinchScalesAroundTheFocus() {
+        TouchTraceReplayer.Result result = replay(PINCH);
+        assertEquals(1, result.gestures);
+        assertEquals(0, result.mismatches);
+    }
+
+    @Test
+    public void doubleTapIsDetectedOnceAndDoesNotMove() {
+        TouchTraceReplayer.Result result = replay(DOUBLE_TAP);
+        assertEquals(2, result.gestures);
+        assertEquals(1, result.doubleTaps);
+        assertEquals(0, result.replayedRelayouts);
+        assertEquals(0, result.mismatches);
+    }
+
+    @Test
+    public void relayoutsStayWithinOnePerFrame() {
+        for (int i = 0; i < TouchTraceCorpus.NAMES.length; i++) {
+            TouchTrace trace = TouchTraceCorpus.get(i);
+            long durationNanos = (trace.getTime(trace.size() - 1) - trace.getTime(0)) * 1_000_000L;
+            long frames = durationNanos / trace.frameIntervalNanos + 1;
+            TouchTraceReplayer.Result result = TouchTraceReplayer.replay(trace);
+            assertTrue(TouchTraceCorpus.NAMES[i] + ": " + result, result.replayedRelayouts <= frames + result.gestures);
+        }
+    }
+
+    @Test
+    public void traceSurvivesWriteAndRead() throws IOException {
+        for (int i = 0; i < TouchTraceCorpus.NAMES.length; i++) {
+            TouchTrace trace = TouchTraceCorpus.get(i);
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            trace.write(new DataOutputStream(bytes));
+            TouchTrace copy = TouchTrace.read(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+            assertEquals(TouchTraceReplayer.replay(trace).toString(), TouchTraceReplayer.replay(copy).toString());
+        }
+    }
+
+    /**
+     * 回放设备上录制的文件：用 trace stop 保存后 adb pull 到 src/test/resources/traces/
+     */
+    @Test
+    public void recordedTracesReplayWithoutMismatches() throws IOException, URISyntaxException {
+        URL url = getClass().getClassLoader().getResource("traces");
+        if (url == null) {
+            return; // 还没有录制文件
+        }
+        File[] files = new File(url.toURI()).listFiles();
+        if (files == null) {
+            return;
+        }
+        for (File file : files) {
+            DataInputStream in = new DataInputStream(new FileInputStream(file));
+            try {
+                TouchTraceReplayer.Result result = TouchTraceReplayer.replay(TouchTrace.read(in));
+                assertEquals(file.getName() + ": " + result, 0, result.mismatches);
+            } finally {
+                in.close();
+            }
+        }
+    }
+}
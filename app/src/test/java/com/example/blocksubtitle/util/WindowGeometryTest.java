@@ -0,0 +1,174 @@
+package com.example.blocksubtitle.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class WindowGeometryTest {
+
+    private static final int HANDLE = 30;
+
+    private WindowGeometry geometry;
+
+    @Before
+    public void setUp() {
+        geometry = new WindowGeometry();
+        geometry.setHandleSize(HANDLE);
+        geometry.set(100, 200, 300, 150);
+    }
+
+    @Test
+    public void hitTestCoversEdgesCornersAndCenter() {
+        assertEquals(WindowGeometry.TouchState.RESIZING_TOP_LEFT, geometry.hitTest(5, 5));
+        assertEquals(WindowGeometry.TouchState.RESIZING_TOP_RIGHT, geometry.hitTest(295, 5));
+        assertEquals(WindowGeometry.TouchState.RESIZING_BOTTOM_LEFT, geometry.hitTest(5, 145));
+        assertEquals(WindowGeometry.TouchState.RESIZING_BOTTOM_RIGHT, geometry.hitTest(295, 145));
+        assertEquals(WindowGeometry.TouchState.RESIZING_LEFT, geometry.hitTest(5, 75));
+        assertEquals(WindowGeometry.TouchState.RESIZING_TOP, geometry.hitTest(150, 5));
+        assertEquals(WindowGeometry.TouchState.RESIZING_RIGHT, geometry.hitTest(295, 75));
+        assertEquals(WindowGeometry.TouchState.RESIZING_BOTTOM, geometry.hitTest(150, 145));
+        assertEquals(WindowGeometry.TouchState.MOVING, geometry.hitTest(150, 75));
+    }
+
+    @Test
+    public void moveFollowsFingerFromAnchor() {
+        geometry.begin(150, 75, 250, 275);
+        assertTrue(geometry.update(300, 250));
+        assertEquals(150, geometry.x);
+        assertEquals(175, geometry.y);
+        assertEquals(300, geometry.width);
+        assertEquals(150, geometry.height);
+        // 同一位置不算变化
+        assertFalse(geometry.update(300, 250));
+    }
+
+    @Test
+    public void resizeLeftKeepsRightEdge() {
+        geometry.begin(5, 75, 105, 275);
+        geometry.update(165, 275);
+        assertEquals(160, geometry.x);
+        assertEquals(240, geometry.width);
+        assertEquals(400, geometry.x + geometry.width);
+    }
+
+    @Test
+    public void resizeBottomRightGrowsBothDimensions() {
+        geometry.begin(295, 145, 395, 345);
+        geometry.update(445, 395);
+        assertEquals(100, geometry.x);
+        assertEquals(200, geometry.y);
+        assertEquals(350, geometry.width);
+        assertEquals(200, geometry.height);
+    }
+
+    @Test
+    public void resizeStopsAtMinimumSizeWithoutMovingTheOppositeEdge() {
+        geometry.begin(5, 5, 105, 205);
+        geometry.update(1000, 1000);
+        assertEquals(WindowGeometry.DEFAULT_MIN_SIZE, geometry.width);
+        assertEquals(WindowGeometry.DEFAULT_MIN_SIZE, geometry.height);
+        assertEquals(400, geometry.x + geometry.width);
+        assertEquals(350, geometry.y + geometry.height);
+    }
+
+    @Test
+    public void resizeStopsAtMaximumSize() {
+        geometry.setMaxSize(500, 400);
+        geometry.begin(295, 145, 395, 345);
+        geometry.update(2000, 2000);
+        assertEquals(500, geometry.width);
+        assertEquals(400, geometry.height);
+    }
+
+    @Test
+    public void aspectLockDerivesHeightFromWidth() {
+        geometry.setAspectRatio(2f);
+        geometry.begin(295, 75, 395, 275);
+        geometry.update(495, 275);
+        assertEquals(400, geometry.width);
+        assertEquals(200, geometry.height);
+    }
+
+    @Test
+    public void aspectLockDerivesWidthFromHeightForVerticalEdges() {
+        geometry.setAspectRatio(2f);
+        geometry.begin(150, 145, 250, 345);
+        geometry.update(250, 395);
+        assertEquals(200, geometry.height);
+        assertEquals(400, geometry.width);
+    }
+
+    @Test
+    public void screenClampKeepsWindowInside() {
+        geometry.setBounds(0, 0, 1080, 2400);
+        geometry.begin(150, 75, 250, 275);
+        geometry.update(-1000, -1000);
+        assertEquals(0, geometry.x);
+        assertEquals(0, geometry.y);
+        geometry.update(5000, 5000);
+        assertEquals(1080 - 300, geometry.x);
+        assertEquals(2400 - 150, geometry.y);
+    }
+
+    @Test
+    public void screenClampLimitsResizeToRoomBeforeTheEdge() {
+        geometry.setBounds(0, 0, 1080, 2400);
+        geometry.begin(5, 75, 105, 275);
+        geometry.update(-5000, 275);
+        assertEquals(0, geometry.x);
+        assertEquals(400, geometry.width);
+    }
+
+    @Test
+    public void pinchScalesAroundFocus() {
+        geometry.setIndependentScale(false, HANDLE);
+        geometry.beginScale(200, 275, 300, 275);
+        assertTrue(geometry.updateScale(150, 275, 350, 275));
+        assertEquals(600, geometry.width);
+        assertEquals(300, geometry.height);
+        // 焦点 (250, 275) 在窗口内的相对位置不变
+        assertEquals(250 - 300, geometry.x);
+        assertEquals(275 - 150, geometry.y);
+    }
+
+    @Test
+    public void independentPinchFollowsEachAxis() {
+        geometry.setIndependentScale(true, HANDLE);
+        geometry.beginScale(200, 200, 300, 300);
+        geometry.updateScale(150, 200, 350, 300);
+        assertEquals(600, geometry.width);
+        assertEquals(150, geometry.height);
+    }
+
+    @Test
+    public void endStopsUpdates() {
+        geometry.begin(150, 75, 250, 275);
+        geometry.end();
+        assertEquals(WindowGeometry.TouchState.NONE, geometry.getTouchState());
+        assertFalse(geometry.update(500, 500));
+        assertEquals(100, geometry.x);
+    }
+
+    @Test
+    public void eventsDoNotAllocate() {
+        geometry.setBounds(0, 0, 1080, 2400);
+        geometry.setAspectRatio(0f);
+        long bytes = Allocations.measure(new Runnable() {
+            @Override
+            public void run() {
+                for (int i = 0; i < 10_000; i++) {
+                    geometry.begin(geometry.hitTest(i % 300, i % 150), 250, 275);
+                    geometry.update(250 + i % 97, 275 - i % 89);
+                    geometry.beginScale(200, 200, 300, 300);
+                    geometry.updateScale(190 - i % 13, 200, 310 + i % 17, 300);
+                    geometry.end();
+                }
+            }
+        });
+        // 只允许测量本身的零星开销，与事件数量无关
+        assertTrue("allocated " + bytes + " bytes", bytes < 1024);
+    }
+}
@@ -0,0 +1,140 @@
+package com.example.blocksubtitle.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class WindowStateHelperTest {
+
+    private static final DisplayConfig PORTRAIT = new DisplayConfig(1080, 2400, 420, 0, 80, 0, 60);
+    private static final DisplayConfig LANDSCAPE = new DisplayConfig(2400, 1080, 420, 80, 0, 60, 0);
+
+    private static final int MAX_RECORDS = 4;
+
+    private FakeSharedPreferences disk;
+    private WindowStateHelper helper;
+
+    @Before
+    public void setUp() {
+        disk = new FakeSharedPreferences();
+        helper = new WindowStateHelper(disk, MAX_RECORDS);
+    }
+
+    private static List<WindowStateHelper.WindowState> states(int x) {
+        List<WindowStateHelper.WindowState> states = new ArrayList<>(2);
+        states.add(new WindowStateHelper.WindowState(800, 120, x, 1800));
+        states.add(new WindowStateHelper.WindowState(400, 100, x, 200));
+        return states;
+    }
+
+    /**
+     * 从磁盘重新加载，绕过内存缓存
+     */
+    private WindowStateHelper reload() {
+        return new WindowStateHelper(new FakeSharedPreferences(disk), MAX_RECORDS);
+    }
+
+    private boolean hasRecord(String profile, DisplayConfig config) {
+        return disk.contains(profile + "@" + config.key + "/count");
+    }
+
+    @Test
+    public void evictsLeastRecentlyWrittenRecord() {
+        for (int i = 0; i < MAX_RECORDS; i++) {
+            assertTrue(helper.commitWindowStates("app" + i, PORTRAIT, states(i)));
+        }
+        // 重新写入 app0，最久没有写入的变成 app1
+        helper.commitWindowStates("app0", PORTRAIT, states(10));
+        helper.commitWindowStates("app4", PORTRAIT, states(4));
+
+        assertFalse(hasRecord("app1", PORTRAIT));
+        assertTrue(hasRecord("app0", PORTRAIT));
+        assertTrue(hasRecord("app2", PORTRAIT));
+        assertTrue(hasRecord("app3", PORTRAIT));
+        assertTrue(hasRecord("app4", PORTRAIT));
+
+        WindowStateHelper restored = reload();
+        assertNull(restored.loadWindowStates("app1", PORTRAIT));
+        assertEquals(10, restored.loadWindowStates("app0", PORTRAIT).get(0).x);
+        assertEquals(4, restored.loadWindowStates("app4", PORTRAIT).get(0).x);
+    }
+
+    @Test
+    public void evictionAlsoDropsTheCachedRecord() {
+        for (int i = 0; i <= MAX_RECORDS; i++) {
+            helper.commitWindowStates("app" + i, PORTRAIT, states(i));
+        }
+        assertNull(helper.loadWindowStates("app0", PORTRAIT));
+    }
+
+    @Test
+    public void keepsNormalizedStatesWhileTheProfileHasOtherRecords() {
+        helper.commitWindowStates("video", PORTRAIT, states(100));
+        helper.commitWindowStates("video", LANDSCAPE, states(200));
+        for (int i = 0; i < MAX_RECORDS - 1; i++) {
+            helper.commitWindowStates("app" + i, PORTRAIT, states(i));
+        }
+        assertFalse(hasRecord("video", PORTRAIT));
+        assertTrue(hasRecord("video", LANDSCAPE));
+
+        // 竖屏记录被删除后，用横屏最近一次写入的归一化坐标换算
+        List<WindowStateHelper.WindowState> restored = reload().loadWindowStates("video", PORTRAIT);
+        assertNotNull(restored);
+        assertEquals(Math.round(200f / LANDSCAPE.width * PORTRAIT.width), restored.get(0).x);
+    }
+
+    @Test
+    public void dropsNormalizedStatesWithTheLastRecord() {
+        helper.commitWindowStates("video", PORTRAIT, states(100));
+        for (int i = 0; i < MAX_RECORDS; i++) {
+            helper.commitWindowStates("app" + i, PORTRAIT, states(i));
+        }
+        assertFalse(disk.contains("video/ncount"));
+        assertFalse(disk.contains("video/nx"));
+        assertFalse(disk.contains("video/nx_1"));
+        assertNull(reload().loadWindowStates("video", LANDSCAPE));
+    }
+
+    @Test
+    public void globalProfileFallsBackToNormalizedStates() {
+        helper.commitWindowStates(WindowStateHelper.GLOBAL_PROFILE, PORTRAIT, states(100));
+        for (int i = 0; i < MAX_RECORDS; i++) {
+            helper.commitWindowStates("app" + i, PORTRAIT, states(i));
+        }
+        assertFalse(hasRecord(WindowStateHelper.GLOBAL_PROFILE, PORTRAIT));
+        List<WindowStateHelper.WindowState> restored =
+                reload().loadWindowStates(WindowStateHelper.GLOBAL_PROFILE, PORTRAIT);
+        assertEquals(100, restored.get(0).x);
+        assertEquals(2, restored.size());
+    }
+
+    @Test
+    public void storageStaysBoundedOverManyApps() {
+        helper.commitWindowStates("app0", PORTRAIT, states(0));
+        int keysPerRecord = disk.getAll().size();
+        for (int i = 1; i < 500; i++) {
+            helper.commitWindowStates("app" + i, i % 2 == 0 ? PORTRAIT : LANDSCAPE, states(i));
+        }
+        // 每个应用一份像素记录和一份归一化坐标，外加全局的写入计数
+        assertTrue(disk.getAll().size() <= keysPerRecord * MAX_RECORDS);
+        assertEquals(498, reload().loadWindowStates("app498", PORTRAIT).get(0).x);
+    }
+
+    @Test
+    public void shrinkingRemovesExtraNormalizedWindows() {
+        helper.commitWindowStates("video", PORTRAIT, states(100));
+        List<WindowStateHelper.WindowState> single = new ArrayList<>(1);
+        single.add(new WindowStateHelper.WindowState(800, 120, 50, 1800));
+        helper.commitWindowStates("video", PORTRAIT, single);
+        assertFalse(disk.contains("video/nx_1"));
+        assertEquals(1, reload().loadWindowStates("video", LANDSCAPE).size());
+    }
+}
@@ -0,0 +1,79 @@
+package com.example.blocksubtitle.benchmark;
+
+import com.example.blocksubtitle.util.BoxBlur;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 模糊模式处理一帧采样区域的耗时（ns/frame）。
+ * 尺寸为 1080p 和 1440p 屏幕宽度的 1/4，字幕条带占中间一半高度；缩小倍数、半径和遍数与 BlurCapture 一致
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+public class BoxBlurBenchmark {
+
+    private static final int BLUR_FACTOR = 2;
+    private static final int BLUR_RADIUS = 2;
+    private static final int BLUR_PASSES = 2;
+    private static final int PIXEL_FACTOR = 4;
+
+    @Param({"270x60", "360x80"})
+    public String size;
+
+    private int width;
+    private int height;
+    private int[] source;
+    private int[] region;
+    private int[] small;
+    private final BoxBlur kernel = new BoxBlur();
+
+    @Setup
+    public void setUp() {
+        int separator = size.indexOf('x');
+        width = Integer.parseInt(size.substring(0, separator));
+        height = Integer.parseInt(size.substring(separator + 1));
+        source = new int[width * height];
+        for (int i = 0; i < source.length; i++) {
+            // 不同通道按不同周期变化，避免结果被常数折叠
+            source[i] = 0xFF000000 | (i * 7 & 0xFF) << 16 | (i * 13 & 0xFF) << 8 | (i * 31 & 0xFF);
+        }
+        region = new int[source.length];
+        small = new int[BoxBlur.scaledSize(width, BLUR_FACTOR) * BoxBlur.scaledSize(height, BLUR_FACTOR)];
+    }
+
+    /**
+     * 填充条带、缩小再模糊，即模糊模式的完整一帧
+     */
+    @Benchmark
+    public int[] blurFrame() {
+        prepare(BLUR_FACTOR);
+        kernel.blur(small, BoxBlur.scaledSize(width, BLUR_FACTOR), BoxBlur.scaledSize(height, BLUR_FACTOR),
+                BLUR_RADIUS, BLUR_PASSES);
+        return small;
+    }
+
+    /**
+     * 马赛克模式只填充条带和缩小
+     */
+    @Benchmark
+    public int[] pixelateFrame() {
+        prepare(PIXEL_FACTOR);
+        return small;
+    }
+
+    private void prepare(int factor) {
+        System.arraycopy(source, 0, region, 0, source.length);
+        BoxBlur.fillRows(region, width, height, height / 4, height - height / 4);
+        BoxBlur.downscale(region, width, height, factor, small);
+    }
+}
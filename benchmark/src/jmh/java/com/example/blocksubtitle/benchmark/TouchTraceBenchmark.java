@@ -0,0 +1,43 @@
+package com.example.blocksubtitle.benchmark;
+
+import com.example.blocksubtitle.util.TouchTrace;
+import com.example.blocksubtitle.util.TouchTraceCorpus;
+import com.example.blocksubtitle.util.TouchTraceReplayer;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 回放一段内置手势的耗时（ns/trace），包括帧信号模拟和边界核对。
+ * 除以手势的事件数（见 {@link TouchTraceCorpus}）即为每个事件的耗时
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+public class TouchTraceBenchmark {
+
+    @Param({"drag", "resize", "pinch", "double-tap"})
+    public String gesture;
+
+    private TouchTrace trace;
+
+    @Setup
+    public void setUp() {
+        int index = Arrays.asList(TouchTraceCorpus.NAMES).indexOf(gesture);
+        trace = TouchTraceCorpus.get(index);
+    }
+
+    @Benchmark
+    public TouchTraceReplayer.Result replay() {
+        return TouchTraceReplayer.replay(trace);
+    }
+}
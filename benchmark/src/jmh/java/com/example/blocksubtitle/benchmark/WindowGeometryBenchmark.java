@@ -0,0 +1,76 @@
+package com.example.blocksubtitle.benchmark;
+
+import com.example.blocksubtitle.util.WindowGeometry;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 几何引擎处理单个触摸事件的耗时（ns/event）。
+ * 每次调用使用不同的坐标，避免结果被常量折叠
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+public class WindowGeometryBenchmark {
+
+    private WindowGeometry move;
+    private WindowGeometry resize;
+    private WindowGeometry scale;
+    private int step;
+
+    @Setup
+    public void setUp() {
+        move = create();
+        move.begin(WindowGeometry.TouchState.MOVING, 500, 1000);
+        resize = create();
+        resize.begin(WindowGeometry.TouchState.RESIZING_BOTTOM_RIGHT, 700, 1100);
+        scale = create();
+        scale.beginScale(400, 1000, 600, 1100);
+    }
+
+    private static WindowGeometry create() {
+        WindowGeometry geometry = new WindowGeometry();
+        geometry.setHandleSize(80);
+        geometry.setIndependentScale(true, 80);
+        geometry.setBounds(0, 0, 1080, 2400);
+        geometry.set(300, 900, 400, 200);
+        return geometry;
+    }
+
+    private int next() {
+        step = (step + 7) & 1023;
+        return step;
+    }
+
+    @Benchmark
+    public WindowGeometry.TouchState hitTest() {
+        int s = next();
+        return move.hitTest(s % 400, s % 200);
+    }
+
+    @Benchmark
+    public boolean moveEvent() {
+        int s = next();
+        return move.update(500 + s - 512, 1000 + s / 2 - 256);
+    }
+
+    @Benchmark
+    public boolean resizeEvent() {
+        int s = next();
+        return resize.update(700 + s - 512, 1100 + s / 2 - 256);
+    }
+
+    @Benchmark
+    public boolean pinchEvent() {
+        int s = next();
+        return scale.updateScale(400 - s / 4, 1000, 600 + s / 4, 1100 + s / 8);
+    }
+}
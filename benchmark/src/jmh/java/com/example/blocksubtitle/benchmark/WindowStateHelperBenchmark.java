@@ -0,0 +1,74 @@
+package com.example.blocksubtitle.benchmark;
+
+import com.example.blocksubtitle.util.DisplayConfig;
+import com.example.blocksubtitle.util.FakeSharedPreferences;
+import com.example.blocksubtitle.util.WindowStateHelper;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 切换应用时查找配置档的耗时（ns/lookup）。存储中有 40 个应用的配置档，每个三个窗口：
+ * 命中内存中的记录、旋转后按归一化坐标换算，以及没有配置档的应用。
+ * 切换时应用布局的耗时依赖 WindowManager，在 androidTest 的 ProfileSwitchBenchmarkTest 中测量
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+public class WindowStateHelperBenchmark {
+
+    private static final int PROFILES = 40;
+
+    private static final DisplayConfig PORTRAIT = new DisplayConfig(1080, 2400, 420, 0, 80, 0, 60);
+    private static final DisplayConfig LANDSCAPE = new DisplayConfig(2400, 1080, 420, 80, 0, 60, 0);
+
+    private WindowStateHelper helper;
+    private String[] profiles;
+    private String[] unknown;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        helper = new WindowStateHelper(new FakeSharedPreferences());
+        profiles = new String[PROFILES];
+        unknown = new String[PROFILES];
+        for (int i = 0; i < PROFILES; i++) {
+            profiles[i] = "com.example.video" + i;
+            unknown[i] = "com.example.other" + i;
+            List<WindowStateHelper.WindowState> states = new ArrayList<>(3);
+            states.add(new WindowStateHelper.WindowState(900, 160, 90, 1900 - i));
+            states.add(new WindowStateHelper.WindowState(400, 120, 340, 200 + i));
+            states.add(new WindowStateHelper.WindowState(200, 200, i, 1000));
+            helper.commitWindowStates(profiles[i], PORTRAIT, states);
+        }
+    }
+
+    private int next() {
+        next = next + 1 == PROFILES ? 0 : next + 1;
+        return next;
+    }
+
+    @Benchmark
+    public List<WindowStateHelper.WindowState> lookupSaved() {
+        return helper.loadWindowStates(profiles[next()], PORTRAIT);
+    }
+
+    @Benchmark
+    public List<WindowStateHelper.WindowState> lookupRotated() {
+        return helper.loadWindowStates(profiles[next()], LANDSCAPE);
+    }
+
+    @Benchmark
+    public List<WindowStateHelper.WindowState> lookupUnknownApp() {
+        return helper.loadWindowStates(unknown[next()], PORTRAIT);
+    }
+}
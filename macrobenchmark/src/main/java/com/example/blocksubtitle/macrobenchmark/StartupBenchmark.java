@@ -0,0 +1,124 @@
+package com.example.blocksubtitle.macrobenchmark;
+
+import androidx.benchmark.macro.CompilationMode;
+import androidx.benchmark.macro.MacrobenchmarkScope;
+import androidx.benchmark.macro.Metric;
+import androidx.benchmark.macro.StartupMode;
+import androidx.benchmark.macro.StartupTimingMetric;
+import androidx.benchmark.macro.TraceSectionMetric;
+import androidx.benchmark.macro.junit4.MacrobenchmarkRule;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+import androidx.test.uiautomator.By;
+import androidx.test.uiautomator.UiDevice;
+import androidx.test.uiautomator.Until;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+import kotlin.Unit;
+import kotlin.jvm.functions.Function1;
+
+/**
+ * 冷启动基准：每次迭代前结束进程（am force-stop），再从启动器或直接启动服务，
+ * 等到遮挡窗出现为止。结果由 Macrobenchmark 从系统 trace 中读取，与应用内的 StartupHistory 统计互相独立。
+ * 启动器的时间用 StartupTimingMetric，窗口添加和启动收尾用应用中的 trace 区段
+ */
+@RunWith(AndroidJUnit4.class)
+public class StartupBenchmark {
+
+    private static final String PACKAGE = "com.example.blocksubtitle";
+    private static final String SERVICE = PACKAGE + "/.service.FloatingWindowService";
+
+    private static final int ITERATIONS = 10;
+
+    // 等待遮挡窗出现的上限
+    private static final long WINDOW_TIMEOUT_MS = 5000;
+
+    @Rule
+    public MacrobenchmarkRule benchmarkRule = new MacrobenchmarkRule();
+
+    private UiDevice device;
+
+    @Before
+    public void setUp() throws IOException {
+        device = UiDevice.getInstance(InstrumentationRegistry.getInstrumentation());
+        // 有悬浮窗权限时启动器直接启动服务，不显示授权界面
+        device.executeShellCommand("appops set " + PACKAGE + " SYSTEM_ALERT_WINDOW allow");
+    }
+
+    @Test
+    public void launcherColdStart() {
+        List<Metric> metrics = Arrays.<Metric>asList(
+                new StartupTimingMetric(),
+                new TraceSectionMetric("FloatingWindowService#createFloatingViews", TraceSectionMetric.Mode.First),
+                new TraceSectionMetric("FloatingWindowService#finishStartup", TraceSectionMetric.Mode.First));
+        benchmarkRule.measureRepeated(PACKAGE, metrics, CompilationMode.DEFAULT, StartupMode.COLD, ITERATIONS,
+                new Function1<MacrobenchmarkScope, Unit>() {
+                    @Override
+                    public Unit invoke(MacrobenchmarkScope scope) {
+                        scope.pressHome();
+                        return Unit.INSTANCE;
+                    }
+                },
+                new Function1<MacrobenchmarkScope, Unit>() {
+                    @Override
+                    public Unit invoke(MacrobenchmarkScope scope) {
+                        scope.startActivityAndWait();
+                        waitForBlockers();
+                        return Unit.INSTANCE;
+                    }
+                });
+    }
+
+    /**
+     * 与磁贴相同的路径：不经过任何 Activity 直接启动前台服务，只能用应用中的 trace 区段计时
+     */
+    @Test
+    public void serviceColdStart() {
+        List<Metric> metrics = Arrays.<Metric>asList(
+                new TraceSectionMetric("FloatingWindowService#createFloatingViews", TraceSectionMetric.Mode.First),
+                new TraceSectionMetric("FloatingWindowService#finishStartup", TraceSectionMetric.Mode.First));
+        benchmarkRule.measureRepeated(PACKAGE, metrics, CompilationMode.DEFAULT, null, ITERATIONS,
+                new Function1<MacrobenchmarkScope, Unit>() {
+                    @Override
+                    public Unit invoke(MacrobenchmarkScope scope) {
+                        // 没有 Activity 时 StartupMode 不适用，手动结束进程
+                        scope.killProcess();
+                        scope.pressHome();
+                        return Unit.INSTANCE;
+                    }
+                },
+                new Function1<MacrobenchmarkScope, Unit>() {
+                    @Override
+                    public Unit invoke(MacrobenchmarkScope scope) {
+                        shell("am start-foreground-service -n " + SERVICE);
+                        waitForBlockers();
+                        return Unit.INSTANCE;
+                    }
+                });
+    }
+
+    /**
+     * 启动器 Activity 启动服务后立即结束，之后屏幕上属于应用的只有遮挡窗
+     */
+    private void waitForBlockers() {
+        if (!device.wait(Until.hasObject(By.pkg(PACKAGE)), WINDOW_TIMEOUT_MS)) {
+            throw new AssertionError("Blockers did not appear within " + WINDOW_TIMEOUT_MS + "ms");
+        }
+    }
+
+    private void shell(String command) {
+        try {
+            device.executeShellCommand(command);
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to run " + command, e);
+        }
+    }
+}